@@ -1,13 +1,27 @@
 package com.example.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * RestTemplate配置类
  * 用于创建和配置RestTemplate实例，以支持HTTP请求
  */
+@Slf4j
 @Configuration
 public class RestTemplateConfig {
     
@@ -17,7 +31,62 @@ public class RestTemplateConfig {
      * @return 配置好的RestTemplate实例
      */
     @Bean
+    @Primary
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    /**
+     * Prophet 预测服务专用的 HTTP 客户端
+     * 连接池复用长连接（每个路由上限与 prophet.max-connections 一致），设置连接、读取超时，
+     * 并默认发送 Accept-Encoding: gzip, deflate 自动解压响应
+     *
+     * @param maxConnections         最大连接数
+     * @param connectTimeoutMillis   建立连接超时（毫秒）
+     * @param readTimeoutMillis      等待响应超时（毫秒）
+     * @param poolTimeoutMillis      从连接池获取连接的超时（毫秒）
+     * @return 应用关闭时自动关闭的 HTTP 客户端
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient prophetHttpClient(@Value("${prophet.max-connections:20}") int maxConnections,
+                                                 @Value("${prophet.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                                                 @Value("${prophet.read-timeout-ms:60000}") long readTimeoutMillis,
+                                                 @Value("${prophet.pool-timeout-ms:5000}") long poolTimeoutMillis) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        // 空闲超过 10 秒的连接复用前先检查是否已被服务端关闭
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMillis))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                .build();
+
+        log.info("配置Prophet服务HTTP连接池，最大连接数: {}, 连接超时: {}ms, 读取超时: {}ms",
+                maxConnections, connectTimeoutMillis, readTimeoutMillis);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+    }
+
+    /**
+     * Prophet 预测服务专用的 RestTemplate，基于连接池 HTTP 客户端
+     *
+     * @param prophetHttpClient Prophet 专用 HTTP 客户端
+     * @return 配置好的RestTemplate实例
+     */
+    @Bean
+    public RestTemplate prophetRestTemplate(@Qualifier("prophetHttpClient") CloseableHttpClient prophetHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(prophetHttpClient));
+    }
 }
@@ -10,6 +10,7 @@ import com.example.domain.product.entity.QProduct;
 import com.example.domain.purchase.entity.PurchaseDetail;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.BatchQuery;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -42,6 +43,11 @@ public class BatchService implements BaseRepository<Batch, BatchQuery> {
 
 
 
+    @Override
+    public EntityId<Batch> entityId() {
+        return new EntityId<>(QBatch.batch.id, Batch::getId);
+    }
+
     @Override
     public JPAQuery<Batch> buildConditionQuery(BatchQuery query) {
         QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
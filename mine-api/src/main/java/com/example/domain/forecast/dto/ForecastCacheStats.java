@@ -0,0 +1,20 @@
+package com.example.domain.forecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 预测结果缓存统计信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastCacheStats {
+    private long hitCount;          // 命中次数
+    private long missCount;         // 未命中次数
+    private double hitRate;         // 命中率
+    private long evictionCount;     // 因容量或过期被淘汰的条目数
+    private long invalidationCount; // 因新销售数据被失效的商品次数
+    private long size;              // 当前缓存条目数（估算）
+}
@@ -0,0 +1,26 @@
+package com.example.domain.forecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 预测任务执行器统计信息（时间单位：毫秒）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastExecutorStats {
+    private long submittedTasks;              // 已提交的预测任务数
+    private long completedTasks;              // 已完成的预测任务数
+    private double avgQueueWaitMillis;        // 任务平均排队时间
+    private double maxQueueWaitMillis;        // 任务最长排队时间
+    private double avgExecutionMillis;        // 任务平均执行时间
+    private int prophetMaxConnections;        // Prophet 最大并发请求数
+    private int prophetInFlight;              // 当前进行中的 Prophet 请求数
+    private int prophetWaiting;               // 当前等待许可的 Prophet 请求数
+    private long prophetCalls;                // 已完成的 Prophet 请求数
+    private double avgProphetPermitWaitMillis; // Prophet 请求平均等待许可时间
+    private double maxProphetPermitWaitMillis; // Prophet 请求最长等待许可时间
+    private double avgProphetCallMillis;      // Prophet 请求平均耗时
+}
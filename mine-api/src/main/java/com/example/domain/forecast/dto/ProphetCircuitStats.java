@@ -0,0 +1,18 @@
+package com.example.domain.forecast.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Prophet 熔断器状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProphetCircuitStats {
+    private String state;            // CLOSED / OPEN / HALF_OPEN
+    private int consecutiveFailures; // 当前连续失败次数
+    private long tripCount;          // 熔断打开的累计次数
+    private long rejectedCount;      // 熔断期间被拒绝的调用次数
+}
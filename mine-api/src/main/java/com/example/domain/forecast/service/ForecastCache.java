@@ -0,0 +1,160 @@
+package com.example.domain.forecast.service;
+
+import com.example.domain.forecast.dto.ForecastCacheStats;
+import com.example.utils.TransactionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 预测结果缓存
+ * <p>
+ * 键为 (商品ID, 预测天数, 策略, 历史数据截止日期, 商品版本)。商品的历史销量只会因订单、退货变化，
+ * 这些操作提交后递增该商品的版本号，旧版本的条目不再被命中，随容量上限或过期时间淘汰。
+ * 调用方在读取历史销量之前用 {@link #snapshotVersions()} 取版本号快照，预测结果写到快照中的版本下：
+ * 读取之后提交的订单、退货会递增版本号，基于旧数据的结果只会写到旧版本下，不会被命中。
+ */
+@Slf4j
+@Component
+public class ForecastCache {
+
+    private final Cache<Key, double[]> cache;
+
+    /**
+     * 商品版本号，商品ID -> 版本
+     */
+    private final Map<Integer, AtomicInteger> productVersions = new ConcurrentHashMap<>();
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    public ForecastCache(@Value("${forecast.cache.max-size:5000}") long maxSize,
+                         @Value("${forecast.cache.ttl-minutes:720}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                             .recordStats()
+                             .build();
+        log.info("初始化预测结果缓存，容量: {}, 过期时间: {} 分钟", maxSize, ttlMinutes);
+    }
+
+    /**
+     * 读取缓存的预测结果，未命中时计算并写入
+     *
+     * @param productId   商品ID
+     * @param horizon     预测天数
+     * @param strategy    使用的预测策略名称
+     * @param historyEnd  历史数据截止日期
+     * @param versions    读取历史数据之前取得的版本号快照
+     * @param loader      未命中时执行的预测，返回 null 表示本次结果不应缓存
+     * @return 预测结果（副本）
+     */
+    public double[] get(int productId, int horizon, String strategy, LocalDate historyEnd, Versions versions, Supplier<double[]> loader) {
+        Key key = keyOf(productId, horizon, strategy, historyEnd, versions);
+        double[] cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        double[] result = loader.get();
+        if (result == null) {
+            return null;
+        }
+        put(key, result);
+        return result;
+    }
+
+    /**
+     * 生成缓存键，版本号取快照中的值
+     */
+    Key keyOf(int productId, int horizon, String strategy, LocalDate historyEnd, Versions versions) {
+        return new Key(productId, horizon, strategy, historyEnd, versions.of(productId));
+    }
+
+    /**
+     * 当前全部商品的版本号快照，必须在读取历史销量数据之前调用
+     */
+    public Versions snapshotVersions() {
+        Map<Integer, Integer> snapshot = new HashMap<>(productVersions.size() * 2);
+        productVersions.forEach((productId, version) -> snapshot.put(productId, version.get()));
+        return new Versions(snapshot);
+    }
+
+    /**
+     * 仅读取缓存，未命中返回 null
+     */
+    double[] getIfPresent(Key key) {
+        double[] cached = cache.getIfPresent(key);
+        return cached != null ? cached.clone() : null;
+    }
+
+    /**
+     * 写入预测结果
+     */
+    void put(Key key, double[] result) {
+        cache.put(key, result.clone());
+    }
+
+    /**
+     * 在当前事务提交后使指定商品的预测结果失效
+     *
+     * @param productIds 商品ID
+     */
+    public void invalidateAfterCommit(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(productIds);
+        TransactionUtils.afterCommit(() -> invalidate(ids));
+    }
+
+    /**
+     * 立即使指定商品的预测结果失效
+     *
+     * @param productIds 商品ID
+     */
+    public void invalidate(Collection<Integer> productIds) {
+        for (Integer productId : productIds) {
+            productVersions.computeIfAbsent(productId, id -> new AtomicInteger()).incrementAndGet();
+            invalidationCount.increment();
+        }
+        log.debug("预测缓存已失效，商品: {}", productIds);
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public ForecastCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new ForecastCacheStats(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                invalidationCount.sum(),
+                cache.estimatedSize()
+        );
+    }
+
+    /**
+     * 商品版本号快照，商品ID -> 版本，未出现的商品版本为 0
+     */
+    public record Versions(Map<Integer, Integer> versions) {
+
+        int of(int productId) {
+            return versions.getOrDefault(productId, 0);
+        }
+    }
+
+    record Key(int productId, int horizon, String strategy, LocalDate historyEnd, int version) {
+    }
+}
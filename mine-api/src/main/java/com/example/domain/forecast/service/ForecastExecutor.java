@@ -0,0 +1,156 @@
+package com.example.domain.forecast.service;
+
+import com.example.domain.forecast.dto.ForecastExecutorStats;
+import com.example.exception.MyException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 预测任务执行器
+ * <p>
+ * 预测任务大多阻塞在对 Prophet 服务的 HTTP 调用上，这里每个任务使用一个虚拟线程，
+ * 不再占用固定大小的平台线程池；真正限制并发的是 Prophet 调用的信号量（prophet.max-connections），
+ * 超出的请求在信号量上等待而不是同时打到 Prophet 服务。
+ * 同时记录任务排队时间、执行时间以及等待 Prophet 许可的时间。
+ */
+@Slf4j
+@Component
+public class ForecastExecutor {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 同时进行中的 Prophet 请求上限
+     */
+    private final Semaphore prophetPermits;
+    private final int prophetMaxConnections;
+
+    private final LongAdder submittedTasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    private final LongAdder prophetCalls = new LongAdder();
+    private final LongAdder prophetPermitWaitNanos = new LongAdder();
+    private final LongAdder prophetCallNanos = new LongAdder();
+    private final AtomicLong maxProphetPermitWaitNanos = new AtomicLong();
+
+    public ForecastExecutor(@Value("${prophet.max-connections:20}") int prophetMaxConnections) {
+        this.prophetMaxConnections = prophetMaxConnections;
+        this.prophetPermits = new Semaphore(prophetMaxConnections, true);
+        log.info("初始化预测任务执行器（虚拟线程），Prophet 最大并发请求数: {}", prophetMaxConnections);
+    }
+
+    /**
+     * 提交一个预测任务
+     *
+     * @param task 预测任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        submittedTasks.increment();
+        return CompletableFuture.supplyAsync(() -> {
+            long startedAt = System.nanoTime();
+            record(queueWaitNanos, maxQueueWaitNanos, startedAt - submittedAt);
+            try {
+                return task.get();
+            } finally {
+                executionNanos.add(System.nanoTime() - startedAt);
+                completedTasks.increment();
+            }
+        }, executor);
+    }
+
+    /**
+     * 在 Prophet 并发许可内执行一次调用
+     *
+     * @param call 对 Prophet 服务的调用
+     * @return 调用结果
+     * @throws Exception 调用本身抛出的异常
+     */
+    public <T> T callProphet(Callable<T> call) throws Exception {
+        long waitStart = System.nanoTime();
+        try {
+            prophetPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MyException("等待Prophet请求许可时被中断");
+        }
+        long callStart = System.nanoTime();
+        record(prophetPermitWaitNanos, maxProphetPermitWaitNanos, callStart - waitStart);
+        try {
+            return call.call();
+        } finally {
+            prophetPermits.release();
+            prophetCallNanos.add(System.nanoTime() - callStart);
+            prophetCalls.increment();
+        }
+    }
+
+    /**
+     * 执行器统计信息
+     */
+    public ForecastExecutorStats stats() {
+        long completed = completedTasks.sum();
+        long calls = prophetCalls.sum();
+        return new ForecastExecutorStats(
+                submittedTasks.sum(),
+                completed,
+                averageMillis(queueWaitNanos.sum(), completed),
+                toMillis(maxQueueWaitNanos.get()),
+                averageMillis(executionNanos.sum(), completed),
+                prophetMaxConnections,
+                prophetMaxConnections - prophetPermits.availablePermits(),
+                prophetPermits.getQueueLength(),
+                calls,
+                averageMillis(prophetPermitWaitNanos.sum(), calls),
+                toMillis(maxProphetPermitWaitNanos.get()),
+                averageMillis(prophetCallNanos.sum(), calls)
+        );
+    }
+
+    /**
+     * 应用关闭时停止接收新任务，并等待进行中的预测结束
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("预测任务未能在 30 秒内结束，强制关闭");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        log.info("预测任务执行器已关闭");
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static double averageMillis(long totalNanos, long count) {
+        return count == 0 ? 0.0 : totalNanos / 1_000_000.0 / count;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,26 +1,25 @@
 package com.example.domain.forecast.service;
 
+import com.example.domain.forecast.dto.ForecastCacheStats;
+import com.example.domain.forecast.dto.ForecastExecutorStats;
 import com.example.domain.forecast.strategy.ForecastStrategy;
-import com.example.domain.product.service.ProductService;
-import com.example.domain.statistics.dto.response.ProductSalesInfoDTO;
+import com.example.domain.statistics.dto.SalesMatrix;
 import com.example.domain.statistics.dto.response.SalesStatisticsDTO;
 import com.example.exception.MyException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
 
 /**
@@ -32,66 +31,50 @@ import java.util.stream.Collectors;
 public class ForecastService {
 
     private final List<ForecastStrategy> strategies;
-    private final ProductService productService; // 注入 ProductService
+    private final ForecastCache forecastCache; // 预测结果缓存
+    private final ForecastExecutor forecastExecutor; // 预测任务执行器（虚拟线程）
     
-    // 预测任务的线程池
-    private Executor forecastExecutor;
-    
-    @Value("${forecast.threadpool.size:10}")
-    private int threadPoolSize;
-    
-    @Value("${prophet.max-connections:20}")
-    private int prophetMaxConnections;
-
     /**
-     * 构造函数，注入所有可用的预测策略和 ProductService。
+     * 构造函数，注入所有可用的预测策略。
      * 策略会根据其适用的最小数据长度进行排序，优先选择能处理更多数据的策略。
      *
      * @param strategies     Spring 自动注入的所有 ForecastStrategy Bean 列表。
-     * @param productService ProductService 用于获取商品相关信息。
+     * @param forecastCache  预测结果缓存。
+     * @param forecastExecutor 预测任务执行器。
      */
     @Autowired
-    public ForecastService(List<ForecastStrategy> strategies, ProductService productService) {
+    public ForecastService(List<ForecastStrategy> strategies, ForecastCache forecastCache, ForecastExecutor forecastExecutor) {
         // 按 getMinDataLength 降序排序，优先匹配需要更多数据的策略
         this.strategies = strategies.stream()
                                     .sorted(Comparator.comparingInt(ForecastStrategy::getMinDataLength)
                                                       .reversed())
                                     .toList();
-        this.productService = productService; // 保存注入的 ProductService
+        this.forecastCache = forecastCache;
+        this.forecastExecutor = forecastExecutor;
         log.info("加载并排序的预测策略: {}", this.strategies.stream()
                                                             .map(ForecastStrategy::getStrategyName)
                                                             .collect(Collectors.joining(", ")));
     }
     
     /**
-     * 初始化线程池和HTTP连接池
+     * 预测结果缓存统计信息
      */
-    @PostConstruct
-    public void init() {
-        // 创建预测任务专用的线程池
-        forecastExecutor = Executors.newFixedThreadPool(threadPoolSize);
-        log.info("初始化预测服务线程池，大小: {}", threadPoolSize);
-        
-        // 配置Prophet服务的HTTP连接池
-        configProphetHttpClient();
-        
-        log.info("预测服务初始化完成");
+    public ForecastCacheStats getCacheStats() {
+        return forecastCache.stats();
     }
-    
+
     /**
-     * 配置与Prophet服务通信的HTTP客户端
-     * 这里只是一个示例，实际实现需要根据具体使用的HTTP客户端库
+     * 预测任务执行器统计信息（排队时间、执行时间、Prophet 并发）
      */
-    private void configProphetHttpClient() {
-        // 这里应该实现对HTTP客户端的配置
-        // 例如，如果使用OkHttp或Apache HttpClient，应该在这里配置连接池
-        log.info("配置Prophet服务HTTP连接池，最大连接数: {}", prophetMaxConnections);
-        
-        // 具体实现示例(使用Apache HttpClient的情况):
-        // PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
-        // connManager.setMaxTotal(prophetMaxConnections);
-        // connManager.setDefaultMaxPerRoute(prophetMaxConnections);
-        // httpClient = HttpClients.custom().setConnectionManager(connManager).build();
+    public ForecastExecutorStats getExecutorStats() {
+        return forecastExecutor.stats();
+    }
+
+    /**
+     * 预测缓存的版本号快照，必须在构建销售矩阵之前读取，预测结果按快照中的版本写入缓存
+     */
+    public ForecastCache.Versions snapshotVersions() {
+        return forecastCache.snapshotVersions();
     }
 
     /**
@@ -99,56 +82,172 @@ public class ForecastService {
      * 这是供外部（如 PurchaseService）调用的主要预测方法。
      *
      * @param productId         商品ID。
-     * @param historicalDataMap 包含按日期组织的销售统计数据的 Map。
+     * @param salesMatrix       商品日销售矩阵。
+     * @param earliestSaleDates 商品最早销售日期（整批预测共用一份，见 ProductService#getEarliestSaleDates）。
+     * @param versions          构建销售矩阵之前取得的预测缓存版本号快照（见 {@link #snapshotVersions()}）。
      * @param forecastDays      需要预测的未来天数。
      * @return 预测的未来 N 天总销量。如果无法预测（如无历史数据），则返回 0。
      * @throws MyException 如果在预测过程中发生不可恢复的错误。
      */
-    public double[] forecastProductTotal(int productId, Map<LocalDate, SalesStatisticsDTO> historicalDataMap, int forecastDays) throws MyException {
+    public double[] forecastProductTotal(int productId, SalesMatrix salesMatrix, Map<Integer, LocalDate> earliestSaleDates, ForecastCache.Versions versions, int forecastDays) throws MyException {
         // 1. 提取该商品的原始日销量数据
-        double[] rawDailySales = getProductData(historicalDataMap, productId);
+        double[] rawDailySales = getProductData(salesMatrix, earliestSaleDates, productId);
         log.debug("商品ID: {}, 原始日数据长度: {}", productId, rawDailySales.length);
 
         // 周聚合数据不再在此处统一计算，策略如果需要会自行聚合
         // double[] weeklyData = aggregateToWeeklyData(rawDailySales);
 
-        ForecastStrategy selectedStrategy = strategies.stream()
-                                                    // 现在 canHandle 接收原始日数据长度
-                                                    .filter(strategy -> strategy.canHandle(rawDailySales.length))
-                                                    // 按 getMinDataLength 降序排序，优先选择数据需求量大的策略
-                                                    .sorted(Comparator.comparingInt(ForecastStrategy::getMinDataLength).reversed())
-                                                    .findFirst()
-                                                    .orElseThrow(() -> new MyException("没有可用的预测策略"));
+        List<ForecastStrategy> candidates = selectStrategies(rawDailySales.length);
+        if (candidates.isEmpty()) {
+            throw new MyException("没有可用的预测策略");
+        }
 
-        // 4. 执行预测
-        double[] dailyForecast;
-        try {
-            // 所有策略的 forecast 方法现在都接收原始日数据
-            log.debug("商品ID: {}, 选择策略: {}, 传递原始日数据 (长度:{}) 进行预测。", productId, selectedStrategy.getStrategyName(), rawDailySales.length);
-            dailyForecast = selectedStrategy.forecast(rawDailySales, forecastDays);
-        } catch (Exception e) {
-            log.error("商品ID: {} 使用策略 {} 预测失败: {}", productId, selectedStrategy.getStrategyName(), e.getMessage(), e);
+        // 4. 执行预测（相同商品、天数、策略和历史截止日期的结果直接取缓存）；
+        //    当前策略失败或不可用时依次改用下一个策略
+        for (ForecastStrategy selectedStrategy : candidates) {
+            double[] dailyForecast = forecastCache.get(productId, forecastDays, selectedStrategy.getStrategyName(), salesMatrix.getEndDate(), versions, () -> {
+                try {
+                    // 所有策略的 forecast 方法现在都接收原始日数据
+                    log.debug("商品ID: {}, 选择策略: {}, 传递原始日数据 (长度:{}) 进行预测。", productId, selectedStrategy.getStrategyName(), rawDailySales.length);
+                    return selectedStrategy.forecast(rawDailySales, forecastDays);
+                } catch (Exception e) {
+                    log.error("商品ID: {} 使用策略 {} 预测失败: {}", productId, selectedStrategy.getStrategyName(), e.getMessage());
+                    return null; // 失败结果不缓存
+                }
+            });
+            if (dailyForecast != null) {
+                return dailyForecast;
+            }
+        }
+        return new double[]{0.0};
+    }
+    
+    /**
+     * 批量预测多个商品的未来日销量。
+     * 先按商品查缓存，未命中的商品按选中的策略分组，每组调用一次 {@link ForecastStrategy#forecastBatch}，
+     * 代替逐个商品提交异步任务。预测失败的商品改用下一个候选策略重试。
+     *
+     * @param productIds        商品ID数组。
+     * @param salesMatrix       商品日销售矩阵。
+     * @param earliestSaleDates 商品最早销售日期。
+     * @param versions          构建销售矩阵之前取得的预测缓存版本号快照。
+     * @param forecastDays      需要预测的未来天数。
+     * @return 商品ID -> 未来每日预测销量；无法预测的商品为 {0.0}。
+     */
+    public Map<Integer, double[]> forecastBatch(int[] productIds, SalesMatrix salesMatrix, Map<Integer, LocalDate> earliestSaleDates, ForecastCache.Versions versions, int forecastDays) {
+        Map<Integer, double[]> results = new HashMap<>(productIds.length * 2);
+        List<BatchItem> pending = new ArrayList<>();
+
+        for (int productId : productIds) {
+            if (results.containsKey(productId)) {
+                continue;
+            }
+            results.put(productId, null); // 占位，避免重复商品ID重复预测
+            double[] rawDailySales = getProductData(salesMatrix, earliestSaleDates, productId);
+            List<ForecastStrategy> candidates = selectStrategies(rawDailySales.length);
+            if (candidates.isEmpty()) {
+                log.error("商品ID: {} 没有可用的预测策略", productId);
+                results.put(productId, new double[]{0.0});
+                continue;
+            }
+            pending.add(new BatchItem(productId, rawDailySales, candidates, 0));
+        }
+
+        // 每一轮按当前策略分组批量预测，失败的商品进入下一轮改用下一个候选策略
+        while (!pending.isEmpty()) {
+            Map<ForecastStrategy, List<BatchItem>> groups = new LinkedHashMap<>();
+            Map<BatchItem, ForecastCache.Key> keys = new HashMap<>();
+            for (BatchItem item : pending) {
+                ForecastStrategy strategy = item.strategy();
+                ForecastCache.Key key = forecastCache.keyOf(item.productId(), forecastDays, strategy.getStrategyName(), salesMatrix.getEndDate(), versions);
+                double[] cached = forecastCache.getIfPresent(key);
+                if (cached != null) {
+                    results.put(item.productId(), cached);
+                    continue;
+                }
+                keys.put(item, key);
+                groups.computeIfAbsent(strategy, s -> new ArrayList<>()).add(item);
+            }
 
-            return new double[]{0.0};
+            List<BatchItem> retry = new ArrayList<>();
+            groups.forEach((strategy, items) -> {
+                double[][] series = new double[items.size()][];
+                for (int i = 0; i < series.length; i++) {
+                    series[i] = items.get(i).series();
+                }
+                double[][] forecasts;
+                try {
+                    log.debug("策略 {} 批量预测 {} 个商品", strategy.getStrategyName(), series.length);
+                    forecasts = strategy.forecastBatch(series, forecastDays);
+                } catch (Exception e) {
+                    log.error("策略 {} 批量预测失败: {}", strategy.getStrategyName(), e.getMessage());
+                    forecasts = new double[series.length][];
+                }
+                for (int i = 0; i < series.length; i++) {
+                    BatchItem item = items.get(i);
+                    double[] forecast = forecasts[i];
+                    if (forecast != null) {
+                        forecastCache.put(keys.get(item), forecast);
+                        results.put(item.productId(), forecast);
+                    } else if (item.hasNext()) {
+                        retry.add(item.next());
+                    } else {
+                        results.put(item.productId(), new double[]{0.0}); // 失败结果不缓存
+                    }
+                }
+            });
+            pending = retry;
         }
+        return results;
+    }
 
-        return dailyForecast;
+    /**
+     * 按数据长度选择可用策略，需要数据最多的策略在前；不可用（如熔断中）的策略被跳过
+     */
+    private List<ForecastStrategy> selectStrategies(int dataLength) {
+        List<ForecastStrategy> candidates = new ArrayList<>(strategies.size());
+        for (ForecastStrategy strategy : strategies) {
+            if (strategy.canHandle(dataLength) && strategy.isAvailable()) {
+                candidates.add(strategy);
+            }
+        }
+        return candidates;
     }
-    
+
+    /**
+     * 批量预测中等待计算的单个商品
+     */
+    private record BatchItem(int productId, double[] series, List<ForecastStrategy> candidates, int attempt) {
+
+        ForecastStrategy strategy() {
+            return candidates.get(attempt);
+        }
+
+        boolean hasNext() {
+            return attempt + 1 < candidates.size();
+        }
+
+        BatchItem next() {
+            return new BatchItem(productId, series, candidates, attempt + 1);
+        }
+    }
+
     /**
      * 异步预测单个商品的未来销量总和。
      * 与同步版本功能相同，但返回CompletableFuture以支持异步调用。
      *
      * @param productId         商品ID。
-     * @param historicalDataMap 包含按日期组织的销售统计数据的 Map。
+     * @param salesMatrix       商品日销售矩阵。
+     * @param earliestSaleDates 商品最早销售日期。
+     * @param versions          构建销售矩阵之前取得的预测缓存版本号快照。
      * @param forecastDays      需要预测的未来天数。
      * @return 包含预测结果的CompletableFuture。如果无法预测，则返回包含{0.0}的CompletableFuture。
      */
     @Async
-    public CompletableFuture<double[]> forecastProductTotalAsync(int productId, Map<LocalDate, SalesStatisticsDTO> historicalDataMap, int forecastDays) {
+    public CompletableFuture<double[]> forecastProductTotalAsync(int productId, SalesMatrix salesMatrix, Map<Integer, LocalDate> earliestSaleDates, ForecastCache.Versions versions, int forecastDays) {
         try {
             log.debug("异步开始预测商品ID: {}", productId);
-            double[] result = forecastProductTotal(productId, historicalDataMap, forecastDays);
+            double[] result = forecastProductTotal(productId, salesMatrix, earliestSaleDates, versions, forecastDays);
             return CompletableFuture.completedFuture(result);
         } catch (Exception e) {
             log.error("商品ID: {} 异步预测失败: {}", productId, e.getMessage(), e);
@@ -157,65 +256,50 @@ public class ForecastService {
     }
     
     /**
-     * 使用自定义线程池进行异步预测。
-     * 比@Async注解更灵活，可以指定使用专用的线程池。
+     * 使用预测任务执行器进行异步预测。
+     * 每个任务运行在独立的虚拟线程上，对 Prophet 的并发请求由执行器的信号量限制。
      *
      * @param productId         商品ID。
-     * @param historicalDataMap 包含按日期组织的销售统计数据的 Map。
+     * @param salesMatrix       商品日销售矩阵。
+     * @param earliestSaleDates 商品最早销售日期。
+     * @param versions          构建销售矩阵之前取得的预测缓存版本号快照。
      * @param forecastDays      需要预测的未来天数。
      * @return 包含预测结果的CompletableFuture。
      */
-    public CompletableFuture<double[]> forecastProductTotalWithCustomExecutor(int productId, Map<LocalDate, SalesStatisticsDTO> historicalDataMap, int forecastDays) {
-        return CompletableFuture.supplyAsync(() -> {
+    public CompletableFuture<double[]> forecastProductTotalWithCustomExecutor(int productId, SalesMatrix salesMatrix, Map<Integer, LocalDate> earliestSaleDates, ForecastCache.Versions versions, int forecastDays) {
+        return forecastExecutor.submit(() -> {
             try {
-                log.debug("使用自定义线程池开始预测商品ID: {}", productId);
-                return forecastProductTotal(productId, historicalDataMap, forecastDays);
+                log.debug("使用预测任务执行器开始预测商品ID: {}", productId);
+                return forecastProductTotal(productId, salesMatrix, earliestSaleDates, versions, forecastDays);
             } catch (Exception e) {
                 log.error("商品ID: {} 预测失败: {}", productId, e.getMessage(), e);
                 return new double[]{0.0};
             }
-        }, forecastExecutor);
+        });
     }
 
     /**
-     * 从按日期组织的销售统计数据中提取指定商品的日销量数组。
+     * 从商品日销售矩阵中提取指定商品的日销量数组。
+     * 序列从该商品的最早销售日期（或矩阵开始日期，取较晚者）开始，直接对矩阵切片，耗时 O(天数)。
      *
-     * @param data      包含历史销售统计的 Map (LocalDate -> SalesStatisticsDTO)。
-     * @param productId 需要提取数据的商品 ID。
+     * @param salesMatrix       商品日销售矩阵。
+     * @param earliestSaleDates 商品最早销售日期。
+     * @param productId         需要提取数据的商品 ID。
      * @return 按时间顺序排列的该商品日销量数组。如果找不到商品或无销售记录，则返回空数组。
      */
-    public double[] getProductData(Map<LocalDate, SalesStatisticsDTO> data, int productId) {
-        if (data == null || data.isEmpty()) {
+    public double[] getProductData(SalesMatrix salesMatrix, Map<Integer, LocalDate> earliestSaleDates, int productId) {
+        if (salesMatrix == null || salesMatrix.getDays() == 0) {
             return new double[0];
         }
         // 查找该商品的最早销售日期，以确定数据提取的起始点
-        LocalDate earliestSaleDate = productService.getEarliestSaleDateByProductId(productId);
+        LocalDate earliestSaleDate = earliestSaleDates.get(productId);
         if (earliestSaleDate == null) {
             log.warn("无法获取商品ID: {} 的最早销售日期，可能无销售记录。", productId);
             return new double[0];
         }
 
-        // 过滤掉早于最早销售日期的数据，并按日期排序
-        List<Map.Entry<LocalDate, SalesStatisticsDTO>> sortedEntries = data.entrySet()
-                                                                           .stream()
-                                                                           .filter(entry -> !entry.getKey()
-                                                                                                  .isBefore(earliestSaleDate))
-                                                                           .sorted(Map.Entry.comparingByKey())
-                                                                           .toList();
-
-        // 从每日统计中提取该商品的销量
-        double[] dailySales = sortedEntries.stream()
-                                           .mapToDouble(entry ->
-                                                   entry.getValue()
-                                                        .getProductSalesInfoDTOS() // 获取当天所有商品的销售信息
-                                                        .stream()
-                                                        .filter(dto -> dto.getProductId() == productId) // 找到目标商品
-                                                        .mapToInt(ProductSalesInfoDTO::getQuantity) // 获取销量
-                                                        .findFirst() // 应该只有一个匹配项
-                                                        .orElse(0) // 如果当天该商品未售出，销量为 0
-                                           )
-                                           .toArray();
-        return dailySales;
+        // 早于最早销售日期的数据不参与预测
+        return salesMatrix.series(productId, SalesMatrix.Metric.QUANTITY, salesMatrix.offsetOf(earliestSaleDate));
     }
 
     /**
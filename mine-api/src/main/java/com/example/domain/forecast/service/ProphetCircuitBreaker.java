@@ -0,0 +1,151 @@
+package com.example.domain.forecast.service;
+
+import com.example.domain.forecast.dto.ProphetCircuitStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prophet 服务熔断器
+ * <p>
+ * 连续失败（含超过慢调用阈值的调用）达到阈值后打开熔断，期间不再请求 Prophet，
+ * 预测服务直接改用下一个可用策略；打开一段时间后进入半开状态，只放行一个探测请求，
+ * 探测成功则关闭熔断，失败则重新打开。
+ * 熔断打开前已发出、之后才返回的请求不影响状态：只有探测请求本身的结果能关闭或重新打开熔断。
+ */
+@Slf4j
+@Component
+public class ProphetCircuitBreaker {
+
+    public enum State {
+        CLOSED,    // 正常调用
+        OPEN,      // 熔断中，拒绝调用
+        HALF_OPEN  // 半开，放行一个探测请求
+    }
+
+    /**
+     * 申请调用的结果，调用结束后原样交回 {@link #onSuccess} / {@link #onFailure}
+     */
+    public enum Permit {
+        REJECTED, // 拒绝调用
+        NORMAL,   // 熔断关闭时的普通调用
+        PROBE     // 半开状态下的探测调用
+    }
+
+    private final int failureThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final LongAdder tripCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public ProphetCircuitBreaker(@Value("${forecast.prophet.circuit.failure-threshold:5}") int failureThreshold,
+                                 @Value("${forecast.prophet.circuit.slow-call-ms:20000}") long slowCallMillis,
+                                 @Value("${forecast.prophet.circuit.open-seconds:30}") long openSeconds) {
+        this.failureThreshold = failureThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openSeconds * 1000;
+    }
+
+    /**
+     * 当前是否可能放行请求（不占用探测名额），用于策略选择
+     */
+    public synchronized boolean isAvailable() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.currentTimeMillis() - openedAt >= openMillis;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /**
+     * 申请发起一次请求；半开状态下只有第一个申请者获得探测名额
+     *
+     * @return 申请结果，{@link Permit#REJECTED} 表示不允许调用
+     */
+    public synchronized Permit tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return Permit.NORMAL;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    rejectedCount.increment();
+                    return Permit.REJECTED;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                log.info("Prophet熔断进入半开状态，发送探测请求");
+                return Permit.PROBE;
+            default:
+                if (probeInFlight) {
+                    rejectedCount.increment();
+                    return Permit.REJECTED;
+                }
+                probeInFlight = true;
+                return Permit.PROBE;
+        }
+    }
+
+    /**
+     * 记录一次收到响应的调用
+     * 熔断关闭时清零连续失败次数；半开状态下只有探测请求的成功才关闭熔断；熔断打开时忽略
+     *
+     * @param permit        发起调用时获得的许可
+     * @param elapsedMillis 调用耗时（毫秒），超过慢调用阈值按失败处理
+     */
+    public synchronized void onSuccess(Permit permit, long elapsedMillis) {
+        if (elapsedMillis > slowCallMillis) {
+            log.warn("Prophet调用耗时 {}ms 超过阈值 {}ms，按失败计入熔断", elapsedMillis, slowCallMillis);
+            onFailure(permit);
+            return;
+        }
+        if (state == State.CLOSED) {
+            consecutiveFailures = 0;
+        } else if (state == State.HALF_OPEN && permit == Permit.PROBE) {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            state = State.CLOSED;
+            log.info("Prophet服务已恢复，熔断关闭");
+        }
+    }
+
+    /**
+     * 记录一次失败的调用
+     * 熔断关闭时累计连续失败次数，达到阈值打开熔断；半开状态下只有探测请求的失败才重新打开熔断；熔断打开时忽略
+     *
+     * @param permit 发起调用时获得的许可
+     */
+    public synchronized void onFailure(Permit permit) {
+        if (state == State.CLOSED) {
+            consecutiveFailures++;
+            if (consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } else if (state == State.HALF_OPEN && permit == Permit.PROBE) {
+            consecutiveFailures++;
+            probeInFlight = false;
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        tripCount.increment();
+        log.warn("Prophet连续失败 {} 次，熔断打开 {} 秒，期间改用其他预测策略", consecutiveFailures, openMillis / 1000);
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public synchronized ProphetCircuitStats stats() {
+        return new ProphetCircuitStats(state.name(), consecutiveFailures, tripCount.sum(), rejectedCount.sum());
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.domain.forecast.strategy;
 
 import com.example.exception.MyException;
+import org.slf4j.LoggerFactory;
 
 /**
  * 预测策略接口
@@ -18,6 +19,30 @@ public interface ForecastStrategy {
      */
     double[] forecast(double[] historicalData, int forecastDays) throws MyException;
 
+    /**
+     * 批量执行预测，一次处理多条历史序列。
+     * 默认实现逐条调用 {@link #forecast(double[], int)}，单条失败记录日志、不影响其他序列；
+     * 实现类可覆盖为真正的批量实现（如一次循环或一次远程请求处理全部序列）。
+     *
+     * @param series       多条历史数据，每条长度可以不同。
+     * @param forecastDays 需要预测的未来天数。
+     * @return 与 series 下标一一对应的预测结果；某条预测失败时对应元素为 null。
+     * @throws MyException 如果整批预测无法进行。
+     */
+    default double[][] forecastBatch(double[][] series, int forecastDays) throws MyException {
+        double[][] results = new double[series.length][];
+        for (int i = 0; i < series.length; i++) {
+            try {
+                results[i] = forecast(series[i], forecastDays);
+            } catch (Exception e) {
+                LoggerFactory.getLogger(getClass())
+                             .error("策略 {} 第 {} 条序列预测失败: {}", getStrategyName(), i, e.getMessage());
+                results[i] = null;
+            }
+        }
+        return results;
+    }
+
     /**
      * 判断该策略是否能够处理给定长度的历史数据。
      *
@@ -26,6 +51,16 @@ public interface ForecastStrategy {
      */
     boolean canHandle(int dataLength);
 
+    /**
+     * 策略当前是否可用（例如依赖的外部服务是否处于熔断状态）。
+     * 不可用的策略在选择时被跳过，由下一个能处理该数据长度的策略代替。
+     *
+     * @return 默认始终可用。
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
     /**
      * 获取策略的名称，主要用于日志记录和调试。
      *
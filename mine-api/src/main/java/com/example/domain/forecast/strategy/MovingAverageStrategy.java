@@ -27,26 +27,15 @@ public class MovingAverageStrategy implements ForecastStrategy {
         }
         
         // 选择最合适的窗口大小和算法
-        int windowSize = Math.min(DEFAULT_WINDOW_SIZE, historicalData.length);
-        windowSize = Math.max(MIN_WINDOW_SIZE, windowSize); // 确保至少有3个点
+        int windowSize = windowSizeFor(historicalData.length);
         
-        log.debug("执行改进的移动平均策略，数据长度: {}, 预测天数: {}, 窗口大小: {}",
-                historicalData.length, forecastDays, windowSize);
+        log.debug("执行改进的移动平均策略，数据长度: {}, 预测天数: {}, 窗口大小: {}, 算法: {}",
+                historicalData.length, forecastDays, windowSize, historicalData.length >= 14 ? "EWMA" : "SMA+趋势");
 
         try {
-            // 使用最近趋势进行预测
-            double[] result;
-            
-            if (historicalData.length >= 14) {
-                // 数据足够多时，使用指数加权移动平均
-                log.info("数据点数 >= 14，使用指数加权移动平均 (EWMA)");
-                result = forecastWithEWMA(historicalData, forecastDays, WEIGHT_DECAY);
-            } else {
-                // 数据较少时，使用简单移动平均并考虑趋势
-                log.info("数据点数 < 14，使用简单移动平均加趋势");
-                result = forecastWithSMAAndTrend(historicalData, forecastDays, windowSize);
-            }
-            
+            double[] result = new double[forecastDays];
+            forecastInto(historicalData, result);
+
             // 固定窗口大小下的时间序列交叉验证评估
             evaluateUsingCV(historicalData, windowSize);
 
@@ -60,68 +49,93 @@ public class MovingAverageStrategy implements ForecastStrategy {
             return forecastResult;
         }
     }
-    
+
     /**
-     * 使用指数加权移动平均进行预测
+     * 批量预测。
+     * 所有序列在同一个循环中计算，不为中间结果（移动平均序列、截取的子数组）分配内存，
+     * 交叉验证误差以滚动窗口方式 O(n) 累计，最后只输出一条汇总日志。
      */
-    private double[] forecastWithEWMA(double[] data, int forecastDays, double alpha) {
-        // 计算最新的EWMA值
-        double ewma = data[0];
-        for (int i = 1; i < data.length; i++) {
-            ewma = alpha * data[i] + (1 - alpha) * ewma;
-        }
-        
-        // 计算最近的趋势
-        double trend = 0;
-        if (data.length >= 3) {
-            // 使用最后几个点估计趋势
-            int n = Math.min(5, data.length);
-            double[] lastNPoints = Arrays.copyOfRange(data, data.length - n, data.length);
-            trend = estimateTrend(lastNPoints);
+    @Override
+    public double[][] forecastBatch(double[][] series, int forecastDays) throws MyException {
+        double[][] results = new double[series.length][];
+        double totalError = 0;
+        int errorCount = 0;
+
+        for (int s = 0; s < series.length; s++) {
+            double[] data = series[s];
+            double[] result = new double[forecastDays];
+            results[s] = result;
+            if (data == null || data.length == 0) {
+                continue;
+            }
+            forecastInto(data, result);
+
+            int windowSize = windowSizeFor(data.length);
+            totalError += cvAbsoluteErrorSum(data, windowSize);
+            errorCount += Math.max(0, data.length - windowSize);
         }
-        
-        double[] forecast = new double[forecastDays];
-        for (int i = 0; i < forecastDays; i++) {
-            // 使用EWMA值加简单趋势估计进行预测
-            forecast[i] = Math.max(0, ewma + trend * (i + 1));
+
+        if (errorCount > 0) {
+            log.debug("批量移动平均预测完成，序列数: {}, 交叉验证MAE: {}", series.length, String.format("%.4f", totalError / errorCount));
         }
-        
-        return forecast;
+        return results;
     }
-    
+
     /**
-     * 使用简单移动平均加趋势进行预测
+     * 窗口大小：默认 7，不超过数据长度，且至少为 3
      */
-    private double[] forecastWithSMAAndTrend(double[] data, int forecastDays, int windowSize) {
-        // 计算最新的移动平均值
-        double[] movingAverages = calculateMovingAverage(data, windowSize);
-        double lastMA = movingAverages[movingAverages.length - 1];
-        
-        // 估计趋势
+    private int windowSizeFor(int dataLength) {
+        int windowSize = Math.min(DEFAULT_WINDOW_SIZE, dataLength);
+        return Math.max(MIN_WINDOW_SIZE, windowSize); // 确保至少有3个点
+    }
+
+    /**
+     * 计算单条序列的预测值并写入 result
+     * 数据足够多时（>= 14）使用指数加权移动平均，否则使用简单移动平均加趋势
+     */
+    private void forecastInto(double[] data, double[] result) {
+        int n = data.length;
+        double level;
         double trend = 0;
-        if (data.length >= 3) {
-            trend = estimateTrend(data);
+
+        if (n >= 14) {
+            // 数据足够多时，使用指数加权移动平均
+            double ewma = data[0];
+            for (int i = 1; i < n; i++) {
+                ewma = WEIGHT_DECAY * data[i] + (1 - WEIGHT_DECAY) * ewma;
+            }
+            level = ewma;
+            // 使用最后几个点估计趋势
+            trend = estimateTrend(data, n - Math.min(5, n), n);
+        } else {
+            // 数据较少时，使用最新的简单移动平均值并考虑趋势
+            int window = Math.min(windowSizeFor(n), n);
+            double sum = 0;
+            for (int i = n - window; i < n; i++) {
+                sum += data[i];
+            }
+            level = sum / window;
+            if (n >= 3) {
+                trend = estimateTrend(data, 0, n);
+            }
         }
-        
-        double[] forecast = new double[forecastDays];
-        for (int i = 0; i < forecastDays; i++) {
+
+        for (int i = 0; i < result.length; i++) {
             // 添加趋势并确保非负
-            forecast[i] = Math.max(0, lastMA + trend * (i + 1));
+            result[i] = Math.max(0, level + trend * (i + 1));
         }
-        
-        return forecast;
     }
     
     /**
-     * 估计数据的线性趋势（每单位时间的平均变化率）
+     * 估计 data[from, to) 的线性趋势（每单位时间的平均变化率）
      */
-    private double estimateTrend(double[] data) {
-        if (data.length < 2) return 0;
+    private double estimateTrend(double[] data, int from, int to) {
+        if (to - from < 2) return 0;
         
         // 使用最简单的方法估计趋势：最后一个点与第一个点之差除以时间跨度
-        double firstValue = data[0];
-        double lastValue = data[data.length - 1];
-        double slope = (lastValue - firstValue) / (data.length - 1);
+        double firstValue = data[from];
+        double lastValue = data[to - 1];
+        double slope = (lastValue - firstValue) / (to - from - 1);
         
         // 简单平滑，避免过大的趋势
         if (Math.abs(slope) > 0.5 * Math.abs(lastValue)) {
@@ -135,39 +149,33 @@ public class MovingAverageStrategy implements ForecastStrategy {
      * 通过时间序列交叉验证评估预测性能
      */
     private void evaluateUsingCV(double[] historicalData, int windowSize) {
-        double totalError = 0;
-        int count = 0;
-        for (int i = windowSize; i < historicalData.length; i++) {
-            double[] train = Arrays.copyOfRange(historicalData, 0, i);
-            double[] movingAvg = calculateMovingAverage(train, windowSize);
-            double predicted = movingAvg[movingAvg.length -1];
-            double actual = historicalData[i];
-            totalError += Math.abs(actual - predicted);
-            count++;
-        }
+        int count = Math.max(0, historicalData.length - windowSize);
         if (count > 0) {
-            double cvMae = totalError / count;
-            log.info("移动平均交叉验证MAE: {}", String.format("%.4f", cvMae));
+            double cvMae = cvAbsoluteErrorSum(historicalData, windowSize) / count;
+            log.debug("移动平均交叉验证MAE: {}", String.format("%.4f", cvMae));
         } else {
-            log.info("数据量不足以进行移动平均交叉验证 (窗口大小{})", windowSize);
+            log.debug("数据量不足以进行移动平均交叉验证 (窗口大小{})", windowSize);
         }
     }
 
     /**
-     * 计算简单移动平均
+     * 交叉验证绝对误差之和：对每个 i >= windowSize，用前 windowSize 个点的均值预测 data[i]
+     * 以滚动窗口求和，耗时 O(n)
      */
-    private double[] calculateMovingAverage(double[] data, int windowSize) {
-        if (data == null || data.length == 0) return new double[0];
-        if (windowSize <= 0) throw new IllegalArgumentException("无效窗口大小");
-
-        double[] result = new double[data.length];
-        double sum = 0;
-        for (int i = 0; i < data.length; i++) {
-            sum += data[i];
-            if (i >= windowSize) sum -= data[i - windowSize];
-            result[i] = sum / Math.min(i + 1, windowSize);
+    private double cvAbsoluteErrorSum(double[] data, int windowSize) {
+        if (data.length <= windowSize) {
+            return 0;
+        }
+        double windowSum = 0;
+        for (int i = 0; i < windowSize; i++) {
+            windowSum += data[i];
+        }
+        double totalError = 0;
+        for (int i = windowSize; i < data.length; i++) {
+            totalError += Math.abs(data[i] - windowSum / windowSize);
+            windowSum += data[i] - data[i - windowSize];
         }
-        return result;
+        return totalError;
     }
 
     @Override
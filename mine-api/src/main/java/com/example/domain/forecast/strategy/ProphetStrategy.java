@@ -1,20 +1,27 @@
 package com.example.domain.forecast.strategy;
 
+import com.example.domain.forecast.service.ForecastExecutor;
+import com.example.domain.forecast.service.ProphetCircuitBreaker;
 import com.example.exception.MyException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Prophet预测策略
@@ -37,10 +44,26 @@ public class ProphetStrategy implements ForecastStrategy {
     @Value("${forecast.prophet.high-accuracy:true}")
     private boolean defaultHighAccuracy;
     
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
     private final RestTemplate restTemplate;
+    private final ForecastExecutor forecastExecutor; // 限制 Prophet 并发请求数
+    private final ProphetCircuitBreaker circuitBreaker; // Prophet 服务熔断器
+
+    // 服务端是否支持批量预测接口，首次返回 404/405 后置为 false
+    @Value("${forecast.prophet.batch-enabled:true}")
+    private volatile boolean batchEndpointAvailable;
+
+    // 单次批量请求的最大序列数：读超时和慢调用阈值按单次请求计算，整批一次提交必然超时并触发熔断
+    @Value("${forecast.prophet.batch-size:20}")
+    private int batchSize;
     
-    public ProphetStrategy(RestTemplate restTemplate) {
+    public ProphetStrategy(@Qualifier("prophetRestTemplate") RestTemplate restTemplate,
+                           ForecastExecutor forecastExecutor,
+                           ProphetCircuitBreaker circuitBreaker) {
         this.restTemplate = restTemplate;
+        this.forecastExecutor = forecastExecutor;
+        this.circuitBreaker = circuitBreaker;
     }
     
     @Override
@@ -54,44 +77,14 @@ public class ProphetStrategy implements ForecastStrategy {
             
             // 1. 准备请求数据
             Map<String, Object> requestBody = new HashMap<>();
-            List<Map<String, Object>> dataPoints = new ArrayList<>();
-            
-            // 假设我们有日期信息，如果没有，需要从当前日期往前推算
-            LocalDate endDate = LocalDate.now().minusDays(1); // 假设最后一个数据点是昨天
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            
-            for (int i = 0; i < historicalData.length; i++) {
-                LocalDate date = endDate.minusDays(historicalData.length - 1 - i);
-                Map<String, Object> point = new HashMap<>();
-                point.put("date", date.format(formatter));
-                point.put("sales", historicalData[i]);
-                dataPoints.add(point);
-            }
-            
-            requestBody.put("historical_data", dataPoints);
+            requestBody.put("historical_data", toDataPoints(historicalData));
             requestBody.put("forecast_days", forecastDays);
             
             // 启用高精度模式
             requestBody.put("accuracy_mode", defaultHighAccuracy);
             
             // 2. 设置Prophet参数（可选）
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("changepoint_prior_scale", 0.05);
-            parameters.put("seasonality_mode", "multiplicative");
-            parameters.put("add_weekly_seasonality", true);
-            parameters.put("add_holidays", true);
-            
-            // 启用高精度模式
-            parameters.put("high_accuracy", defaultHighAccuracy);
-            
-            // 添加更多参数
-            if (defaultHighAccuracy) {
-                // 高精度模式下，使用更多的变化点和MCMC采样
-                parameters.put("mcmc_samples", 100);  // 启用MCMC采样
-                parameters.put("uncertainty_samples", 2000);  // 增加样本数量
-            }
-            
-            requestBody.put("parameters", parameters);
+            requestBody.put("parameters", buildParameters());
             
             // 3. 发送请求
             HttpHeaders headers = new HttpHeaders();
@@ -104,12 +97,7 @@ public class ProphetStrategy implements ForecastStrategy {
                     forecastDays,
                     defaultHighAccuracy);
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restTemplate.postForObject(
-                    prophetApiUrl + "/api/forecast", 
-                    request, 
-                    Map.class
-            );
+            Map<String, Object> response = post("/api/forecast", request);
             
             // 4. 处理响应
             if (response == null) {
@@ -122,11 +110,7 @@ public class ProphetStrategy implements ForecastStrategy {
                 throw new MyException("Prophet API返回的预测结果为空");
             }
             
-            double[] result = new double[forecastDays];
-            
-            for (int i = 0; i < forecastResults.size() && i < forecastDays; i++) {
-                result[i] = ((Number) forecastResults.get(i).get("sales")).doubleValue();
-            }
+            double[] result = parseForecast(forecastResults, forecastDays);
             
             // 5. 记录预测指标（如果有）
             if (response.containsKey("model_metrics")) {
@@ -154,6 +138,216 @@ public class ProphetStrategy implements ForecastStrategy {
         }
     }
     
+    /**
+     * 批量预测：按 batchSize 把序列分成若干批，每批一次 HTTP 请求提交到 Prophet 服务的 /api/forecast/batch。
+     * 各批在虚拟线程上并发提交，并发数受 Prophet 许可限制；某一批失败时只有该批的结果为 null。
+     * <p>
+     * 请求体：{"series": [{"id": 下标, "historical_data": [...]}], "forecast_days", "accuracy_mode", "parameters"}；
+     * 响应体：{"results": [{"id": 下标, "forecast": [{"sales": ...}]}]}。
+     * 若服务端尚未提供批量接口（404/405），记录后回退为逐条调用，之后不再尝试批量接口。
+     */
+    @Override
+    public double[][] forecastBatch(double[][] series, int forecastDays) throws MyException {
+        if (!batchEndpointAvailable || series.length <= 1) {
+            return forecastEach(series, forecastDays);
+        }
+        if (series.length <= batchSize) {
+            return forecastChunk(series, forecastDays);
+        }
+        List<CompletableFuture<double[][]>> futures = new ArrayList<>();
+        for (int from = 0; from < series.length; from += batchSize) {
+            double[][] chunk = Arrays.copyOfRange(series, from, Math.min(from + batchSize, series.length));
+            int first = from;
+            futures.add(forecastExecutor.submit(() -> {
+                try {
+                    return forecastChunk(chunk, forecastDays);
+                } catch (Exception e) {
+                    log.warn("Prophet批量预测第 {} 至 {} 条序列失败: {}", first, first + chunk.length - 1, e.getMessage());
+                    return new double[chunk.length][];
+                }
+            }));
+        }
+        double[][] results = new double[series.length][];
+        for (int i = 0; i < futures.size(); i++) {
+            double[][] chunkResults = futures.get(i).join();
+            System.arraycopy(chunkResults, 0, results, i * batchSize, chunkResults.length);
+        }
+        return results;
+    }
+
+    /**
+     * 一次请求批量预测一批序列
+     */
+    private double[][] forecastChunk(double[][] series, int forecastDays) throws MyException {
+        if (!batchEndpointAvailable) {
+            return forecastEach(series, forecastDays); // 其他批已发现服务端不支持批量接口
+        }
+        try {
+            List<Map<String, Object>> items = new ArrayList<>(series.length);
+            for (int i = 0; i < series.length; i++) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", i);
+                item.put("historical_data", toDataPoints(series[i]));
+                items.add(item);
+            }
+
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("series", items);
+            requestBody.put("forecast_days", forecastDays);
+            requestBody.put("accuracy_mode", defaultHighAccuracy);
+            requestBody.put("parameters", buildParameters());
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+
+            log.info("发送批量预测请求到Prophet服务: {}, 序列数: {}, 预测天数: {}",
+                    prophetApiUrl + "/api/forecast/batch", series.length, forecastDays);
+
+            Map<String, Object> response = post("/api/forecast/batch", request);
+            if (response == null) {
+                throw new MyException("Prophet API返回空响应");
+            }
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
+            if (results == null) {
+                throw new MyException("Prophet API返回的批量预测结果为空");
+            }
+
+            double[][] forecasts = new double[series.length][];
+            for (Map<String, Object> item : results) {
+                int id = ((Number) item.get("id")).intValue();
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> forecastResults = (List<Map<String, Object>>) item.get("forecast");
+                if (id >= 0 && id < series.length && forecastResults != null && !forecastResults.isEmpty()) {
+                    forecasts[id] = parseForecast(forecastResults, forecastDays);
+                }
+            }
+            log.info("Prophet批量预测完成，序列数: {}, 成功: {}", series.length,
+                    Arrays.stream(forecasts).filter(Objects::nonNull).count());
+            return forecasts;
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            batchEndpointAvailable = false;
+            log.warn("Prophet服务不支持批量预测接口，回退为逐条预测: {}", e.getMessage());
+            return forecastEach(series, forecastDays);
+        } catch (MyException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Prophet批量预测失败: {}", e.getMessage(), e);
+            throw new MyException("Prophet批量预测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 熔断打开期间不参与策略选择，由预测服务改用下一个可用策略
+     */
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isAvailable();
+    }
+
+    /**
+     * 在熔断器和并发许可的保护下向 Prophet 服务发送请求
+     * 收到 4xx 响应说明服务本身可用，不计入熔断失败
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> post(String path, HttpEntity<Map<String, Object>> request) throws Exception {
+        ProphetCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == ProphetCircuitBreaker.Permit.REJECTED) {
+            throw new MyException("Prophet服务熔断中，暂不调用");
+        }
+        return forecastExecutor.callProphet(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                Map<String, Object> response = restTemplate.postForObject(prophetApiUrl + path, request, Map.class);
+                circuitBreaker.onSuccess(permit, System.currentTimeMillis() - start);
+                return response;
+            } catch (HttpClientErrorException e) {
+                circuitBreaker.onSuccess(permit, System.currentTimeMillis() - start);
+                throw e;
+            } catch (Exception e) {
+                circuitBreaker.onFailure(permit);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * 逐条预测：每条序列在独立的虚拟线程上调用单条接口，并发数受 Prophet 许可限制
+     */
+    private double[][] forecastEach(double[][] series, int forecastDays) {
+        List<CompletableFuture<double[]>> futures = new ArrayList<>(series.length);
+        for (double[] data : series) {
+            futures.add(forecastExecutor.submit(() -> {
+                try {
+                    return forecast(data, forecastDays);
+                } catch (Exception e) {
+                    log.warn("Prophet单条预测失败: {}", e.getMessage());
+                    return null;
+                }
+            }));
+        }
+        double[][] results = new double[series.length][];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = futures.get(i).join();
+        }
+        return results;
+    }
+
+    /**
+     * 将日数据转换为 Prophet 请求的数据点，最后一个数据点对应昨天
+     */
+    private List<Map<String, Object>> toDataPoints(double[] historicalData) {
+        List<Map<String, Object>> dataPoints = new ArrayList<>(historicalData.length);
+        
+        // 假设我们有日期信息，如果没有，需要从当前日期往前推算
+        LocalDate endDate = LocalDate.now().minusDays(1); // 假设最后一个数据点是昨天
+        
+        for (int i = 0; i < historicalData.length; i++) {
+            LocalDate date = endDate.minusDays(historicalData.length - 1 - i);
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", date.format(DATE_FORMATTER));
+            point.put("sales", historicalData[i]);
+            dataPoints.add(point);
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Prophet 模型参数
+     */
+    private Map<String, Object> buildParameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("changepoint_prior_scale", 0.05);
+        parameters.put("seasonality_mode", "multiplicative");
+        parameters.put("add_weekly_seasonality", true);
+        parameters.put("add_holidays", true);
+        
+        // 启用高精度模式
+        parameters.put("high_accuracy", defaultHighAccuracy);
+        
+        // 添加更多参数
+        if (defaultHighAccuracy) {
+            // 高精度模式下，使用更多的变化点和MCMC采样
+            parameters.put("mcmc_samples", 100);  // 启用MCMC采样
+            parameters.put("uncertainty_samples", 2000);  // 增加样本数量
+        }
+        return parameters;
+    }
+
+    /**
+     * 解析预测结果中的每日销量
+     */
+    private double[] parseForecast(List<Map<String, Object>> forecastResults, int forecastDays) {
+        double[] result = new double[forecastDays];
+        
+        for (int i = 0; i < forecastResults.size() && i < forecastDays; i++) {
+            result[i] = ((Number) forecastResults.get(i).get("sales")).doubleValue();
+        }
+        return result;
+    }
+
     @Override
     public boolean canHandle(int rawDataLength) { // 参数名修改为 rawDataLength
         // 比较的是 原始日数据长度 >= Prophet要求的最小日数据长度
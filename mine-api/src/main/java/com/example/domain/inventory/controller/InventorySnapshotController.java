@@ -0,0 +1,69 @@
+package com.example.domain.inventory.controller;
+
+import com.example.domain.inventory.dto.DailyStockDTO;
+import com.example.domain.inventory.dto.PointInTimeStockDTO;
+import com.example.domain.inventory.service.InventorySnapshotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 库存快照控制器
+ * 处理历史库存查询和库存快照生成相关的HTTP请求
+ */
+@RestController
+@RequestMapping("/inventory/snapshot")
+@Tag(name = "inventory-snapshot", description = "库存快照与历史库存接口")
+public class InventorySnapshotController {
+
+    @Autowired
+    private InventorySnapshotService snapshotService;
+
+    /**
+     * 查询商品在某日结束时的库存
+     *
+     * @param productId 商品ID
+     * @param date      日期
+     * @return 该日结束时的库存
+     */
+    @Operation(summary = "查询历史库存", description = "按快照和之后的库存流水计算商品在指定日期结束时的库存")
+    @GetMapping("/product/{productId}/stock")
+    public PointInTimeStockDTO getStockAt(@PathVariable Integer productId, @RequestParam LocalDate date) {
+        return snapshotService.getStockAt(productId, date);
+    }
+
+    /**
+     * 查询商品在日期范围内的每日库存
+     *
+     * @param productId 商品ID
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 每日库存
+     */
+    @Operation(summary = "查询库存走势", description = "商品在日期范围内每日结束时的总库存")
+    @GetMapping("/product/{productId}/series")
+    public List<DailyStockDTO> getStockSeries(
+        @PathVariable Integer productId,
+        @RequestParam LocalDate startDate,
+        @RequestParam LocalDate endDate
+    ) {
+        return snapshotService.getStockSeries(productId, startDate, endDate);
+    }
+
+    /**
+     * 补生成日期范围内的库存快照
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 生成的天数
+     */
+    @Operation(summary = "补生成库存快照", description = "为已经结束的日期重新生成库存快照")
+    @PostMapping("/backfill")
+    public int backfill(@RequestParam LocalDate startDate, @RequestParam LocalDate endDate) {
+        return snapshotService.backfill(startDate, endDate);
+    }
+}
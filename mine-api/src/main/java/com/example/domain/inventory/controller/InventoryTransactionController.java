@@ -1,8 +1,11 @@
 package com.example.domain.inventory.controller;
 
+import com.example.domain.inventory.dto.LedgerEntryDTO;
+import com.example.domain.inventory.dto.LedgerPageRequest;
 import com.example.domain.inventory.dto.OperationType;
 import com.example.domain.inventory.entity.InventoryTransaction;
 import com.example.domain.inventory.service.InventoryTransactionService;
+import com.example.domain.order.dto.PageResponse;
 import com.example.query.InventoryTransactionQuery;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -10,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +28,9 @@ import java.util.Set;
 @Tag(name = "inventory-transaction", description = "库存变动记录接口")
 public class InventoryTransactionController {
 
+    private static final int DEFAULT_LEDGER_PAGE_SIZE = 20;
+    private static final int MAX_LEDGER_PAGE_SIZE = 200; // 每页流水条数上限
+
     @Autowired
     private InventoryTransactionService transactionService;
 
@@ -43,6 +50,28 @@ public class InventoryTransactionController {
         return transactionService.findList(query);
     }
 
+    /**
+     * 游标分页浏览库存流水
+     * 每页条数为空时取默认值，超出范围时限制在 1 到 {@value #MAX_LEDGER_PAGE_SIZE} 之间
+     *
+     * @param request 查询条件和游标
+     * @return 流水列表项及下一页游标
+     */
+    @Operation(summary = "分页浏览库存流水", description = "按变动时间倒序游标分页，返回时间、类型、数量、批次号和单据ID")
+    @PostMapping("/ledger")
+    public PageResponse<LedgerEntryDTO> getLedger(@RequestBody LedgerPageRequest request) {
+        InventoryTransactionQuery query = InventoryTransactionQuery.builder()
+                                                                   .productId(request.getProductId())
+                                                                   .batchId(request.getBatchId())
+                                                                   .operationType(request.getOperationType())
+                                                                   .startTime(request.getStartTime())
+                                                                   .endTime(request.getEndTime())
+                                                                   .build();
+        int size = request.getSize() != null ? request.getSize() : DEFAULT_LEDGER_PAGE_SIZE;
+        size = Math.max(1, Math.min(size, MAX_LEDGER_PAGE_SIZE));
+        return PageResponse.fromSlice(transactionService.findLedgerPage(query, request.getCursor(), size));
+    }
+
     /**
      * 查询商品的库存变动历史
      *
@@ -91,6 +120,18 @@ public class InventoryTransactionController {
         return transactionService.getTransactionSummary(productId, startTime, endTime);
     }
 
+    /**
+     * 从库存流水重建每日计数
+     *
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     */
+    @Operation(summary = "重建库存流水每日计数", description = "按日期范围从库存流水重新生成每日计数，用于首次上线回填")
+    @PostMapping("/counter/rebuild")
+    public void rebuildDailyCounters(@RequestParam LocalDate startDate, @RequestParam LocalDate endDate) {
+        transactionService.rebuildDailyCounters(startDate, endDate);
+    }
+
     /**
      * 获取商品最近的库存变动记录
      *
@@ -0,0 +1,25 @@
+package com.example.domain.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 商品每日结束时的总库存（库存走势图数据点）
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyStockDTO {
+    /**
+     * 日期
+     */
+    private LocalDate date;
+
+    /**
+     * 总库存
+     */
+    private Integer quantity;
+}
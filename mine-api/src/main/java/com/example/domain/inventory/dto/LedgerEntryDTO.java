@@ -0,0 +1,42 @@
+package com.example.domain.inventory.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水列表项
+ * 由查询直接投影生成，不加载商品、批次、单据等关联实体
+ */
+@Data
+public class LedgerEntryDTO {
+    /**
+     * 流水ID
+     */
+    private Integer id;
+
+    /**
+     * 变动时间
+     */
+    private LocalDateTime transactionTime;
+
+    /**
+     * 操作类型
+     */
+    private OperationType operationType;
+
+    /**
+     * 变动数量（出库为负数）
+     */
+    private Integer quantity;
+
+    /**
+     * 批次号，非批次商品为空
+     */
+    private String batchNumber;
+
+    /**
+     * 关联单据ID（销售订单、采购订单或退货单，按操作类型区分）
+     */
+    private Integer documentId;
+}
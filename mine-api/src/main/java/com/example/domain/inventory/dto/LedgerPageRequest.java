@@ -0,0 +1,23 @@
+package com.example.domain.inventory.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水游标分页请求
+ */
+@Data
+public class LedgerPageRequest {
+
+    private Integer productId;
+    private Integer batchId;
+    private OperationType operationType;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    private Integer size = 20; // 为空时取默认值，超过上限时按上限查询
+
+    // 游标分页：上一页返回的 nextCursor，为空时查询第一页
+    private String cursor;
+}
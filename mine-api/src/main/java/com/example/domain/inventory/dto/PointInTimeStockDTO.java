@@ -0,0 +1,54 @@
+package com.example.domain.inventory.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品在某日结束时的库存
+ */
+@Data
+public class PointInTimeStockDTO {
+    /**
+     * 商品ID
+     */
+    private Integer productId;
+
+    /**
+     * 日期
+     */
+    private LocalDate date;
+
+    /**
+     * 总库存
+     */
+    private Integer totalQuantity;
+
+    /**
+     * 计算所用的快照日期，没有可用快照时为空（由当前库存倒推）
+     */
+    private LocalDate snapshotDate;
+
+    /**
+     * 批次库存列表（仅批次商品）
+     */
+    private List<BatchQuantity> batches = new ArrayList<>();
+
+    /**
+     * 批次库存
+     */
+    @Data
+    public static class BatchQuantity {
+        /**
+         * 批次ID
+         */
+        private Integer batchId;
+
+        /**
+         * 库存数量
+         */
+        private Integer quantity;
+    }
+}
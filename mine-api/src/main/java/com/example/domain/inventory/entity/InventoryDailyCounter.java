@@ -0,0 +1,65 @@
+package com.example.domain.inventory.entity;
+
+import com.example.domain.inventory.dto.OperationType;
+import com.example.domain.product.entity.Product;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 库存流水每日计数实体类
+ * 按 (商品, 日期, 操作类型) 累计的流水数量和笔数，写入库存流水时同步累加
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_daily_counter", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"product_id", "stat_date", "operation_type"})
+       })
+public class InventoryDailyCounter {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    private Product product;
+
+    /**
+     * 日期
+     */
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    /**
+     * 操作类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false)
+    private OperationType operationType;
+
+    /**
+     * 数量合计（出库为负数）
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    /**
+     * 流水笔数
+     */
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount = 0;
+}
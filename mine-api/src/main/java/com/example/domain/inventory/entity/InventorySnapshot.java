@@ -0,0 +1,58 @@
+package com.example.domain.inventory.entity;
+
+import com.example.domain.product.entity.Product;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 库存日快照实体类
+ * 每个库存记录（商品 + 批次）在某日结束时的库存数量，由 InventorySnapshotService 每日生成，
+ * 用于按“快照 + 之后的库存流水”计算任意日期的库存
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_snapshot", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"snapshot_date", "product_id", "batch_id"})
+       })
+public class InventorySnapshot {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 快照日期（当日结束时的库存）
+     */
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    /**
+     * 商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    private Product product;
+
+    /**
+     * 批次ID，非批次库存为0（便于唯一约束）
+     */
+    @Column(name = "batch_id", nullable = false)
+    private Integer batchId = 0;
+
+    /**
+     * 库存数量
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+}
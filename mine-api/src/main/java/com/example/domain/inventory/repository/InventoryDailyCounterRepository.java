@@ -0,0 +1,37 @@
+package com.example.domain.inventory.repository;
+
+import com.example.domain.inventory.entity.InventoryDailyCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水每日计数 数据访问仓库
+ */
+public interface InventoryDailyCounterRepository extends JpaRepository<InventoryDailyCounter, Integer> {
+
+    /**
+     * 删除日期范围内的计数（重建前调用）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM inventory_daily_counter WHERE stat_date BETWEEN :startDate AND :endDate", nativeQuery = true)
+    int deleteByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * 从库存流水重新汇总时间范围内的计数
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO inventory_daily_counter (product_id, stat_date, operation_type, quantity, transaction_count)
+        SELECT product_id, DATE(transaction_time), operation_type, SUM(quantity), COUNT(*)
+        FROM inventory_transactions
+        WHERE transaction_time >= :startTime AND transaction_time < :endTime
+        GROUP BY product_id, DATE(transaction_time), operation_type
+        """, nativeQuery = true)
+    int rebuildFromTransactions(@Param("startTime") LocalDateTime startTime,
+                                @Param("endTime") LocalDateTime endTime);
+}
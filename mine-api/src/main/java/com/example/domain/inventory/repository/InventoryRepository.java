@@ -2,6 +2,9 @@ package com.example.domain.inventory.repository;
 
 import com.example.domain.inventory.entity.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -20,5 +23,59 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
      */
     Optional<Inventory> findByProductIdAndBatchIdIsNull(Integer productId);
 
+    /**
+     * 扣减批次库存，库存不足时不修改
+     *
+     * @return 受影响行数，0 表示记录不存在或库存不足
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE inventory SET quantity = quantity - :quantity
+        WHERE product_id = :productId AND batch_id = :batchId AND quantity >= :quantity
+        """, nativeQuery = true)
+    int decreaseBatchStock(@Param("productId") Integer productId,
+                           @Param("batchId") Integer batchId,
+                           @Param("quantity") int quantity);
+
+    /**
+     * 扣减非批次库存，库存不足时不修改
+     *
+     * @return 受影响行数，0 表示记录不存在或库存不足
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE inventory SET quantity = quantity - :quantity
+        WHERE product_id = :productId AND batch_id IS NULL AND quantity >= :quantity
+        """, nativeQuery = true)
+    int decreaseStock(@Param("productId") Integer productId,
+                      @Param("quantity") int quantity);
+
+    /**
+     * 增加批次库存
+     *
+     * @return 受影响行数，0 表示记录不存在
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE inventory SET quantity = quantity + :quantity
+        WHERE product_id = :productId AND batch_id = :batchId
+        """, nativeQuery = true)
+    int increaseBatchStock(@Param("productId") Integer productId,
+                           @Param("batchId") Integer batchId,
+                           @Param("quantity") int quantity);
+
+    /**
+     * 增加非批次库存
+     *
+     * @return 受影响行数，0 表示记录不存在
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE inventory SET quantity = quantity + :quantity
+        WHERE product_id = :productId AND batch_id IS NULL
+        """, nativeQuery = true)
+    int increaseStock(@Param("productId") Integer productId,
+                      @Param("quantity") int quantity);
+
 
-}
\ No newline at end of file
+}
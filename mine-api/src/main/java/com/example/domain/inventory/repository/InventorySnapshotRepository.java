@@ -0,0 +1,53 @@
+package com.example.domain.inventory.repository;
+
+import com.example.domain.inventory.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 库存日快照 数据访问仓库
+ */
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Integer> {
+
+    /**
+     * 删除某日的快照（重新生成前调用）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM inventory_snapshot WHERE snapshot_date = :snapshotDate", nativeQuery = true)
+    int deleteByDate(@Param("snapshotDate") LocalDate snapshotDate);
+
+    /**
+     * 由当前库存倒推某日结束时的库存并写入快照：
+     * 当前数量减去该日结束之后的库存流水，非批次库存的批次ID记为0
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO inventory_snapshot (snapshot_date, product_id, batch_id, quantity)
+        SELECT :snapshotDate, i.product_id, COALESCE(i.batch_id, 0), i.quantity - COALESCE(t.quantity, 0)
+        FROM inventory i
+        LEFT JOIN (SELECT product_id, COALESCE(batch_id, 0) AS batch_id, SUM(quantity) AS quantity
+                   FROM inventory_transactions
+                   WHERE transaction_time >= :dayEnd
+                   GROUP BY product_id, COALESCE(batch_id, 0)) t
+            ON t.product_id = i.product_id AND t.batch_id = COALESCE(i.batch_id, 0)
+        """, nativeQuery = true)
+    int snapshotFromInventory(@Param("snapshotDate") LocalDate snapshotDate,
+                              @Param("dayEnd") LocalDateTime dayEnd);
+
+    /**
+     * 不晚于指定日期的最近一个快照日期
+     */
+    @Query(value = "SELECT MAX(snapshot_date) FROM inventory_snapshot WHERE snapshot_date <= :date", nativeQuery = true)
+    LocalDate findLatestDateOnOrBefore(@Param("date") LocalDate date);
+
+    /**
+     * 查询商品在某日的快照
+     */
+    List<InventorySnapshot> findBySnapshotDateAndProductId(LocalDate snapshotDate, Integer productId);
+}
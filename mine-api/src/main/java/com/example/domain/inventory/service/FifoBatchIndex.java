@@ -0,0 +1,391 @@
+package com.example.domain.inventory.service;
+
+import com.example.domain.batch.entity.QBatch;
+import com.example.domain.inventory.entity.QInventory;
+import com.example.domain.product.entity.Product;
+import com.example.exception.MyException;
+import com.example.utils.TransactionUtils;
+import com.example.utils.VersionedLoader;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按商品索引的FIFO批次库存
+ * <p>
+ * 商品ID -> 该商品全部批次库存，按生产日期、批次ID升序排列（即FIFO出库顺序）。
+ * 启动时一次查询加载，订单按FIFO分配批次时直接在内存中从头遍历，不再查询批次。
+ * <ul>
+ *     <li>订单分配的数量在事务内立即预留（从索引中扣除），并发订单不会重复分配同一批库存；
+ *     事务回滚时归还预留</li>
+ *     <li>入库、单独出库、删除等其他库存变化在事务提交后写入；直接设置库存数量时改为提交后重新加载该商品，
+ *     避免设置的绝对值与并发的增量乱序写入</li>
+ *     <li>从数据库重新加载的是已提交的数量，不包含未结束事务的预留，因此商品有未结束的预留时不重新加载，
+ *     而是先移出索引（该商品下单改为查询数据库），待预留全部结束后再加载</li>
+ * </ul>
+ * 数据库仍以带条件的 UPDATE 做最终校验，索引只决定分配哪些批次。
+ * 每个商品的批次数组不可变，修改时整体替换，读取无需加锁；写入串行执行。
+ */
+@Slf4j
+@Component
+public class FifoBatchIndex {
+
+    private static final Comparator<Entry> FIFO_ORDER = Comparator
+            .comparing(Entry::productionDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Entry::batchId);
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    private final Map<Integer, Entry[]> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 商品ID -> 未结束（事务未提交或回滚）的预留数，与 staleProducts 一起由 this 锁保护
+     */
+    private final Map<Integer, Integer> pendingReservations = new HashMap<>();
+
+    /**
+     * 因有未结束的预留而推迟重新加载的商品
+     */
+    private final Set<Integer> staleProducts = new HashSet<>();
+
+    private final VersionedLoader loader = new VersionedLoader(this);
+
+    private volatile boolean loaded;
+
+    /**
+     * 批次库存
+     *
+     * @param inventoryId    库存记录ID
+     * @param batchId        批次ID
+     * @param batchNumber    批次号
+     * @param productionDate 生产日期
+     * @param quantity       可用数量（已扣除未提交订单的预留）
+     */
+    public record Entry(int inventoryId, int batchId, String batchNumber, LocalDate productionDate, int quantity) {
+
+        Entry withQuantity(int newQuantity) {
+            return new Entry(inventoryId, batchId, batchNumber, productionDate, newQuantity);
+        }
+    }
+
+    /**
+     * 应用启动后加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        load(null, null);
+    }
+
+    /**
+     * 索引是否可用于该商品的分配；未加载完成时返回 false，调用方改为查询数据库
+     *
+     * @param productId 商品ID
+     */
+    public boolean contains(Integer productId) {
+        return loaded && entries.containsKey(productId);
+    }
+
+    /**
+     * 按FIFO原则分配批次并在当前事务内预留，事务回滚时归还
+     *
+     * @param product  批次商品
+     * @param quantity 需要的数量
+     * @return 分配的批次及数量（Entry.quantity 为分配数量）；商品已不在索引中时返回 null，调用方改为查询数据库
+     */
+    public List<Entry> allocate(Product product, int quantity) {
+        Integer productId = product.getId();
+        List<Entry> allocations = new ArrayList<>();
+        synchronized (this) {
+            Entry[] current = loaded ? entries.get(productId) : null;
+            if (current == null) {
+                return null; // 已被移出索引（如推迟的重新加载），不能当作库存为0
+            }
+            Entry[] updated = current.clone();
+            int remainingQuantity = quantity;
+            for (int i = 0; i < updated.length && remainingQuantity > 0; i++) {
+                if (updated[i].quantity() <= 0) {
+                    continue;
+                }
+                int allocateQuantity = Math.min(remainingQuantity, updated[i].quantity());
+                allocations.add(updated[i].withQuantity(allocateQuantity));
+                updated[i] = updated[i].withQuantity(updated[i].quantity() - allocateQuantity);
+                remainingQuantity -= allocateQuantity;
+            }
+            if (remainingQuantity > 0) {
+                throw new MyException("商品库存不足: " + product.getName() + ", 缺少: " + remainingQuantity);
+            }
+            loader.bump();
+            entries.put(productId, updated);
+            pendingReservations.merge(productId, 1, Integer::sum);
+        }
+        finishOnCompletion(productId, allocations);
+        return allocations;
+    }
+
+    /**
+     * 从指定批次出库并在当前事务内预留，事务回滚时归还
+     *
+     * @param product     商品
+     * @param batchId     批次ID
+     * @param batchNumber 批次编号，用于错误提示
+     * @param quantity    出库数量
+     * @return 出库的批次（Entry.quantity 为出库数量）；商品已不在索引中时返回 null，调用方改为查询数据库
+     */
+    public Entry reserve(Product product, Integer batchId, String batchNumber, int quantity) {
+        Integer productId = product.getId();
+        Entry reserved;
+        synchronized (this) {
+            Entry[] current = loaded ? entries.get(productId) : null;
+            if (current == null) {
+                return null;
+            }
+            int index = indexOf(current, batchId);
+            if (index < 0) {
+                throw new MyException(String.format("找不到库存记录: 商品[%s], 批次[%s]", product.getName(), batchNumber));
+            }
+            Entry entry = current[index];
+            if (entry.quantity() < quantity) {
+                throw new MyException(String.format("批次商品库存不足: 商品[%s], 批次[%s], 当前库存[%d], 需要数量[%d]", product.getName(), entry.batchNumber(), entry.quantity(), quantity));
+            }
+            Entry[] updated = current.clone();
+            updated[index] = entry.withQuantity(entry.quantity() - quantity);
+            loader.bump();
+            entries.put(productId, updated);
+            pendingReservations.merge(productId, 1, Integer::sum);
+            reserved = entry.withQuantity(quantity);
+        }
+        finishOnCompletion(productId, List.of(reserved));
+        return reserved;
+    }
+
+    /**
+     * 事务提交后累加批次库存；索引中没有该批次时重新加载该商品
+     *
+     * @param productId 商品ID
+     * @param batchId   批次ID
+     * @param delta     变化数量，出库为负数
+     */
+    public void addAfterCommit(Integer productId, Integer batchId, int delta) {
+        TransactionUtils.afterCommit(() -> {
+            if (!add(productId, batchId, delta)) {
+                reload(productId);
+            }
+        });
+    }
+
+    /**
+     * 事务提交后移除批次库存
+     *
+     * @param productId 商品ID
+     * @param batchId   批次ID
+     */
+    public void removeAfterCommit(Integer productId, Integer batchId) {
+        TransactionUtils.afterCommit(() -> remove(productId, batchId));
+    }
+
+    /**
+     * 事务提交后从数据库重新加载单个商品（新建了批次库存记录、直接设置了库存数量等情况）
+     *
+     * @param productId 商品ID
+     */
+    public void reloadAfterCommit(Integer productId) {
+        TransactionUtils.afterCommit(() -> reload(productId));
+    }
+
+    /**
+     * 立即将商品移出索引并重新加载（有未结束的预留时推迟到预留全部结束后）
+     * 用于索引与数据库不一致的情况，例如从索引分配的批次在数据库中扣减失败
+     *
+     * @param productId 商品ID
+     */
+    public void invalidate(Integer productId) {
+        synchronized (this) {
+            loader.bump();
+            entries.remove(productId);
+        }
+        reload(productId);
+    }
+
+    /**
+     * 事务结束后结束预留：回滚时归还预留数量；商品的预留全部结束且期间有推迟的重新加载时执行加载
+     */
+    private void finishOnCompletion(Integer productId, List<Entry> allocations) {
+        TransactionUtils.afterCompletion(committed -> {
+            boolean reload;
+            synchronized (this) {
+                if (!committed) {
+                    for (Entry allocation : allocations) {
+                        add(productId, allocation.batchId(), allocation.quantity());
+                    }
+                }
+                loader.bump();
+                int remaining = pendingReservations.merge(productId, -1, Integer::sum);
+                if (remaining > 0) {
+                    return;
+                }
+                pendingReservations.remove(productId);
+                reload = staleProducts.remove(productId);
+            }
+            if (reload) {
+                load(QInventory.inventory.product.id.eq(productId), productId);
+            }
+        });
+    }
+
+    /**
+     * 重新加载单个商品；有未结束的预留时先移出索引，推迟到预留全部结束后加载
+     */
+    private void reload(Integer productId) {
+        synchronized (this) {
+            if (deferReload(productId)) {
+                return;
+            }
+        }
+        load(QInventory.inventory.product.id.eq(productId), productId);
+    }
+
+    /**
+     * 商品有未结束的预留时移出索引并标记推迟加载，调用方必须持有 this 锁
+     *
+     * @return 是否已推迟
+     */
+    private boolean deferReload(Integer productId) {
+        if (!pendingReservations.containsKey(productId)) {
+            return false;
+        }
+        loader.bump();
+        entries.remove(productId);
+        staleProducts.add(productId);
+        return true;
+    }
+
+    /**
+     * @return 索引中是否有该批次（未加载时视为已处理）
+     */
+    private synchronized boolean add(Integer productId, Integer batchId, int delta) {
+        loader.bump();
+        if (!loaded) {
+            return true; // 尚未加载，之后的加载会读到已提交的数据
+        }
+        Entry[] current = entries.get(productId);
+        int index = current != null ? indexOf(current, batchId) : -1;
+        if (index < 0) {
+            return false;
+        }
+        Entry[] updated = current.clone();
+        updated[index] = current[index].withQuantity(current[index].quantity() + delta);
+        entries.put(productId, updated);
+        return true;
+    }
+
+    private synchronized void remove(Integer productId, Integer batchId) {
+        loader.bump();
+        Entry[] current = entries.get(productId);
+        if (!loaded || current == null || indexOf(current, batchId) < 0) {
+            return;
+        }
+        Entry[] updated = Arrays.stream(current)
+                                .filter(entry -> entry.batchId() != batchId)
+                                .toArray(Entry[]::new);
+        if (updated.length == 0) {
+            entries.remove(productId);
+        } else {
+            entries.put(productId, updated);
+        }
+    }
+
+    /**
+     * 加载批次库存并写入索引
+     *
+     * @param where     查询条件，为空时加载全部
+     * @param productId 单个商品重新加载时的商品ID，为空时替换整个索引
+     */
+    private void load(Predicate where, Integer productId) {
+        boolean done = loader.load(
+                () -> productId != null && !loaded, // 全量加载会包含该商品
+                () -> query(where),
+                result -> {
+                    if (productId != null && deferReload(productId)) {
+                        return; // 商品有未结束的预留，已加载的数量不含预留，推迟到预留结束后加载
+                    }
+                    if (productId != null) {
+                        Entry[] productEntries = result.get(productId);
+                        if (productEntries == null) {
+                            entries.remove(productId);
+                        } else {
+                            entries.put(productId, productEntries);
+                        }
+                    } else {
+                        entries.putAll(result);
+                        entries.keySet().retainAll(result.keySet());
+                        loaded = true;
+                        log.info("已加载 {} 个商品的FIFO批次索引", result.size());
+                    }
+                },
+                // 单个商品加载失败则移出索引，该商品下单时改为查询数据库，下次写入时再次加载
+                result -> {
+                    if (productId != null) {
+                        entries.remove(productId);
+                    }
+                });
+        if (!done) {
+            // 写入过于频繁时放弃本次加载
+            log.warn("FIFO批次索引加载期间持续有写入，商品[{}]暂不使用索引", productId != null ? productId : "全部");
+        }
+    }
+
+    private Map<Integer, Entry[]> query(Predicate where) {
+        QInventory qInventory = QInventory.inventory;
+        QBatch qBatch = QBatch.batch;
+        List<Tuple> rows = queryFactory
+                .select(qInventory.product.id, qInventory.id, qInventory.quantity, qBatch.id, qBatch.batchNumber,
+                        qBatch.productionDate)
+                .from(qInventory)
+                .join(qInventory.batch, qBatch)
+                .where(where)
+                .fetch();
+
+        Map<Integer, List<Entry>> grouped = new HashMap<>();
+        for (Tuple row : rows) {
+            grouped.computeIfAbsent(row.get(qInventory.product.id), id -> new ArrayList<>())
+                   .add(new Entry(row.get(qInventory.id), row.get(qBatch.id), row.get(qBatch.batchNumber),
+                                  row.get(qBatch.productionDate), row.get(qInventory.quantity)));
+        }
+        Map<Integer, Entry[]> result = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((id, list) -> {
+            Entry[] sorted = list.toArray(new Entry[0]);
+            Arrays.sort(sorted, FIFO_ORDER);
+            result.put(id, sorted);
+        });
+        return result;
+    }
+
+    private static int indexOf(Entry[] entries, Integer batchId) {
+        if (batchId == null) {
+            return -1;
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].batchId() == batchId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
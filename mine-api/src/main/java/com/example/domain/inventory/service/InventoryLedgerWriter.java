@@ -0,0 +1,159 @@
+package com.example.domain.inventory.service;
+
+import com.example.domain.inventory.dto.OperationType;
+import com.example.domain.inventory.entity.InventoryTransaction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存流水批量写入器
+ * <p>
+ * 同一事务内记录的库存流水先缓存在事务资源中，在事务提交前（beforeCommit）以一次 JDBC 批量 INSERT 写入，
+ * 不再逐条经 JPA 保存；事务回滚时缓存直接丢弃。没有活动事务时立即写入。
+ * 写入流水的同时按 (商品, 日期, 操作类型) 合并后累加 inventory_daily_counter 计数，供流水汇总查询使用。
+ * 注意：缓存中的流水在提交前不可见，同一事务内不要依赖刚记录的流水进行查询。
+ */
+@Slf4j
+@Component
+public class InventoryLedgerWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_transactions (product_id, batch_id, quantity, operation_type, transaction_time, order_id, purchase_id, return_order_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_COUNTER_SQL =
+            "INSERT INTO inventory_daily_counter (product_id, stat_date, operation_type, quantity, transaction_count) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), transaction_count = transaction_count + VALUES(transaction_count)";
+
+    // 计数按 (商品, 日期, 操作类型) 顺序写入，并发事务以相同顺序加锁
+    private static final Comparator<CounterKey> COUNTER_ORDER = Comparator
+            .comparingInt(CounterKey::productId)
+            .thenComparing(CounterKey::statDate)
+            .thenComparing(CounterKey::operationType);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // 批量写入库存流水
+
+    /**
+     * 记录一条库存流水
+     * 关联的商品、批次、单据在提交前读取ID，调用时必须已经保存
+     *
+     * @param transaction 未保存的库存流水
+     */
+    public void append(InventoryTransaction transaction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(transaction));
+            return;
+        }
+        currentBuffer().add(transaction);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InventoryTransaction> currentBuffer() {
+        List<InventoryTransaction> buffer = (List<InventoryTransaction>) TransactionSynchronizationManager.getResource(this);
+        if (buffer != null) {
+            return buffer;
+        }
+        List<InventoryTransaction> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // 先于每日销售汇总写入（SalesRollupService），热点汇总行在提交前最后才加锁
+                return Ordered.LOWEST_PRECEDENCE - 1;
+            }
+
+            @Override
+            public void suspend() {
+                // 挂起外层事务（如 REQUIRES_NEW）时解绑，内层事务使用自己的缓存
+                TransactionSynchronizationManager.unbindResource(InventoryLedgerWriter.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(InventoryLedgerWriter.this, created);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insert(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(InventoryLedgerWriter.this);
+            }
+        });
+        return created;
+    }
+
+    private void insert(List<InventoryTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, transactions, transactions.size(), (ps, transaction) -> {
+            ps.setInt(1, transaction.getProduct().getId());
+            setId(ps, 2, transaction.getBatch() != null ? transaction.getBatch().getId() : null);
+            ps.setInt(3, transaction.getQuantity());
+            ps.setString(4, transaction.getOperationType().name());
+            ps.setTimestamp(5, Timestamp.valueOf(transaction.getTransactionTime()));
+            setId(ps, 6, transaction.getOrder() != null ? transaction.getOrder().getId() : null);
+            setId(ps, 7, transaction.getPurchase() != null ? transaction.getPurchase().getId() : null);
+            setId(ps, 8, transaction.getReturnOrder() != null ? transaction.getReturnOrder().getId() : null);
+        });
+        log.debug("批量写入库存流水 {} 条", transactions.size());
+        updateCounters(transactions);
+    }
+
+    /**
+     * 累加每日计数：同一事务内相同 (商品, 日期, 操作类型) 的流水先合并，每个键一条 UPSERT
+     */
+    private void updateCounters(List<InventoryTransaction> transactions) {
+        Map<CounterKey, int[]> counters = new TreeMap<>(COUNTER_ORDER); // 键 -> [数量, 笔数]
+        for (InventoryTransaction transaction : transactions) {
+            CounterKey key = new CounterKey(transaction.getProduct().getId(),
+                                            transaction.getTransactionTime().toLocalDate(),
+                                            transaction.getOperationType());
+            int[] counter = counters.computeIfAbsent(key, k -> new int[2]);
+            counter[0] += transaction.getQuantity();
+            counter[1]++;
+        }
+        List<Map.Entry<CounterKey, int[]>> rows = new ArrayList<>(counters.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_COUNTER_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getKey().productId());
+            ps.setDate(2, Date.valueOf(row.getKey().statDate()));
+            ps.setString(3, row.getKey().operationType().name());
+            ps.setInt(4, row.getValue()[0]);
+            ps.setInt(5, row.getValue()[1]);
+        });
+    }
+
+    private record CounterKey(int productId, LocalDate statDate, OperationType operationType) {
+    }
+
+    private static void setId(PreparedStatement ps, int index, Integer id) throws SQLException {
+        if (id == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, id);
+        }
+    }
+}
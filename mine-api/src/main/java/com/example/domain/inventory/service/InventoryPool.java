@@ -0,0 +1,204 @@
+package com.example.domain.inventory.service;
+
+import com.example.domain.batch.entity.Batch;
+import com.example.domain.inventory.entity.Inventory;
+import com.example.domain.product.entity.Product;
+import com.example.exception.MyException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 一张订单涉及的库存记录
+ * 由 {@link InventoryService#loadPool} 加载，订单内的批次分配和库存检查都在内存中完成，
+ * 扣减只累计在池中（不修改实体），最后由 {@link InventoryService#applyStockOut} 以带条件的批量 UPDATE 写回。
+ * 加载时已在 {@link FifoBatchIndex} 中的批次商品直接从索引分配（不查询批次），其余商品使用池中加载的库存记录。
+ * 是否使用索引在加载时按商品确定一次；分配时商品已被其他事务移出索引的，改为从数据库加载该商品的库存记录
+ */
+public class InventoryPool {
+
+    private final Map<Integer, List<Inventory>> batchInventories = new HashMap<>(); // 商品ID -> 批次库存（按FIFO排序）
+    private final Map<Integer, Inventory> plainInventories = new HashMap<>();       // 商品ID -> 非批次库存
+    private final SortedMap<Integer, Deduction> deductions = new TreeMap<>();       // 库存ID -> 累计扣减
+
+    private final Set<Integer> indexedProducts; // 从FIFO批次索引分配的商品ID
+    private final FifoBatchIndex fifoBatchIndex;
+    private final Function<Integer, Batch> batchReference; // 批次ID -> 批次引用（不查询数据库）
+    private final Function<Integer, List<Inventory>> inventoryLoader; // 商品ID -> 库存记录（按FIFO排序）
+
+    InventoryPool(List<Inventory> inventories, Set<Integer> indexedProducts, FifoBatchIndex fifoBatchIndex,
+                  Function<Integer, Batch> batchReference, Function<Integer, List<Inventory>> inventoryLoader) {
+        this.indexedProducts = new HashSet<>(indexedProducts);
+        this.fifoBatchIndex = fifoBatchIndex;
+        this.batchReference = batchReference;
+        this.inventoryLoader = inventoryLoader;
+        inventories.forEach(this::add);
+    }
+
+    /**
+     * 单条库存记录的累计扣减
+     *
+     * @param inventoryId 库存记录ID
+     * @param product     商品
+     * @param batch       批次，非批次商品为空
+     * @param quantity    扣减数量
+     * @param indexed     是否已在FIFO批次索引中预留
+     */
+    record Deduction(Integer inventoryId, Product product, Batch batch, int quantity, boolean indexed) {
+
+        Deduction plus(int more) {
+            return new Deduction(inventoryId, product, batch, quantity + more, indexed);
+        }
+    }
+
+    /**
+     * 按FIFO原则分配批次并扣减库存
+     *
+     * @param product  批次商品
+     * @param quantity 需要的数量
+     * @return 批次及其分配数量的列表
+     */
+    public List<InventoryService.BatchAllocation> allocateFifo(Product product, int quantity) {
+        List<FifoBatchIndex.Entry> entries = indexedProducts.contains(product.getId())
+                ? fifoBatchIndex.allocate(product, quantity)
+                : null;
+        if (entries == null) {
+            loadIfEvicted(product.getId());
+            return allocateFromInventories(product, quantity);
+        }
+        List<InventoryService.BatchAllocation> allocations = new ArrayList<>();
+        for (FifoBatchIndex.Entry entry : entries) {
+            Batch batch = batchReference.apply(entry.batchId());
+            deduct(new Deduction(entry.inventoryId(), product, batch, entry.quantity(), true));
+            allocations.add(new InventoryService.BatchAllocation(batch, entry.quantity()));
+        }
+        return allocations;
+    }
+
+    /**
+     * 出库（批次商品，指定批次）
+     *
+     * @param product     商品
+     * @param batchId     批次ID
+     * @param batchNumber 批次编号，用于错误提示
+     * @param quantity    出库数量
+     * @return 出库的批次
+     */
+    public Batch stockOut(Product product, Integer batchId, String batchNumber, int quantity) {
+        FifoBatchIndex.Entry entry = indexedProducts.contains(product.getId())
+                ? fifoBatchIndex.reserve(product, batchId, batchNumber, quantity)
+                : null;
+        if (entry != null) {
+            Batch batch = batchReference.apply(entry.batchId());
+            deduct(new Deduction(entry.inventoryId(), product, batch, quantity, true));
+            return batch;
+        }
+        loadIfEvicted(product.getId());
+        Inventory inventory = findBatchInventory(product.getId(), batchId);
+        if (inventory == null) {
+            throw new MyException(String.format("找不到库存记录: 商品[%s], 批次[%s]", product.getName(), batchNumber));
+        }
+        if (available(inventory) < quantity) {
+            throw new MyException(String.format("批次商品库存不足: 商品[%s], 批次[%s], 当前库存[%d], 需要数量[%d]", product.getName(), inventory.getBatch().getBatchNumber(), available(inventory), quantity));
+        }
+        deduct(new Deduction(inventory.getId(), product, inventory.getBatch(), quantity, false));
+        return inventory.getBatch();
+    }
+
+    /**
+     * 出库（非批次商品）
+     *
+     * @param product  商品
+     * @param quantity 出库数量
+     */
+    public void stockOut(Product product, int quantity) {
+        Inventory inventory = plainInventories.get(product.getId());
+        if (inventory == null) {
+            throw new MyException(String.format("找不到库存记录: 商品[%s]", product.getName()));
+        }
+        if (available(inventory) < quantity) {
+            throw new MyException(String.format("商品库存不足: 商品[%s], 当前库存[%d], 需要数量[%d]", product.getName(), available(inventory), quantity));
+        }
+        deduct(new Deduction(inventory.getId(), product, null, quantity, false));
+    }
+
+    /**
+     * 累计的扣减，按库存ID升序
+     */
+    SortedMap<Integer, Deduction> getDeductions() {
+        return deductions;
+    }
+
+    /**
+     * 商品原定从索引分配但已被移出索引时，从数据库加载其库存记录，之后该商品都使用池中的记录。
+     * 已从索引分配的数量记在同一库存ID的扣减中，计算可用数量时一并扣除
+     */
+    private void loadIfEvicted(Integer productId) {
+        if (indexedProducts.remove(productId)) {
+            inventoryLoader.apply(productId).forEach(this::add);
+        }
+    }
+
+    private void add(Inventory inventory) {
+        Integer productId = inventory.getProduct().getId();
+        if (inventory.getBatch() == null) {
+            plainInventories.put(productId, inventory);
+        } else {
+            batchInventories.computeIfAbsent(productId, id -> new ArrayList<>()).add(inventory);
+        }
+    }
+
+    private List<InventoryService.BatchAllocation> allocateFromInventories(Product product, int quantity) {
+        List<Inventory> candidates = new ArrayList<>();
+        List<InventoryService.BatchAllocation> allocations = new ArrayList<>();
+        int remainingQuantity = quantity;
+        for (Inventory inventory : batchInventories.getOrDefault(product.getId(), List.of())) {
+            if (remainingQuantity <= 0) {
+                break;
+            }
+            int available = available(inventory);
+            if (available <= 0) {
+                continue;
+            }
+            int allocateQuantity = Math.min(remainingQuantity, available);
+            candidates.add(inventory);
+            allocations.add(new InventoryService.BatchAllocation(inventory.getBatch(), allocateQuantity));
+            remainingQuantity -= allocateQuantity;
+        }
+
+        if (remainingQuantity > 0) {
+            throw new MyException("商品库存不足: " + product.getName() + ", 缺少: " + remainingQuantity);
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Inventory inventory = candidates.get(i);
+            deduct(new Deduction(inventory.getId(), product, inventory.getBatch(), allocations.get(i).getQuantity(), false));
+        }
+        return allocations;
+    }
+
+    private int available(Inventory inventory) {
+        Deduction deduction = deductions.get(inventory.getId());
+        return inventory.getQuantity() - (deduction != null ? deduction.quantity() : 0);
+    }
+
+    private void deduct(Deduction deduction) {
+        deductions.merge(deduction.inventoryId(), deduction, (previous, added) -> previous.plus(added.quantity()));
+    }
+
+    private Inventory findBatchInventory(Integer productId, Integer batchId) {
+        for (Inventory inventory : batchInventories.getOrDefault(productId, List.of())) {
+            if (inventory.getBatch().getId().equals(batchId)) {
+                return inventory;
+            }
+        }
+        return null;
+    }
+}
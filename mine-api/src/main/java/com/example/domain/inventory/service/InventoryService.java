@@ -2,6 +2,7 @@ package com.example.domain.inventory.service;
 
 import com.example.domain.batch.entity.Batch;
 import com.example.domain.batch.entity.QBatch;
+import com.example.domain.batch.repository.BatchRepository;
 import com.example.domain.inventory.controller.InventoryController;
 import com.example.domain.inventory.dto.InventoryUpdateDto;
 import com.example.domain.inventory.entity.Inventory;
@@ -13,8 +14,11 @@ import com.example.domain.product.entity.Product;
 import com.example.domain.product.entity.QProduct;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.InventoryQuery;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,9 +26,13 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -39,6 +47,10 @@ import java.util.Set;
 @Slf4j
 public class InventoryService implements BaseRepository<Inventory, InventoryQuery> {
 
+    // 按库存ID扣减，库存不足时不修改
+    private static final String DECREASE_STOCK_SQL =
+            "UPDATE inventory SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+
     @Autowired
     private InventoryRepository inventoryRepository; // 库存仓库，用于与数据库交互
 
@@ -49,6 +61,23 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
     @Autowired
     private InventoryMapper inventoryMapper; // 库存映射器，用于对象转换
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // 批量更新库存
+
+    @Autowired
+    private InventoryStockCache inventoryStockCache; // 商品库存缓存，库存变化提交后同步写入
+
+    @Autowired
+    private FifoBatchIndex fifoBatchIndex; // 按商品索引的FIFO批次库存，订单分配批次时使用
+
+    @Autowired
+    private BatchRepository batchRepository; // 批次仓库，用于获取批次引用
+
+
+    @Override
+    public EntityId<Inventory> entityId() {
+        return new EntityId<>(QInventory.inventory.id, Inventory::getId);
+    }
 
     /**
      * 构建基本条件查询
@@ -115,6 +144,11 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
                                                     .build()).orElseThrow();
         inventory.setQuantity(inventoryUpdateDto.getQuantity());
         inventoryRepository.save(inventory);
+        // 直接设置的数量可能与并发订单的增量乱序写入缓存，提交后从数据库重新加载
+        inventoryStockCache.reloadAfterCommit(inventoryUpdateDto.getProductId());
+        if (inventory.getBatch() != null) {
+            fifoBatchIndex.reloadAfterCommit(inventoryUpdateDto.getProductId());
+        }
     }
 
     /**
@@ -126,15 +160,12 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      */
     @org.springframework.transaction.annotation.Transactional
     public void stockIn(Product product, Batch batch, Integer quantity) {
-        // 2. 查找或创建库存记录
-        Inventory inventory = findOrCreateInventory(product, batch);
-
-        // 3. 更新库存
-        inventory.setQuantity(inventory.getQuantity() + quantity);
-        inventoryRepository.save(inventory);
-
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, batch, quantity, OperationType.采购入库);
+        // 在数据库中原子累加，记录不存在时创建
+        if (inventoryRepository.increaseBatchStock(product.getId(), batch.getId(), quantity) == 0) {
+            createInventory(product, batch, quantity);
+        }
+        inventoryStockCache.addAfterCommit(product.getId(), batch, quantity);
+        fifoBatchIndex.addAfterCommit(product.getId(), batch.getId(), quantity);
     }
 
     /**
@@ -145,19 +176,19 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      */
     @org.springframework.transaction.annotation.Transactional
     public void stockIn(Product product, Integer quantity) {
-        // 2. 查找或创建库存记录
-        Inventory inventory = findOrCreateInventory(product, null);
-
-        // 3. 更新库存
-        inventory.setQuantity(inventory.getQuantity() + quantity);
-        inventoryRepository.save(inventory);
-
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, null, quantity, OperationType.采购入库);
+        if (product.isBatchManaged()) {
+            throw new MyException("批次管理商品必须指定批次才能操作库存");
+        }
+        // 在数据库中原子累加，记录不存在时创建
+        if (inventoryRepository.increaseStock(product.getId(), quantity) == 0) {
+            createInventory(product, null, quantity);
+        }
+        inventoryStockCache.addAfterCommit(product.getId(), null, quantity);
     }
 
     /**
      * 出库（批次商品）
+     * 库存检查和扣减由一条带 quantity >= ? 条件的 UPDATE 完成，并发出库不会超卖或互相覆盖
      *
      * @param product  商品对象
      * @param batch    批次对象
@@ -165,98 +196,167 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
      */
     @org.springframework.transaction.annotation.Transactional
     public void stockOut(Product product, Batch batch, Integer quantity) {
-        // 2. 查找并检查库存
-        Inventory inventory = findInventoryOrThrow(product, batch);
-        if (inventory.getQuantity() < quantity) {
+        if (inventoryRepository.decreaseBatchStock(product.getId(), batch.getId(), quantity) == 0) {
+            // 未扣减成功：记录不存在或库存不足，查询当前库存用于提示
+            Inventory inventory = findInventoryOrThrow(product, batch);
             throw new MyException(String.format("批次商品库存不足: 商品[%s], 批次[%s], 当前库存[%d], 需要数量[%d]", product.getName(), batch.getBatchNumber(), inventory.getQuantity(), quantity));
         }
-
-        // 3. 更新库存
-        inventory.setQuantity(inventory.getQuantity() - quantity);
-        inventoryRepository.save(inventory);
-
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, batch, -quantity, OperationType.销售出库);
+        inventoryStockCache.addAfterCommit(product.getId(), batch, -quantity);
+        fifoBatchIndex.addAfterCommit(product.getId(), batch.getId(), -quantity);
     }
 
     /**
      * 出库（非批次商品）
+     * 库存检查和扣减由一条带 quantity >= ? 条件的 UPDATE 完成，并发出库不会超卖或互相覆盖
      *
      * @param product  商品对象
      * @param quantity 出库数量
      */
     @org.springframework.transaction.annotation.Transactional
     public void stockOut(Product product, Integer quantity) {
-        // 2. 查找并检查库存
-        Inventory inventory = findInventoryOrThrow(product, null);
-        if (inventory.getQuantity() < quantity) {
+        if (inventoryRepository.decreaseStock(product.getId(), quantity) == 0) {
+            // 未扣减成功：记录不存在或库存不足，查询当前库存用于提示
+            Inventory inventory = findInventoryOrThrow(product, null);
             throw new MyException(String.format("商品库存不足: 商品[%s], 当前库存[%d], 需要数量[%d]", product.getName(), inventory.getQuantity(), quantity));
         }
-        // 3. 更新库存
-        inventory.setQuantity(inventory.getQuantity() - quantity);
-        inventoryRepository.save(inventory);
-
-        // 4. 记录库存变动 - 暂时注释掉
-        // inventoryTransactionService.recordTransaction(product, null, -quantity, OperationType.销售出库);
+        inventoryStockCache.addAfterCommit(product.getId(), null, -quantity);
     }
 
-
     /**
-     * 查询商品库存信息
-     * 包括总库存和批次库存信息
+     * 将库存池中累计的出库写回数据库
+     * 每条库存记录一条带 quantity >= ? 条件的 UPDATE，合并为一次 JDBC 批量提交；
+     * 按库存ID顺序更新，并发订单以相同顺序加行锁，避免死锁。
+     * 任一记录在加载后已被其他事务扣减到不足时抛出异常，整个订单回滚
      *
-     * @param productId 商品ID
-     * @return 商品库存信息DTO
+     * @param pool 订单的库存池
      */
-    public ProductStockDTO getProductStock(Integer productId) {
-
-
-        // 创建返回DTO
-        ProductStockDTO dto = new ProductStockDTO();
-        dto.setProductId(productId);
-
-
-        // 获取总库存
-        List<Inventory> inventoryList = this.findList(InventoryQuery.builder()
-                                                                    .productId(productId)
-                                                                    .includes(Set.of(InventoryQuery.Include.BATCH))
-                                                                    .build());
-        Integer sumInventory = inventoryList.stream()
-                                            .map(Inventory::getQuantity)
-                                            .reduce(0, Integer::sum);
-
-        dto.setTotalInventory(sumInventory);
-
-        // 获取批次库存
-        inventoryList.forEach(inventory -> {
-            Batch batch = inventory.getBatch();
-            if (batch != null) {
-                ProductStockDTO.BatchStock batchStock = new ProductStockDTO.BatchStock();
-                batchStock.setBatchId(batch.getId());
-                batchStock.setBatchNumber(batch.getBatchNumber());
-                batchStock.setQuantity(inventory.getQuantity());
-                batchStock.setProductionDate(batch.getProductionDate());
-                batchStock.setExpirationDate(batch.getExpirationDate());
-                dto.getBatchStocks()
-                   .add(batchStock);
-            }
+    @org.springframework.transaction.annotation.Transactional
+    public void applyStockOut(InventoryPool pool) {
+        List<InventoryPool.Deduction> changes = new ArrayList<>(pool.getDeductions().values());
+        if (changes.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DECREASE_STOCK_SQL, changes, changes.size(), (ps, change) -> {
+            ps.setInt(1, change.quantity());
+            ps.setInt(2, change.inventoryId());
+            ps.setInt(3, change.quantity());
         });
-
-        return dto;
+        for (int i = 0; i < counts[0].length; i++) {
+            if (counts[0][i] == 0) {
+                InventoryPool.Deduction change = changes.get(i);
+                if (change.indexed()) {
+                    // 索引中的数量与数据库不一致，移出索引并重新加载，避免之后的订单继续分配同一批次
+                    fifoBatchIndex.invalidate(change.product().getId());
+                }
+                throw new MyException(String.format("商品库存不足（已被其他订单占用）: 商品[%s], 需要数量[%d]", change.product().getName(), change.quantity()));
+            }
+        }
+        for (InventoryPool.Deduction change : changes) {
+            inventoryStockCache.addAfterCommit(change.product().getId(), change.batch(), -change.quantity());
+            if (change.batch() != null && !change.indexed()) {
+                // 从索引分配的数量已在分配时预留，其余批次出库提交后写入索引
+                fifoBatchIndex.addAfterCommit(change.product().getId(), change.batch().getId(), -change.quantity());
+            }
+        }
     }
 
     /**
      * 批量查询商品库存信息
+     * 一次 inventory LEFT JOIN batch 查询取出全部商品的库存记录，在内存中按商品分组：
+     * 商品ID去重排序为 int 数组，与DTO数组下标对应，每行记录二分查找所属商品
      *
      * @param productIds 商品ID列表
-     * @return 商品库存信息DTO列表
+     * @return 与 productIds 一一对应的商品库存信息DTO列表，没有库存记录的商品总库存为0
      */
     public List<ProductStockDTO> getProductStocks(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        int[] keys = productIds.stream()
+                               .mapToInt(Integer::intValue)
+                               .distinct()
+                               .sorted()
+                               .toArray();
+        ProductStockDTO[] dtos = assembleStocks(keys, fetchStockRows(QInventory.inventory.product.id.in(productIds)));
         return productIds.stream()
-                         .map(this::getProductStock)
+                         .map(productId -> dtos[Arrays.binarySearch(keys, productId)])
                          .toList();
     }
 
+    /**
+     * 查询全部有库存记录的商品的库存信息（供库存缓存整体加载）
+     *
+     * @return 按商品ID升序的商品库存信息DTO列表
+     */
+    public List<ProductStockDTO> getAllProductStocks() {
+        List<Tuple> rows = fetchStockRows(null);
+        int[] keys = rows.stream()
+                         .mapToInt(row -> row.get(QInventory.inventory.product.id))
+                         .distinct()
+                         .sorted()
+                         .toArray();
+        return Arrays.asList(assembleStocks(keys, rows));
+    }
+
+    /**
+     * 查询库存记录及其批次信息，批次按ID升序
+     *
+     * @param where 查询条件，为空时查询全部
+     */
+    private List<Tuple> fetchStockRows(Predicate where) {
+        QInventory qInventory = QInventory.inventory;
+        QBatch qBatch = QBatch.batch;
+        return queryFactory
+            .select(qInventory.product.id, qInventory.quantity, qBatch.id, qBatch.batchNumber,
+                    qBatch.productionDate, qBatch.expirationDate)
+            .from(qInventory)
+            .leftJoin(qInventory.batch, qBatch)
+            .where(where)
+            .orderBy(qBatch.id.asc())
+            .fetch();
+    }
+
+    /**
+     * 将库存记录按商品组装为DTO
+     *
+     * @param keys 去重升序的商品ID，必须包含每行记录的商品
+     * @param rows {@link #fetchStockRows} 查询的库存记录
+     * @return 与 keys 下标对应的DTO
+     */
+    private ProductStockDTO[] assembleStocks(int[] keys, List<Tuple> rows) {
+        QInventory qInventory = QInventory.inventory;
+        QBatch qBatch = QBatch.batch;
+        ProductStockDTO[] dtos = new ProductStockDTO[keys.length];
+        int[] totals = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            dtos[i] = new ProductStockDTO();
+            dtos[i].setProductId(keys[i]);
+        }
+
+        for (Tuple row : rows) {
+            int index = Arrays.binarySearch(keys, row.get(qInventory.product.id));
+            int quantity = row.get(qInventory.quantity);
+            totals[index] += quantity;
+
+            Integer batchId = row.get(qBatch.id);
+            if (batchId != null) {
+                ProductStockDTO.BatchStock batchStock = new ProductStockDTO.BatchStock();
+                batchStock.setBatchId(batchId);
+                batchStock.setBatchNumber(row.get(qBatch.batchNumber));
+                batchStock.setQuantity(quantity);
+                batchStock.setProductionDate(row.get(qBatch.productionDate));
+                batchStock.setExpirationDate(row.get(qBatch.expirationDate));
+                dtos[index].getBatchStocks()
+                           .add(batchStock);
+            }
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            dtos[i].setTotalInventory(totals[i]);
+        }
+        return dtos;
+    }
+
 
     /**
      * 查找或创建库存记录
@@ -283,6 +383,24 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
         return inventory;
     }
 
+    /**
+     * 创建库存记录
+     *
+     * @param product  商品对象
+     * @param batch    批次对象，非批次商品为空
+     * @param quantity 初始数量
+     */
+    private void createInventory(Product product, Batch batch, Integer quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setProduct(product);
+        inventory.setBatch(batch);
+        inventory.setQuantity(quantity);
+        inventoryRepository.save(inventory);
+        if (batch != null) {
+            fifoBatchIndex.reloadAfterCommit(product.getId()); // 新批次加入索引
+        }
+    }
+
     /**
      * 查找库存记录或抛出异常
      *
@@ -297,54 +415,65 @@ public class InventoryService implements BaseRepository<Inventory, InventoryQuer
     }
 
     /**
-     * 按FIFO原则获取商品的可用批次
-     * @param product 商品
-     * @param requiredQuantity 需要的数量
-     * @return 批次及其可用数量的列表
+     * 加载订单涉及商品的库存池，供订单在内存中分配批次和扣减库存
+     * 已在FIFO批次索引中的批次商品不查询，由索引直接分配（是否使用索引在此确定）；其余商品一次查询加载全部库存记录，
+     * 批次库存按生产日期、批次ID升序（FIFO）排列
+     *
+     * @param products 商品集合
+     * @return 库存池
+     */
+    public InventoryPool loadPool(Collection<Product> products) {
+        Set<Integer> indexedProducts = new HashSet<>();
+        List<Integer> productIds = new ArrayList<>();
+        for (Product product : products) {
+            if (product.isBatchManaged() && fifoBatchIndex.contains(product.getId())) {
+                indexedProducts.add(product.getId());
+            } else {
+                productIds.add(product.getId());
+            }
+        }
+        List<Inventory> inventories = productIds.isEmpty() ? List.of() : findPoolInventories(productIds);
+        return new InventoryPool(inventories, indexedProducts, fifoBatchIndex, batchRepository::getReferenceById,
+                                 productId -> findPoolInventories(List.of(productId)));
+    }
+
+    /**
+     * 查询商品的全部库存记录，批次库存按生产日期、批次ID升序（FIFO）排列
      */
-    public List<BatchAllocation> findAvailableBatchesByFifo(Product product, Integer requiredQuantity) {
+    private List<Inventory> findPoolInventories(Collection<Integer> productIds) {
         QInventory qInventory = QInventory.inventory;
         QBatch qBatch = QBatch.batch;
-
-        // 查询所有有库存的批次，按生产日期升序（FIFO）
-        List<Inventory> availableInventories = queryFactory
+        return queryFactory
             .selectFrom(qInventory)
             .leftJoin(qInventory.batch, qBatch).fetchJoin()
-            .where(
-                qInventory.product.eq(product),
-                qInventory.batch.isNotNull(),
-                qInventory.quantity.gt(0)
-            )
-            .orderBy(qBatch.productionDate.asc())
+            .where(qInventory.product.id.in(productIds))
+            .orderBy(qBatch.productionDate.asc(), qBatch.id.asc())
             .fetch();
+    }
 
-        List<BatchAllocation> allocations = new ArrayList<>();
-        int remainingQuantity = requiredQuantity;
-
-        // 按FIFO分配批次
-        for (Inventory inventory : availableInventories) {
-            if (remainingQuantity <= 0) {
-                break;
-            }
-
-            int allocateQuantity = Math.min(remainingQuantity, inventory.getQuantity());
-            allocations.add(new BatchAllocation(inventory.getBatch(), allocateQuantity));
-            remainingQuantity -= allocateQuantity;
-        }
-
-        if (remainingQuantity > 0) {
-            throw new MyException("商品库存不足: " + product.getName() + 
-                ", 缺少: " + remainingQuantity );
-        }
-
-        return allocations;
+    /**
+     * 事务提交后从数据库重新加载单个商品的库存缓存和FIFO批次索引（库存记录的批次关联发生变化时使用）
+     *
+     * @param productId 商品ID
+     */
+    public void reloadAfterCommit(Integer productId) {
+        inventoryStockCache.reloadAfterCommit(productId);
+        fifoBatchIndex.reloadAfterCommit(productId);
     }
+
     /**
      * 删除库存记录
       */
     @org.springframework.transaction.annotation.Transactional
     public void delete(Integer id) {
-        inventoryRepository.deleteById(id);
+        inventoryRepository.findById(id).ifPresent(inventory -> {
+            inventoryRepository.delete(inventory);
+            inventoryStockCache.removeAfterCommit(inventory.getProduct().getId(),
+                    inventory.getBatch() != null ? inventory.getBatch().getId() : null);
+            if (inventory.getBatch() != null) {
+                fifoBatchIndex.removeAfterCommit(inventory.getProduct().getId(), inventory.getBatch().getId());
+            }
+        });
     }
 
     /**
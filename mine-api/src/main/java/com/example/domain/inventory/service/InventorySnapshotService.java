@@ -0,0 +1,212 @@
+package com.example.domain.inventory.service;
+
+import com.example.domain.inventory.dto.DailyStockDTO;
+import com.example.domain.inventory.dto.PointInTimeStockDTO;
+import com.example.domain.inventory.entity.InventorySnapshot;
+import com.example.domain.inventory.entity.QInventory;
+import com.example.domain.inventory.entity.QInventoryTransaction;
+import com.example.domain.inventory.repository.InventorySnapshotRepository;
+import com.example.exception.MyException;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存快照服务
+ * 每日生成 inventory_snapshot（各库存记录在当日结束时的数量），
+ * 任意日期的库存按“不晚于该日的最近快照 + 快照之后到该日结束的库存流水”计算，
+ * 查询代价只与两个日期之间的流水量有关，与流水总量无关。
+ * 快照由实际库存倒推生成，库存修改等不记流水的变化会在下一次快照中得到修正
+ */
+@Service
+@Slf4j
+public class InventorySnapshotService {
+
+    private static final int PLAIN_BATCH_ID = 0; // 快照中非批次库存的批次ID
+
+    @Autowired
+    private InventorySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    /**
+     * 生成（或重新生成）某日结束时的库存快照
+     *
+     * @param date 快照日期，必须是已经结束的日期
+     * @return 写入的快照行数
+     */
+    @Transactional
+    public int takeSnapshot(LocalDate date) {
+        if (date == null || !date.isBefore(LocalDate.now())) {
+            throw new MyException("只能为已经结束的日期生成库存快照");
+        }
+        snapshotRepository.deleteByDate(date);
+        int rows = snapshotRepository.snapshotFromInventory(date, date.plusDays(1).atStartOfDay());
+        log.info("库存快照已生成: {}, {} 行", date, rows);
+        return rows;
+    }
+
+    /**
+     * 按日期范围补生成库存快照（首次上线或快照缺失时使用）
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 生成的天数
+     */
+    @Transactional
+    public int backfill(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new MyException("补生成快照的日期范围不合法");
+        }
+        int days = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            takeSnapshot(date);
+            days++;
+        }
+        return days;
+    }
+
+    /**
+     * 每日凌晨生成前一天的库存快照
+     */
+    @Scheduled(cron = "${inventory.snapshot.cron:0 10 0 * * ?}")
+    @Transactional
+    public void scheduledSnapshot() {
+        takeSnapshot(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * 查询商品在某日结束时的库存
+     * 有快照时：最近快照 + 快照次日起到该日结束的流水；
+     * 没有快照时：当前库存 - 该日结束之后的流水
+     *
+     * @param productId 商品ID
+     * @param date      日期
+     * @return 该日结束时的库存
+     */
+    public PointInTimeStockDTO getStockAt(Integer productId, LocalDate date) {
+        LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
+        LocalDate snapshotDate = snapshotRepository.findLatestDateOnOrBefore(date);
+        Map<Integer, Integer> quantities = new TreeMap<>(); // 批次ID（非批次为0） -> 数量
+
+        if (snapshotDate != null) {
+            for (InventorySnapshot snapshot : snapshotRepository.findBySnapshotDateAndProductId(snapshotDate, productId)) {
+                quantities.merge(snapshot.getBatchId(), snapshot.getQuantity(), Integer::sum);
+            }
+            addLedger(quantities, productId, snapshotDate.plusDays(1).atStartOfDay(), dayEnd, 1);
+        } else {
+            QInventory qInventory = QInventory.inventory;
+            List<Tuple> rows = queryFactory
+                    .select(qInventory.batch.id, qInventory.quantity)
+                    .from(qInventory)
+                    .where(qInventory.product.id.eq(productId))
+                    .fetch();
+            for (Tuple row : rows) {
+                quantities.merge(batchKey(row.get(qInventory.batch.id)), row.get(qInventory.quantity), Integer::sum);
+            }
+            addLedger(quantities, productId, dayEnd, null, -1);
+        }
+
+        PointInTimeStockDTO dto = new PointInTimeStockDTO();
+        dto.setProductId(productId);
+        dto.setDate(date);
+        dto.setSnapshotDate(snapshotDate);
+        int total = 0;
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            total += entry.getValue();
+            if (entry.getKey() != PLAIN_BATCH_ID) {
+                PointInTimeStockDTO.BatchQuantity batch = new PointInTimeStockDTO.BatchQuantity();
+                batch.setBatchId(entry.getKey());
+                batch.setQuantity(entry.getValue());
+                dto.getBatches().add(batch);
+            }
+        }
+        dto.setTotalQuantity(total);
+        return dto;
+    }
+
+    /**
+     * 查询商品在日期范围内每日结束时的总库存（库存走势）
+     * 起始日库存按 {@link #getStockAt} 计算，之后逐日累加范围内的流水
+     *
+     * @param productId 商品ID
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 按日期升序的每日库存
+     */
+    public List<DailyStockDTO> getStockSeries(Integer productId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new MyException("查询库存走势的日期范围不合法");
+        }
+        int days = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        int[] changes = new int[days];
+
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction;
+        List<Tuple> rows = queryFactory
+                .select(qTransaction.transactionTime, qTransaction.quantity)
+                .from(qTransaction)
+                .where(qTransaction.product.id.eq(productId),
+                       qTransaction.transactionTime.goe(startDate.plusDays(1).atStartOfDay()),
+                       qTransaction.transactionTime.lt(endDate.plusDays(1).atStartOfDay()))
+                .fetch();
+        for (Tuple row : rows) {
+            int day = (int) ChronoUnit.DAYS.between(startDate, row.get(qTransaction.transactionTime).toLocalDate());
+            changes[day] += row.get(qTransaction.quantity);
+        }
+
+        List<DailyStockDTO> series = new ArrayList<>(days);
+        int quantity = getStockAt(productId, startDate).getTotalQuantity();
+        for (int i = 0; i < days; i++) {
+            quantity += changes[i];
+            series.add(new DailyStockDTO(startDate.plusDays(i), quantity));
+        }
+        return series;
+    }
+
+    /**
+     * 按批次累加时间范围内的库存流水
+     *
+     * @param quantities 批次ID -> 数量
+     * @param productId  商品ID
+     * @param startTime  开始时间（含）
+     * @param endTime    结束时间（不含），为空表示至今
+     * @param sign       1 累加，-1 扣回
+     */
+    private void addLedger(Map<Integer, Integer> quantities, Integer productId,
+                           LocalDateTime startTime, LocalDateTime endTime, int sign) {
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction;
+        BooleanBuilder where = new BooleanBuilder(qTransaction.product.id.eq(productId))
+                .and(qTransaction.transactionTime.goe(startTime));
+        if (endTime != null) {
+            where.and(qTransaction.transactionTime.lt(endTime));
+        }
+        List<Tuple> rows = queryFactory
+                .select(qTransaction.batch.id, qTransaction.quantity.sum())
+                .from(qTransaction)
+                .where(where)
+                .groupBy(qTransaction.batch.id)
+                .fetch();
+        for (Tuple row : rows) {
+            Integer sum = row.get(qTransaction.quantity.sum());
+            quantities.merge(batchKey(row.get(qTransaction.batch.id)), sign * (sum != null ? sum : 0), Integer::sum);
+        }
+    }
+
+    private static int batchKey(Integer batchId) {
+        return batchId != null ? batchId : PLAIN_BATCH_ID;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.domain.inventory.service;
+
+import com.example.domain.batch.entity.Batch;
+import com.example.domain.product.dto.ProductStockDTO;
+import com.example.utils.TransactionUtils;
+import com.example.utils.VersionedLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+/**
+ * 商品库存缓存
+ * <p>
+ * 商品ID -> 总库存及各批次库存。启动时一次查询加载全部库存记录，之后由 {@link InventoryService}
+ * 的每次入库、出库、删除在事务提交后同步写入，修改数量后重新加载该商品，商品列表直接从缓存组装库存信息。
+ * 每个商品的缓存条目不可变，修改时整体替换，读取无需加锁；写入和加载串行执行，
+ * 加载期间发生的写入会使本次加载结果作废并重新加载（{@link VersionedLoader}），避免覆盖或遗漏。
+ * 缓存未加载完成（启动加载或之后的重新加载持续被写入打断）时不读取缓存，直接查询数据库，
+ * 并且每隔 {@value #RELOAD_BACKOFF_MILLIS} 毫秒最多由一个请求尝试一次整体加载。
+ */
+@Slf4j
+@Component
+public class InventoryStockCache {
+
+    private static final long RELOAD_BACKOFF_MILLIS = 10_000;
+
+    @Lazy
+    @Autowired
+    private InventoryService inventoryService; // 库存查询：缓存加载和未加载时的回退使用同一条查询
+
+    private final Map<Integer, ProductStock> stocks = new ConcurrentHashMap<>();
+
+    private final VersionedLoader loader = new VersionedLoader(this);
+
+    private volatile boolean loaded;
+
+    /**
+     * 整体加载是否正在进行，同一时间只由一个请求加载
+     */
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    /**
+     * 整体加载失败后，下次允许尝试的时间
+     */
+    private volatile long nextLoadAt;
+
+    /**
+     * 应用启动后预加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        ensureLoaded();
+    }
+
+    /**
+     * 按给定顺序返回商品库存信息，没有库存记录的商品总库存为0
+     *
+     * @param productIds 商品ID列表
+     * @return 与 productIds 一一对应的库存信息
+     */
+    public List<ProductStockDTO> getProductStocks(List<Integer> productIds) {
+        if (ensureLoaded()) {
+            List<ProductStockDTO> result = productIds.stream()
+                                                     .map(productId -> toDto(productId, stocks.getOrDefault(productId, ProductStock.EMPTY)))
+                                                     .toList();
+            if (loaded) {
+                return result; // 读取期间缓存未被标记为未加载
+            }
+        }
+        return inventoryService.getProductStocks(productIds);
+    }
+
+    /**
+     * 事务提交后累加库存
+     * 批次为未初始化的引用时不读取批次信息（避免额外查询），缓存中没有该批次时按数据库重新加载该商品
+     *
+     * @param productId 商品ID
+     * @param batch     批次，非批次商品为空
+     * @param delta     变化数量，出库为负数
+     */
+    public void addAfterCommit(Integer productId, Batch batch, int delta) {
+        if (batch == null) {
+            TransactionUtils.afterCommit(() -> write(productId, stock -> stock.withPlain(stock.plainQuantity + delta)));
+            return;
+        }
+        Integer batchId = batch.getId();
+        BatchStock template = Hibernate.isInitialized(batch) ? BatchStock.of(batch, 0) : null;
+        TransactionUtils.afterCommit(() -> {
+            if (!addBatch(productId, batchId, template, delta)) {
+                load(productId);
+            }
+        });
+    }
+
+    /**
+     * 事务提交后移除库存记录
+     *
+     * @param productId 商品ID
+     * @param batchId   批次ID，非批次商品为空
+     */
+    public void removeAfterCommit(Integer productId, Integer batchId) {
+        TransactionUtils.afterCommit(() -> write(productId, stock -> batchId == null
+                ? stock.withPlain(0)
+                : stock.withoutBatch(batchId)));
+    }
+
+    /**
+     * 事务提交后从数据库重新加载单个商品的库存
+     * 用于库存记录的批次关联发生变化，或直接设置了库存数量的情况：
+     * 设置的绝对值与并发订单的增量在提交后写入缓存的顺序不确定，不能直接写入
+     *
+     * @param productId 商品ID
+     */
+    public void reloadAfterCommit(Integer productId) {
+        TransactionUtils.afterCommit(() -> load(productId));
+    }
+
+    /**
+     * 缓存未加载时尝试整体加载；已有请求在加载或距上次失败不足退避时间时不等待
+     *
+     * @return 缓存是否可读
+     */
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextLoadAt || !loading.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (!load(null)) {
+                nextLoadAt = now + RELOAD_BACKOFF_MILLIS;
+            }
+        } finally {
+            loading.set(false);
+        }
+        return loaded;
+    }
+
+    /**
+     * 加载库存记录并写入缓存
+     * 放弃时将缓存标记为未加载：之后的写入不再写入缓存，读取改为查询数据库，直到下次整体加载成功
+     *
+     * @param productId 单个商品重新加载时的商品ID，为空时加载全部并替换整个缓存
+     * @return 是否已写入或无需加载
+     */
+    private boolean load(Integer productId) {
+        boolean done = loader.load(
+                () -> productId == null ? loaded : !loaded, // 未加载时单个商品无需加载，整体加载会包含
+                () -> query(productId),
+                result -> {
+                    if (productId != null) {
+                        stocks.put(productId, result.getOrDefault(productId, ProductStock.EMPTY));
+                    } else {
+                        stocks.putAll(result);
+                        stocks.keySet().retainAll(result.keySet());
+                        loaded = true;
+                        log.info("已加载 {} 个商品的库存缓存", result.size());
+                    }
+                },
+                result -> loaded = false);
+        if (!done) {
+            log.warn("库存缓存加载期间持续有写入，商品[{}]改为查询数据库，稍后重新加载", productId != null ? productId : "全部");
+        }
+        return done;
+    }
+
+    /**
+     * 通过 {@link InventoryService} 的批量库存查询加载，缓存与回退查询使用同一条语句
+     */
+    private Map<Integer, ProductStock> query(Integer productId) {
+        List<ProductStockDTO> dtos = productId != null
+                ? inventoryService.getProductStocks(List.of(productId))
+                : inventoryService.getAllProductStocks();
+        Map<Integer, ProductStock> result = new HashMap<>(dtos.size() * 2);
+        for (ProductStockDTO dto : dtos) {
+            result.put(dto.getProductId(), ProductStock.of(dto));
+        }
+        return result;
+    }
+
+    /**
+     * @return 是否已写入；缓存中没有该批次且没有批次信息时返回 false
+     */
+    private synchronized boolean addBatch(Integer productId, Integer batchId, BatchStock template, int delta) {
+        ProductStock stock = stocks.getOrDefault(productId, ProductStock.EMPTY);
+        BatchStock current = stock.batches.get(batchId);
+        if (loaded && current == null && template == null) {
+            return false;
+        }
+        write(productId, previous -> previous.withBatch((current != null ? current : template).withQuantityDelta(delta)));
+        return true;
+    }
+
+    private synchronized void write(Integer productId, UnaryOperator<ProductStock> change) {
+        loader.bump();
+        if (!loaded) {
+            return; // 尚未加载，之后的加载会读到已提交的数据
+        }
+        stocks.put(productId, change.apply(stocks.getOrDefault(productId, ProductStock.EMPTY)));
+    }
+
+    private static ProductStockDTO toDto(Integer productId, ProductStock stock) {
+        ProductStockDTO dto = new ProductStockDTO();
+        dto.setProductId(productId);
+        dto.setTotalInventory(stock.total);
+        for (BatchStock batch : stock.batches.values()) {
+            ProductStockDTO.BatchStock batchStock = new ProductStockDTO.BatchStock();
+            batchStock.setBatchId(batch.batchId);
+            batchStock.setBatchNumber(batch.batchNumber);
+            batchStock.setQuantity(batch.quantity);
+            batchStock.setProductionDate(batch.productionDate);
+            batchStock.setExpirationDate(batch.expirationDate);
+            dto.getBatchStocks().add(batchStock);
+        }
+        return dto;
+    }
+
+    /**
+     * 单个商品的库存（不可变）
+     */
+    private record ProductStock(int total, int plainQuantity, Map<Integer, BatchStock> batches) {
+
+        static final ProductStock EMPTY = new ProductStock(0, 0, Map.of());
+
+        static ProductStock of(ProductStockDTO dto) {
+            Map<Integer, BatchStock> batches = new LinkedHashMap<>();
+            int batchTotal = 0;
+            for (ProductStockDTO.BatchStock batch : dto.getBatchStocks()) {
+                batches.put(batch.getBatchId(), new BatchStock(batch.getBatchId(), batch.getBatchNumber(), batch.getProductionDate(),
+                                                               batch.getExpirationDate(), batch.getQuantity()));
+                batchTotal += batch.getQuantity();
+            }
+            return new ProductStock(dto.getTotalInventory(), dto.getTotalInventory() - batchTotal, Collections.unmodifiableMap(batches));
+        }
+
+        ProductStock withPlain(int quantity) {
+            return new ProductStock(total - plainQuantity + quantity, quantity, batches);
+        }
+
+        ProductStock withBatch(BatchStock batch) {
+            Map<Integer, BatchStock> copy = new LinkedHashMap<>(batches);
+            BatchStock previous = copy.put(batch.batchId, batch);
+            int previousQuantity = previous != null ? previous.quantity : 0;
+            return new ProductStock(total - previousQuantity + batch.quantity, plainQuantity, Collections.unmodifiableMap(copy));
+        }
+
+        ProductStock withoutBatch(Integer batchId) {
+            BatchStock previous = batches.get(batchId);
+            if (previous == null) {
+                return this;
+            }
+            Map<Integer, BatchStock> copy = new LinkedHashMap<>(batches);
+            copy.remove(batchId);
+            return new ProductStock(total - previous.quantity, plainQuantity, Collections.unmodifiableMap(copy));
+        }
+    }
+
+    /**
+     * 单个批次的库存（不可变）
+     */
+    private record BatchStock(Integer batchId, String batchNumber, LocalDate productionDate, LocalDate expirationDate, int quantity) {
+
+        static BatchStock of(Batch batch, int quantity) {
+            return new BatchStock(batch.getId(), batch.getBatchNumber(), batch.getProductionDate(), batch.getExpirationDate(), quantity);
+        }
+
+        BatchStock withQuantityDelta(int delta) {
+            return new BatchStock(batchId, batchNumber, productionDate, expirationDate, quantity + delta);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.example.domain.inventory.service;
 
 import com.example.domain.batch.entity.Batch;
 import com.example.domain.batch.entity.QBatch;
+import com.example.domain.inventory.dto.LedgerEntryDTO;
 import com.example.domain.inventory.dto.OperationType;
 import com.example.domain.inventory.entity.InventoryTransaction;
+import com.example.domain.inventory.entity.QInventoryDailyCounter;
 import com.example.domain.inventory.entity.QInventoryTransaction;
+import com.example.domain.inventory.repository.InventoryDailyCounterRepository;
 import com.example.domain.inventory.repository.InventoryTransactionRepository;
 import com.example.domain.order.entity.Order;
 import com.example.domain.order.entity.QOrder;
@@ -14,25 +17,36 @@ import com.example.domain.purchase.entity.Purchase;
 import com.example.domain.purchase.entity.QPurchase;
 import com.example.domain.returnOrder.entity.QReturnOrder;
 import com.example.domain.returnOrder.entity.ReturnOrder;
+import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
+import com.example.interfaces.KeysetCursor;
+import com.example.interfaces.KeysetSlice;
 import com.example.query.InventoryTransactionQuery;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 库存变动记录服务
  * 处理所有库存变动的记录、查询和统计
  */
 @Service
+@Slf4j
 public class InventoryTransactionService implements BaseRepository<InventoryTransaction, InventoryTransactionQuery> {
 
     @Autowired
@@ -41,6 +55,17 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
     @Autowired
     private JPAQueryFactory queryFactory; // JPA查询工厂
 
+    @Autowired
+    private InventoryLedgerWriter ledgerWriter; // 库存流水批量写入器
+
+    @Autowired
+    private InventoryDailyCounterRepository counterRepository; // 库存流水每日计数仓库
+
+
+    @Override
+    public EntityId<InventoryTransaction> entityId() {
+        return new EntityId<>(QInventoryTransaction.inventoryTransaction.id, InventoryTransaction::getId);
+    }
 
     @Override
     public JPAQuery<InventoryTransaction> buildConditionQuery(InventoryTransactionQuery query) {
@@ -50,6 +75,20 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
                 .selectFrom(qTransaction)
                 .distinct();
 
+        return jpaQuery
+                .where(buildWhere(query))
+                .orderBy(qTransaction.transactionTime.desc());
+    }
+
+    /**
+     * 查询条件
+     *
+     * @param query 查询条件
+     * @return 条件表达式
+     */
+    private Predicate buildWhere(InventoryTransactionQuery query) {
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction; // 查询库存变动记录的QueryDSL对象
+
         // 处理查询条件
         BooleanBuilder where = new BooleanBuilder();
 
@@ -78,9 +117,59 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
             where.and(qTransaction.transactionTime.between(query.getStartTime(), query.getEndTime()));
         }
 
-        return jpaQuery
+        return where;
+    }
+
+    /**
+     * 库存流水游标分页
+     * 按 (变动时间, ID) 倒序，以上一页最后一条的位置作为起点；只查询列表需要的列并投影为DTO，
+     * 批次号通过左连接取得，不加载任何实体。
+     * 按商品浏览时走 (product_id, transaction_time, id) 索引，翻页代价与流水总量和页码无关
+     *
+     * @param query  查询条件
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @param size   每页大小
+     * @return 带下一页游标的分页结果
+     */
+    public KeysetSlice<LedgerEntryDTO> findLedgerPage(InventoryTransactionQuery query, String cursor, int size) {
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction;
+        QBatch qBatch = QBatch.batch;
+
+        BooleanBuilder where = new BooleanBuilder(buildWhere(query));
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            if (after.time() == null) {
+                throw new MyException("无效的分页游标");
+            }
+            where.and(qTransaction.transactionTime.lt(after.time())
+                                                  .or(qTransaction.transactionTime.eq(after.time()).and(qTransaction.id.lt(after.id()))));
+        }
+
+        List<LedgerEntryDTO> content = queryFactory
+                .select(Projections.bean(LedgerEntryDTO.class,
+                        qTransaction.id,
+                        qTransaction.transactionTime,
+                        qTransaction.operationType,
+                        qTransaction.quantity,
+                        qBatch.batchNumber,
+                        qTransaction.order.id.coalesce(qTransaction.purchase.id, qTransaction.returnOrder.id).as("documentId")))
+                .from(qTransaction)
+                .leftJoin(qTransaction.batch, qBatch)
                 .where(where)
-                .orderBy(qTransaction.transactionTime.desc());
+                .orderBy(qTransaction.transactionTime.desc(), qTransaction.id.desc())
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.removeLast();
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            LedgerEntryDTO last = content.getLast();
+            nextCursor = new KeysetCursor(last.getTransactionTime(), last.getId()).encode();
+        }
+        return new KeysetSlice<>(content, size, hasNext, nextCursor);
     }
 
     @Override
@@ -118,7 +207,7 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
     // --- 记录库存变动方法重构 ---
 
     /**
-     * 核心私有方法：创建并保存库存变动记录
+     * 核心私有方法：创建库存变动记录，交给 {@link InventoryLedgerWriter} 在事务提交前批量写入
      */
     private void createAndSaveTransaction(Product product, Batch batch, Integer quantity,
                                           OperationType operationType, Order salesOrder,
@@ -132,7 +221,7 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
         transaction.setPurchase(purchaseOrder); // 关联采购订单
         transaction.setReturnOrder(returnOrder); // 关联退货订单
         transaction.setTransactionTime(LocalDateTime.now());
-        transactionRepository.save(transaction);
+        ledgerWriter.append(transaction);
     }
 
     /**
@@ -205,21 +294,95 @@ public class InventoryTransactionService implements BaseRepository<InventoryTran
 
     /**
      * 获取商品在指定时间段内的库存变动汇总
+     * 整天的部分从每日计数表汇总，起止时间不在零点时，首尾不足一天的部分从流水补充，
+     * 查询代价与流水总量无关
      *
      * @param productId 商品ID
-     * @param startTime 开始时间
-     * @param endTime   结束时间
+     * @param startTime 开始时间（含），为空时不限
+     * @param endTime   结束时间（含），为空时不限
      * @return 按操作类型汇总的数量
      */
     public Map<OperationType, Integer> getTransactionSummary(Integer productId,
                                                              LocalDateTime startTime,
                                                              LocalDateTime endTime) {
-        List<InventoryTransaction> transactions = getTransactionHistory(productId, startTime, endTime);
-        return transactions.stream()
-                           .collect(Collectors.groupingBy(
-                                   InventoryTransaction::getOperationType,
-                                   Collectors.summingInt(InventoryTransaction::getQuantity)
-                           ));
+        Map<OperationType, Integer> summary = new EnumMap<>(OperationType.class);
+        if (startTime == null || endTime == null) {
+            addCounters(summary, productId, null, null);
+            return summary;
+        }
+        if (startTime.isAfter(endTime)) {
+            return summary;
+        }
+        // 完整覆盖的日期：[firstFullDay, lastFullDay]
+        LocalDate firstFullDay = startTime.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startTime.toLocalDate() : startTime.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = endTime.toLocalDate().minusDays(1);
+        if (firstFullDay.isAfter(lastFullDay)) {
+            addTransactions(summary, productId, startTime, endTime);
+            return summary;
+        }
+        addCounters(summary, productId, firstFullDay, lastFullDay);
+        if (startTime.isBefore(firstFullDay.atStartOfDay())) {
+            addTransactions(summary, productId, startTime, firstFullDay.atStartOfDay().minusNanos(1));
+        }
+        addTransactions(summary, productId, lastFullDay.plusDays(1).atStartOfDay(), endTime);
+        return summary;
+    }
+
+    /**
+     * 按日期范围从库存流水重建每日计数（先删后插），用于首次上线回填或修正
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     */
+    @Transactional
+    public void rebuildDailyCounters(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new MyException("重建计数的日期范围不合法");
+        }
+        int deleted = counterRepository.deleteByDateRange(startDate, endDate);
+        int inserted = counterRepository.rebuildFromTransactions(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        log.info("库存流水每日计数已重建: {} ~ {}, 删除 {} 行, 写入 {} 行", startDate, endDate, deleted, inserted);
+    }
+
+    /**
+     * 累加每日计数
+     *
+     * @param startDate 开始日期，为空时不限
+     * @param endDate   结束日期，为空时不限
+     */
+    private void addCounters(Map<OperationType, Integer> summary, Integer productId, LocalDate startDate, LocalDate endDate) {
+        QInventoryDailyCounter qCounter = QInventoryDailyCounter.inventoryDailyCounter;
+        BooleanBuilder where = new BooleanBuilder(qCounter.product.id.eq(productId));
+        if (startDate != null && endDate != null) {
+            where.and(qCounter.statDate.between(startDate, endDate));
+        }
+        List<Tuple> rows = queryFactory
+                .select(qCounter.operationType, qCounter.quantity.sum())
+                .from(qCounter)
+                .where(where)
+                .groupBy(qCounter.operationType)
+                .fetch();
+        for (Tuple row : rows) {
+            summary.merge(row.get(qCounter.operationType), row.get(qCounter.quantity.sum()), Integer::sum);
+        }
+    }
+
+    /**
+     * 累加时间范围内（含首尾）的流水，只用于不足一天的零头
+     */
+    private void addTransactions(Map<OperationType, Integer> summary, Integer productId, LocalDateTime startTime, LocalDateTime endTime) {
+        QInventoryTransaction qTransaction = QInventoryTransaction.inventoryTransaction;
+        List<Tuple> rows = queryFactory
+                .select(qTransaction.operationType, qTransaction.quantity.sum())
+                .from(qTransaction)
+                .where(qTransaction.product.id.eq(productId),
+                       qTransaction.transactionTime.between(startTime, endTime))
+                .groupBy(qTransaction.operationType)
+                .fetch();
+        for (Tuple row : rows) {
+            summary.merge(row.get(qTransaction.operationType), row.get(qTransaction.quantity.sum()), Integer::sum);
+        }
     }
 
     /**
@@ -6,17 +6,22 @@ import com.example.domain.order.dto.OrderListRequest;
 import com.example.domain.order.dto.PageResponse;
 import com.example.domain.order.entity.Order;
 import com.example.domain.order.mapper.OrderMapper;
+import com.example.domain.order.service.OrderExportService;
 import com.example.domain.order.service.OrderService;
 import com.example.query.OrderQuery;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Set;
 
 /**
@@ -29,16 +34,23 @@ import java.util.Set;
 @Tag(name = "order", description = "订单处理")
 public class OrderController {
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100; // 每页订单数上限
+
     @Autowired
     private OrderService orderService;
 
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
 
 
     /**
      * 查询订单列表，支持分页和筛选
+     * 每页条数为空时取默认值，超出范围时限制在 1 到 {@value #MAX_PAGE_SIZE} 之间
      *
      * @param request 订单列表请求
      * @return 分页订单列表
@@ -56,14 +68,15 @@ public class OrderController {
                                      .includes(Set.of(OrderQuery.Include.SHOP, OrderQuery.Include.DETAILS, OrderQuery.Include.PRODUCT))
                                      .build();
 
-        Pageable pageable = PageRequest.of(
-                request.getPage(),
-                request.getSize()
-        );
+        int page = request.getPage() != null ? request.getPage() : 0;
+        int size = request.getSize() != null ? request.getSize() : DEFAULT_PAGE_SIZE;
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
 
-
-        // 执行分页查询
-        Slice<Order> orderSlice = orderService.findPage(query, pageable);
+        // 执行分页查询：传入 cursor（第一页传空字符串）时使用游标分页，翻页代价与页码无关；
+        // 否则按页码分页，两种方式排序相同
+        Slice<Order> orderSlice = request.getCursor() != null
+                ? orderService.findPageAfter(query, request.getCursor(), size)
+                : orderService.findPage(query, PageRequest.of(page, size));
 
         // 转换为DTO并返回
         Slice<OrderDto> dtoSlice = orderSlice.map(orderMapper::toOrderDTO);
@@ -72,6 +85,32 @@ public class OrderController {
     }
 
 
+    /**
+     * 流式导出订单明细
+     *
+     * @param startDate 开始日期（包含）
+     * @param endDate   结束日期（包含）
+     * @param shopId    店铺ID，可选
+     * @param format    导出格式：csv（每行一条明细）或 jsonl（每行一个订单）
+     * @param response  HTTP 响应，数据直接写入响应流
+     */
+    @Operation(summary = "导出订单", description = "按时间范围和店铺流式导出订单明细，format 为 csv 或 jsonl")
+    @GetMapping("/export")
+    public void exportOrders(@RequestParam LocalDate startDate,
+                             @RequestParam LocalDate endDate,
+                             @RequestParam(required = false) Integer shopId,
+                             @RequestParam(defaultValue = "csv") String format,
+                             HttpServletResponse response) throws IOException {
+        log.info("导出订单: {} ~ {}, 店铺: {}, 格式: {}", startDate, endDate, shopId, format);
+        OrderExportService.Format exportFormat = orderExportService.parseFormat(format);
+        String extension = exportFormat == OrderExportService.Format.CSV ? "csv" : "jsonl";
+        response.setContentType(exportFormat == OrderExportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=orders_" + startDate + "_" + endDate + "." + extension);
+        orderExportService.exportOrders(startDate, endDate, shopId, exportFormat, response.getOutputStream());
+    }
+
     /**
      * 创建订单
      *
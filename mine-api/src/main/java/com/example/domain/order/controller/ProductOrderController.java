@@ -12,7 +12,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -31,6 +30,8 @@ import java.util.Set;
 @Tag(name = "product-order", description = "产品订单查询")
 public class ProductOrderController {
 
+    private static final int MAX_PAGE_SIZE = 100; // 每页订单项数上限
+
     @Autowired
     private OrderDetailService orderDetailService;
 
@@ -39,6 +40,7 @@ public class ProductOrderController {
 
     /**
      * 获取产品的销售订单项列表
+     * 每页条数超出范围时限制在 1 到 {@value #MAX_PAGE_SIZE} 之间
      * 
      * @param request 查询请求
      * @return 分页的产品订单项列表
@@ -57,14 +59,13 @@ public class ProductOrderController {
                 .includes(Set.of(OrderDetailQuery.Include.ORDER, OrderDetailQuery.Include.PRODUCT, OrderDetailQuery.Include.SHOP))
                 .build();
         
-        // 创建分页对象
-        Pageable pageable = PageRequest.of(
-                request.getPage(),
-                request.getSize()
-        );
-        
-        // 执行分页查询
-        Slice<OrderDetail> orderDetailSlice = orderDetailService.findPage(query, pageable);
+        int size = Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+
+        // 执行分页查询：传入 cursor（第一页传空字符串）时使用游标分页，翻页代价与页码无关；
+        // 否则按页码分页，两种方式排序相同
+        Slice<OrderDetail> orderDetailSlice = request.getCursor() != null
+                ? orderDetailService.findPageAfter(query, request.getCursor(), size)
+                : orderDetailService.findPage(query, PageRequest.of(request.getPage(), size));
         
         // 转换为DTO并返回
         Slice<ProductOrderItemDto> dtoSlice = orderDetailSlice.map(orderDetailMapper::toProductOrderItemDto);
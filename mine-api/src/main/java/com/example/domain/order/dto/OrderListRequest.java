@@ -15,4 +15,7 @@ public class OrderListRequest {
 
 
     private Integer size = 10;
+
+    // 游标分页：第一页传空字符串，之后传上一页返回的 nextCursor；传入时忽略 page，不传时按 page 分页
+    private String cursor;
 }
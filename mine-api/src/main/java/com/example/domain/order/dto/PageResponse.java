@@ -1,5 +1,6 @@
 package com.example.domain.order.dto;
 
+import com.example.interfaces.KeysetSlice;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -28,6 +29,9 @@ public class PageResponse<T> {
     
     // 每页大小
     private int pageSize;
+
+    // 下一页游标（游标分页时返回，下一次请求原样传回）
+    private String nextCursor;
     
     /**
      * 从Spring Data Slice创建分页响应
@@ -41,7 +45,8 @@ public class PageResponse<T> {
                 slice.getContent(),
                 slice.hasNext(),
                 slice.getNumber(),
-                slice.getSize()
+                slice.getSize(),
+                slice instanceof KeysetSlice<T> keysetSlice ? keysetSlice.getNextCursor() : null
         );
     }
 } 
\ No newline at end of file
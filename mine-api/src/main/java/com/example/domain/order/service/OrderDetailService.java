@@ -6,20 +6,25 @@ import com.example.domain.order.entity.QOrderDetail;
 import com.example.domain.order.repository.OrderDetailRepository;
 import com.example.domain.product.entity.QProduct;
 import com.example.domain.shop.entity.QShop;
-import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
+import com.example.interfaces.KeysetCursor;
+import com.example.interfaces.KeysetRepository;
 import com.example.query.OrderDetailQuery;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+
 /**
  * 订单详情服务
  * 处理订单详情的查询和管理
  */
 @Service
-public class OrderDetailService implements BaseRepository<OrderDetail, OrderDetailQuery> {
+public class OrderDetailService implements KeysetRepository<OrderDetail, OrderDetailQuery> {
     
     @Autowired
     private OrderDetailRepository orderDetailRepository;
@@ -27,6 +32,11 @@ public class OrderDetailService implements BaseRepository<OrderDetail, OrderDeta
     @Autowired
     private JPAQueryFactory queryFactory;
     
+    @Override
+    public EntityId<OrderDetail> entityId() {
+        return new EntityId<>(QOrderDetail.orderDetail.id, OrderDetail::getId);
+    }
+
     /**
      * 构建基本条件查询
      * 根据查询条件构建基本的QueryDSL查询对象，只包含查询条件
@@ -77,6 +87,24 @@ public class OrderDetailService implements BaseRepository<OrderDetail, OrderDeta
         return jpaQuery.where(where);
     }
     
+    /**
+     * 订单明细游标分页按 ID 倒序
+     */
+    @Override
+    public OrderSpecifier<?>[] keysetOrder() {
+        return new OrderSpecifier<?>[]{QOrderDetail.orderDetail.id.desc()};
+    }
+
+    @Override
+    public Predicate keysetPredicate(KeysetCursor after) {
+        return QOrderDetail.orderDetail.id.lt(after.id());
+    }
+
+    @Override
+    public KeysetCursor cursorOf(OrderDetail orderDetail) {
+        return KeysetCursor.of(orderDetail.getId());
+    }
+    
     /**
      * 构建关联加载
      * 根据查询条件加载关联对象
@@ -0,0 +1,221 @@
+package com.example.domain.order.service;
+
+import com.example.domain.order.entity.QOrder;
+import com.example.domain.order.entity.QOrderDetail;
+import com.example.domain.product.entity.QProduct;
+import com.example.domain.shop.entity.QShop;
+import com.example.exception.MyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单导出服务
+ * 以只读、仅向前的游标逐行读取订单明细的标量列（不加载实体、不进入持久化上下文），
+ * 边读边写入输出流，内存占用与导出的时间范围无关
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV,  // 每行一条订单明细
+        JSONL // 每行一个订单（含明细数组）
+    }
+
+    private static final String[] CSV_HEADER = {
+            "订单ID", "下单时间", "店铺ID", "店铺名称", "订单销售额", "订单利润",
+            "明细ID", "商品ID", "商品名称", "数量", "售价", "成本价", "明细销售额", "明细利润"
+    };
+
+    @Autowired
+    private JPAQueryFactory queryFactory; // JPA查询工厂
+
+    @Autowired
+    private ObjectMapper objectMapper; // JSON 序列化
+
+    /**
+     * MySQL 驱动的流式读取：fetchSize 为 Integer.MIN_VALUE 时逐行从连接读取结果，不把整个结果集读入内存。
+     * 只作用于导出这一条语句，不需要在连接串中开启 useCursorFetch（那会让所有语句改用服务端游标）；
+     * 读取期间该连接不能执行其他语句，导出事务内只有这一条查询
+     */
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    /**
+     * 解析导出格式
+     *
+     * @param format 格式名称，不区分大小写
+     * @return 导出格式
+     */
+    public Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new MyException("不支持的导出格式: " + format);
+        }
+    }
+
+    /**
+     * 按时间范围和店铺导出订单明细
+     *
+     * @param startDate 开始日期（包含）
+     * @param endDate   结束日期（包含）
+     * @param shopId    店铺ID，为空时导出全部店铺
+     * @param format    导出格式
+     * @param out       输出流（不会被关闭）
+     * @return 导出的明细行数
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(LocalDate startDate, LocalDate endDate, Integer shopId, Format format, OutputStream out) throws IOException {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new MyException("导出的日期范围不合法");
+        }
+        QOrder qOrder = QOrder.order;
+        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        QShop qShop = QShop.shop;
+        QProduct qProduct = QProduct.product;
+
+        BooleanBuilder where = new BooleanBuilder();
+        where.and(qOrder.createTime.goe(startDate.atStartOfDay()));
+        where.and(qOrder.createTime.lt(endDate.plusDays(1).atStartOfDay()));
+        if (shopId != null) {
+            where.and(qOrder.shop.id.eq(shopId));
+        }
+
+        // 同一订单的明细连续排列，JSONL 格式据此按订单分组
+        Query<?> query = queryFactory
+                .select(qOrder.id, qOrder.createTime, qShop.id, qShop.name, qOrder.totalSalesAmount, qOrder.totalProfit,
+                        qOrderDetail.id, qProduct.id, qProduct.name, qOrderDetail.quantity, qOrderDetail.salePrice,
+                        qOrderDetail.costPrice, qOrderDetail.totalSalesAmount, qOrderDetail.totalProfit)
+                .from(qOrderDetail)
+                .join(qOrderDetail.order, qOrder)
+                .join(qOrder.shop, qShop)
+                .join(qOrderDetail.product, qProduct)
+                .where(where)
+                .orderBy(qOrder.createTime.asc(), qOrder.id.asc(), qOrderDetail.id.asc())
+                .createQuery()
+                .unwrap(Query.class);
+        query.setFetchSize(STREAMING_FETCH_SIZE);
+        query.setReadOnly(true);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long rows = 0;
+        try (ScrollableResults<?> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            if (format == Format.CSV) {
+                rows = writeCsv(results, writer);
+            } else {
+                rows = writeJsonLines(results, writer);
+            }
+        }
+        writer.flush();
+        log.info("订单导出完成: {} ~ {}, 店铺: {}, 格式: {}, 明细行数: {}", startDate, endDate, shopId, format, rows);
+        return rows;
+    }
+
+    private long writeCsv(ScrollableResults<?> results, Writer writer) throws IOException {
+        writer.write('\uFEFF'); // BOM，便于 Excel 识别 UTF-8
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write('\n');
+        long rows = 0;
+        while (results.next()) {
+            Object[] row = (Object[]) results.get();
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(row[i]));
+            }
+            writer.write('\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private long writeJsonLines(ScrollableResults<?> results, Writer writer) throws IOException {
+        long rows = 0;
+        Integer currentOrderId = null;
+        Map<String, Object> order = null;
+        List<Map<String, Object>> details = null;
+        while (results.next()) {
+            Object[] row = (Object[]) results.get();
+            Integer orderId = (Integer) row[0];
+            if (!orderId.equals(currentOrderId)) {
+                if (order != null) {
+                    writeJsonLine(order, writer);
+                }
+                currentOrderId = orderId;
+                details = new ArrayList<>();
+                order = new LinkedHashMap<>();
+                order.put("id", orderId);
+                order.put("createTime", row[1] != null ? row[1].toString() : null);
+                order.put("shopId", row[2]);
+                order.put("shopName", row[3]);
+                order.put("totalSalesAmount", row[4]);
+                order.put("totalProfit", row[5]);
+                order.put("details", details);
+            }
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("id", row[6]);
+            detail.put("productId", row[7]);
+            detail.put("productName", row[8]);
+            detail.put("quantity", row[9]);
+            detail.put("salePrice", row[10]);
+            detail.put("costPrice", row[11]);
+            detail.put("totalSalesAmount", row[12]);
+            detail.put("totalProfit", row[13]);
+            details.add(detail);
+            rows++;
+        }
+        if (order != null) {
+            writeJsonLine(order, writer);
+        }
+        return rows;
+    }
+
+    private void writeJsonLine(Map<String, Object> order, Writer writer) throws IOException {
+        writer.write(objectMapper.writeValueAsString(order));
+        writer.write('\n');
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text;
+        if (value instanceof BigDecimal decimal) {
+            text = decimal.toPlainString();
+        } else if (value instanceof LocalDateTime time) {
+            text = time.toString().replace('T', ' ');
+        } else {
+            text = value.toString();
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.domain.order.service;
 
 import com.example.domain.batch.entity.Batch;
-import com.example.domain.batch.service.BatchService;
+import com.example.domain.forecast.service.ForecastCache;
 import com.example.domain.inventory.dto.OperationType; // 添加 OperationType 导入
+import com.example.domain.inventory.service.InventoryPool;
 import com.example.domain.inventory.service.InventoryService;
 import com.example.domain.inventory.service.InventoryTransactionService; // 添加 InventoryTransactionService 导入
 import com.example.domain.order.dto.OrderCreateRequest;
@@ -14,13 +15,18 @@ import com.example.domain.product.service.ProductService;
 import com.example.domain.shop.entity.QShop;
 import com.example.domain.shop.entity.Shop;
 import com.example.domain.shop.service.ShopService;
+import com.example.domain.statistics.service.SalesRollupService;
 import com.example.exception.MyException;
-import com.example.interfaces.BaseRepository;
-import com.example.query.BatchQuery;
+import com.example.interfaces.EntityId;
+import com.example.interfaces.KeysetCursor;
+import com.example.interfaces.KeysetRepository;
+import com.example.monitoring.service.ShopProductLatestBatchService;
 import com.example.query.OrderQuery;
 import com.example.query.ProductQuery;
 import com.example.query.ShopQuery;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,22 +35,22 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 订单管理服务
  * 处理订单的创建、查询和管理
  */
 @Service
-public class OrderService implements BaseRepository<Order, OrderQuery> {
+public class OrderService implements KeysetRepository<Order, OrderQuery> {
     @Autowired
     private InventoryService inventoryService; // 库存服务，用于管理库存
 
     @Autowired
     private OrderRepository orderRepository; // 订单仓库，用于与数据库交互
 
-    @Autowired
-    private BatchService batchService; // 批次服务
-
     @Autowired
     private ProductService productService; // 产品服务
 
@@ -59,6 +65,20 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
     @Autowired
     private InventoryTransactionService inventoryTransactionService; // 注入库存交易服务
 
+    @Autowired
+    private SalesRollupService salesRollupService; // 销售汇总维护服务
+
+    @Autowired
+    private ShopProductLatestBatchService shopProductLatestBatchService; // 商家商品最近一次批次销售（临期监控）
+
+    @Autowired
+    private ForecastCache forecastCache; // 预测结果缓存
+
+
+    @Override
+    public EntityId<Order> entityId() {
+        return new EntityId<>(QOrder.order.id, Order::getId);
+    }
 
     /**
      * 构建基本条件查询对象
@@ -102,9 +122,35 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
             where.and(qOrder.shop.id.eq(query.getShopId()));
         }
 
-        // 返回最终的查询对象，包含where条件和按创建时间降序排序
-        return jpaQuery.where(where)
-                       .orderBy(qOrder.createTime.desc());
+        // 返回最终的查询对象，只包含where条件；分页排序由 keysetOrder() 统一追加
+        return jpaQuery.where(where);
+    }
+
+    /**
+     * 订单游标分页按 (创建时间, ID) 倒序
+     */
+    @Override
+    public OrderSpecifier<?>[] keysetOrder() {
+        QOrder qOrder = QOrder.order;
+        return new OrderSpecifier<?>[]{qOrder.createTime.desc(), qOrder.id.desc()};
+    }
+
+    /**
+     * 早于游标的订单：创建时间更早，或创建时间相同且 ID 更小
+     */
+    @Override
+    public Predicate keysetPredicate(KeysetCursor after) {
+        if (after.time() == null) {
+            throw new MyException("无效的分页游标");
+        }
+        QOrder qOrder = QOrder.order;
+        return qOrder.createTime.lt(after.time())
+                                .or(qOrder.createTime.eq(after.time()).and(qOrder.id.lt(after.id())));
+    }
+
+    @Override
+    public KeysetCursor cursorOf(Order order) {
+        return new KeysetCursor(order.getCreateTime(), order.getId());
     }
 
     /**
@@ -163,19 +209,25 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
         // 注意：如果 Order 有复杂的生成策略或需要先计算总价，可能需要调整
         orderRepository.save(order); // 先保存 Order 以获取 ID 并纳入持久化上下文
 
+        // 一次查询预加载订单涉及的全部商品和库存记录，批次分配与库存检查在内存中完成，
+        // 全部订单项处理完后以带条件的 JDBC 批量 UPDATE 统一扣减库存
+        List<OrderCreateRequest.OrderItemRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        Map<Integer, Product> products = loadProducts(items);
+        InventoryPool inventoryPool = inventoryService.loadPool(products.values());
+
         // 处理订单项
-        for (OrderCreateRequest.OrderItemRequest itemRequest : request.getItems()) {
+        for (OrderCreateRequest.OrderItemRequest itemRequest : items) {
             // 获取商品信息
-            Product product = productService.findOne(ProductQuery.builder()
-                                                               .id(itemRequest.getProductId())
-                                                               .build())
-                                           .orElseThrow(() -> new MyException("商品不存在: " + itemRequest.getProductId()));
-            
+            Product product = products.get(itemRequest.getProductId());
+            if (product == null) {
+                throw new MyException("商品不存在: " + itemRequest.getProductId());
+            }
+
             // === 开始价格校验 ===
             BigDecimal requestedPrice = itemRequest.getPrice();
             BigDecimal defaultPrice = product.getDefaultSalePrice();
             BigDecimal costPrice = product.getCostPrice();
-            
+
             // 1. 校验价格非负
             if (requestedPrice == null || requestedPrice.compareTo(BigDecimal.ZERO) <= 0) {
                 throw new MyException("商品 [" + product.getName() + "] 销售价格必须大于0");
@@ -189,7 +241,7 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
 
             // 3. 设置isDefaultPrice标记
             boolean isDefaultPrice = requestedPrice.compareTo(defaultPrice) == 0;
-            
+
             // 创建订单详情
             OrderDetail orderDetail = order.createOrderDetail(product, itemRequest);
             orderDetail.setDefaultPrice(isDefaultPrice);
@@ -199,8 +251,8 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
                 // 如果没有指定批次信息，使用FIFO自动分配
                 if (itemRequest.getBatchDetails() == null || itemRequest.getBatchDetails().isEmpty()) {
                     List<InventoryService.BatchAllocation> allocations =
-                        inventoryService.findAvailableBatchesByFifo(product, itemRequest.getQuantity());
-                    
+                        inventoryPool.allocateFifo(product, itemRequest.getQuantity());
+
                     // 根据FIFO分配结果创建批次销售明细
                     for (InventoryService.BatchAllocation allocation : allocations) {
                         orderDetail.addBatchDetail(
@@ -208,44 +260,68 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
                             allocation.getQuantity(),
                             requestedPrice
                         );
-                        // 扣减库存
-                        inventoryService.stockOut(product, allocation.getBatch(), allocation.getQuantity());
                         // 记录库存流水 (销售出库)
                         inventoryTransactionService.recordTransactionForSales(product, allocation.getBatch(), -allocation.getQuantity(), OperationType.销售出库, order);
                     }
                 } else {
                     // 如果指定了批次信息，按指定批次处理
                     for (OrderCreateRequest.BatchSaleDetail batchDetail : itemRequest.getBatchDetails()) {
-                        BatchQuery batchQuery = BatchQuery.builder()
-                                                          .id(batchDetail.getBatchId())
-                                                          .build();
-                        Batch batch = batchService.findOne(batchQuery)
-                                                  .orElseThrow(() -> new MyException("批次不存在: " + batchDetail.getBatchNumber()));
+                        // 扣减库存
+                        Batch batch = inventoryPool.stockOut(product, batchDetail.getBatchId(), batchDetail.getBatchNumber(), batchDetail.getQuantity());
 
                         orderDetail.addBatchDetail(batch, batchDetail.getQuantity(), requestedPrice);
-                        // 扣减库存
-                        inventoryService.stockOut(product, batch, batchDetail.getQuantity());
                         // 记录库存流水 (销售出库)
                         inventoryTransactionService.recordTransactionForSales(product, batch, -batchDetail.getQuantity(), OperationType.销售出库, order);
                     }
                 }
             } else {
                // 非批次商品直接扣减库存
-               inventoryService.stockOut(product, itemRequest.getQuantity());
+               inventoryPool.stockOut(product, itemRequest.getQuantity());
                // 记录库存流水 (销售出库)
                inventoryTransactionService.recordTransactionForSales(product, null, -itemRequest.getQuantity(), OperationType.销售出库, order);
             }
-            // 在循环结束后，可能需要再次保存以更新计算后的总价等信息
-            // 如果 OrderDetail 的级联保存已经处理了总价更新，则可能不需要再次保存
-            // 但为了确保 InventoryTransaction 能关联到持久化的 Order，第一次保存是必要的
         }
-        
+        inventoryService.applyStockOut(inventoryPool);
+
         // 如果在循环中修改了 Order 的属性（例如总价），需要再次保存以更新
         // 如果 Order 的总价等是在 addOrderDetail 中通过计算并设置，并且 CascadeType.ALL 生效，
         // Hibernate 在事务提交时会自动更新 Order。但显式保存更清晰。
         order.calculateTotals(); // 确保在保存前计算总价
         orderRepository.save(order);
 
+        // 同一事务内累加每日销售汇总，更新商家最近下单时间和订单数
+        salesRollupService.recordOrder(order);
+        shopService.recordOrder(order.getShop().getId(), order.getCreateTime());
+        shopProductLatestBatchService.recordOrder(order);
+        // 提交后更新商品最早销售日期缓存，并使这些商品的预测结果失效
+        List<Integer> productIds = order.getOrderDetails()
+                                        .stream()
+                                        .map(detail -> detail.getProduct().getId())
+                                        .toList();
+        productService.recordSale(productIds, order.getCreateTime().toLocalDate());
+        forecastCache.invalidateAfterCommit(productIds);
+
+    }
+
+    /**
+     * 一次查询加载订单项涉及的商品
+     *
+     * @param items 订单项
+     * @return 商品ID -> 商品
+     */
+    private Map<Integer, Product> loadProducts(List<OrderCreateRequest.OrderItemRequest> items) {
+        List<Integer> productIds = items.stream()
+                                        .map(OrderCreateRequest.OrderItemRequest::getProductId)
+                                        .distinct()
+                                        .toList();
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productService.findList(ProductQuery.builder()
+                                                   .ids(productIds)
+                                                   .build())
+                             .stream()
+                             .collect(Collectors.toMap(Product::getId, Function.identity()));
     }
 
     /**
@@ -285,7 +361,25 @@ public class OrderService implements BaseRepository<Order, OrderQuery> {
             }
         }
 
-        // 3. 删除订单
+        // 3. 回退每日销售汇总，最早销售日期可能后移，提交后使缓存失效
+        salesRollupService.revertOrder(order);
+        productService.invalidateEarliestSaleDates();
+        forecastCache.invalidateAfterCommit(order.getOrderDetails()
+                                                 .stream()
+                                                 .map(detail -> detail.getProduct().getId())
+                                                 .toList());
+
+        // 4. 回退商家最近下单时间和订单数（按其余订单重新取最近下单时间），以及各批次商品的最近一次销售
+        shopService.revertOrder(order.getShop().getId(), order.getId());
+        shopProductLatestBatchService.revertOrder(order, order.getOrderDetails()
+                                                              .stream()
+                                                              .map(OrderDetail::getProduct)
+                                                              .filter(Product::isBatchManaged)
+                                                              .map(Product::getId)
+                                                              .distinct()
+                                                              .toList());
+
+        // 5. 删除订单
         orderRepository.delete(order);
     }
 
@@ -8,6 +8,7 @@ import com.example.domain.order.entity.QSaleBatchDetail;
 import com.example.domain.order.entity.SaleBatchDetail;
 import com.example.domain.order.repository.SaleBatchDetailRepository;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.SaleBatchDetailQuery;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -42,6 +43,11 @@ public class SaleBatchDetailService implements BaseRepository<SaleBatchDetail, S
     private final QBatch qBatch = QBatch.batch; // 查询批次的QueryDSL对象
     private final QOrderDetail qOrderDetail = QOrderDetail.orderDetail; // 查询订单详情的QueryDSL对象
 
+    @Override
+    public EntityId<SaleBatchDetail> entityId() {
+        return new EntityId<>(QSaleBatchDetail.saleBatchDetail.id, SaleBatchDetail::getId);
+    }
+
     @Override
     public JPAQuery<SaleBatchDetail> buildConditionQuery(SaleBatchDetailQuery query) {
         JPAQuery<SaleBatchDetail> jpaQuery = queryFactory
@@ -29,13 +29,14 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<String> findNamesByIds(@Param("ids") int[] ids);
 
     /**
-     * 根据商品ID查询最早销售日期
+     * 一次查询所有商品的最早销售日期
+     * 读取每日商品销售汇总表，按 (product_id, sale_date) 索引分组取最小值，不再逐个商品关联订单表
      *
-     * @param productId 商品ID
-     * @return 商品最早销售日期
+     * @return 每个有销售记录的商品及其最早销售日期
      */
-    @Query("SELECT MIN(o.createTime) FROM Order o JOIN o.orderDetails od WHERE od.product.id = :productId")
-    LocalDate findEarliestSaleDateByProductId(@Param("productId") Integer productId);
+    @Query("SELECT d.product.id AS productId, MIN(d.saleDate) AS earliestSaleDate " +
+           "FROM DailyProductSales d WHERE d.quantity > 0 GROUP BY d.product.id")
+    List<EarliestSaleDate> findEarliestSaleDates();
 
     /**
      * 检查商品名称是否已存在
@@ -48,4 +49,12 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
      * @return 商品列表
      */
     List<Product> findByExpiryMonitoringThresholdDaysIsNotNullAndBatchManagedIsTrue();
+
+    /**
+     * 商品最早销售日期投影
+     */
+    interface EarliestSaleDate {
+        Integer getProductId();
+        LocalDate getEarliestSaleDate();
+    }
 }
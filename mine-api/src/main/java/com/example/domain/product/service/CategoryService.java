@@ -8,6 +8,7 @@ import com.example.domain.product.mapper.CategoryMapper;
 import com.example.domain.product.repository.CategoryRepository;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.CategoryQuery;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -61,6 +62,11 @@ public class CategoryService implements BaseRepository<Category, CategoryQuery>
 
     }
 
+    @Override
+    public EntityId<Category> entityId() {
+        return new EntityId<>(QCategory.category.id, Category::getId);
+    }
+
     @Override
     public JPAQuery<Category> buildConditionQuery(CategoryQuery query) {
         QCategory qCategory = QCategory.category; // 查询类别的QueryDSL对象
@@ -6,6 +6,7 @@ import com.example.domain.batch.service.BatchService;
 import com.example.domain.inventory.entity.Inventory;
 import com.example.domain.inventory.repository.InventoryRepository;
 import com.example.domain.inventory.service.InventoryService;
+import com.example.domain.inventory.service.InventoryStockCache;
 import com.example.domain.product.dto.ProductDto;
 import com.example.domain.product.dto.ProductStockDTO;
 import com.example.domain.product.dto.ProductUpdateDto;
@@ -17,9 +18,13 @@ import com.example.domain.product.repository.ProductRepository;
 import com.example.domain.shop.service.ShopService;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
+import com.example.monitoring.service.ShopProductLatestBatchService;
 import com.example.query.CategoryQuery;
 import com.example.query.InventoryQuery;
 import com.example.query.ProductQuery;
+import com.example.utils.TransactionUtils;
+import com.example.utils.VersionedLoader;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
@@ -32,9 +37,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 产品管理服务
@@ -67,6 +71,36 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private InventoryStockCache inventoryStockCache; // 商品库存缓存
+    @Autowired
+    private ShopProductLatestBatchService shopProductLatestBatchService; // 商家商品最近一次批次销售（临期监控）
+
+    /**
+     * 商品最早销售日期缓存（商品ID -> 日期），首次使用时整体加载，之后随订单增量维护
+     */
+    private final Map<Integer, LocalDate> earliestSaleDates = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存是否已加载；订单取消可能使最早日期后移，此时置为 false 触发重新加载
+     */
+    private volatile boolean earliestSaleDatesLoaded = false;
+
+    /**
+     * 最早销售日期缓存的加载与失效协调；记录销售只会把日期提前，可以直接合并到加载结果，不作废加载
+     */
+    private final VersionedLoader earliestSaleDatesLoader = new VersionedLoader(this);
+
+    /**
+     * 缓存未加载期间记录的销售（商品ID -> 最早日期），由 this 锁保护，加载写入结果时合并
+     */
+    private final Map<Integer, LocalDate> salesDuringLoad = new HashMap<>();
+
+    /**
+     * 同一时间只由一个线程加载最早销售日期
+     */
+    private final Object earliestSaleDatesLoadLock = new Object();
+
 
     /**软删除商品 */
     public void deleteProduct(Integer productId) {
@@ -133,11 +167,21 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
                     .build())
                     .orElseThrow(() -> new MyException("产品不存在: " + productUpdateDto.getId()));
 
+            Integer oldThresholdDays = product.getExpiryMonitoringThresholdDays();
             Product update = productMapper.partialUpdate(productUpdateDto, product);
             productRepository.save(update);
+            // 临期阈值变化时重新计算该商品最近一次批次销售的临期日期
+            if (!Objects.equals(oldThresholdDays, update.getExpiryMonitoringThresholdDays())) {
+                shopProductLatestBatchService.updateThreshold(update.getId(), update.getExpiryMonitoringThresholdDays());
+            }
         }
     }
 
+    @Override
+    public EntityId<Product> entityId() {
+        return new EntityId<>(QProduct.product.id, Product::getId);
+    }
+
     /**
      * 构建基本条件查询方法
      * 根据传入的查询对象构建一个包含基本条件的JPA查询
@@ -231,36 +275,126 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
                                             .orderBy(category.sort.asc(), product.sort.asc())
                                             .fetch();
         
-        // 获取产品库存信息
-        List<ProductStockDTO> productStocks = inventoryService.getProductStocks(products.stream()
-                                                                               .map(Product::getId)
-                                                                               .toList());
-        
+        // 获取产品库存信息（来自库存缓存，与商品列表一一对应）
+        List<ProductStockDTO> productStocks = inventoryStockCache.getProductStocks(products.stream()
+                                                                                   .map(Product::getId)
+                                                                                   .toList());
+
         // 组装结果
-        return products.stream()
-                      .map(p -> {
-                          // 映射基础信息
-                          ProductDto productDto = productMapper.toProductDto(p);
-                          // 设置库存信息
-                          productDto.setProductStockDTO(productStocks.stream()
-                                                                    .filter(stockInfo -> stockInfo.getProductId()
-                                                                                                 .equals(p.getId()))
-                                                                    .findFirst()
-                                                                    .orElseThrow(() -> new MyException("商品库存信息不存在")));
-                          return productDto;
-                      })
-                      .toList();
+        List<ProductDto> result = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            // 映射基础信息
+            ProductDto productDto = productMapper.toProductDto(products.get(i));
+            // 设置库存信息
+            productDto.setProductStockDTO(productStocks.get(i));
+            result.add(productDto);
+        }
+        return result;
     }
 
     /**
      * 根据商品ID获取商品最早销售日期
      *
      * @param productId 商品ID
-     * @return 商品最早销售日期
+     * @return 商品最早销售日期，无销售记录时返回 null
      */
     public LocalDate getEarliestSaleDateByProductId(Integer productId) {
-        // 调用ProductRepository的方法获取最早销售日期
-        return productRepository.findEarliestSaleDateByProductId(productId);
+        return getEarliestSaleDates().get(productId);
+    }
+
+    /**
+     * 获取所有商品的最早销售日期
+     * 缓存未加载时一次查询全部商品，之后直接返回缓存，供预测流程整体使用
+     *
+     * @return 商品ID -> 最早销售日期 的不可变快照，无销售记录的商品不在其中
+     */
+    public Map<Integer, LocalDate> getEarliestSaleDates() {
+        if (!earliestSaleDatesLoaded) {
+            loadEarliestSaleDates();
+        }
+        return Map.copyOf(earliestSaleDates);
+    }
+
+    /**
+     * 记录商品销售，在事务提交后更新最早销售日期缓存
+     *
+     * @param productIds 销售的商品ID
+     * @param saleDate   销售日期
+     */
+    public void recordSale(Collection<Integer> productIds, LocalDate saleDate) {
+        List<Integer> ids = List.copyOf(productIds);
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                for (Integer productId : ids) {
+                    earliestSaleDates.merge(productId, saleDate, ProductService::earlier);
+                    if (!earliestSaleDatesLoaded) {
+                        salesDuringLoad.merge(productId, saleDate, ProductService::earlier);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 取消销售后使最早销售日期缓存失效，下次读取时重新加载
+     */
+    public void invalidateEarliestSaleDates() {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                earliestSaleDatesLoader.bump();
+                earliestSaleDatesLoaded = false;
+            }
+        });
+    }
+
+    /**
+     * 加载最早销售日期缓存
+     * 查询期间记录的销售合并到查询结果中（取较早的日期，查询已包含时不受影响）；
+     * 查询期间缓存失效（订单取消）时重新查询，持续失效则仍写入最后一次结果，但保持未加载状态，下次读取时再次加载
+     */
+    private void loadEarliestSaleDates() {
+        synchronized (earliestSaleDatesLoadLock) {
+            boolean done = earliestSaleDatesLoader.load(
+                    () -> {
+                        if (earliestSaleDatesLoaded) {
+                            return true;
+                        }
+                        salesDuringLoad.clear(); // 此后记录的销售可能不在本次查询结果中
+                        return false;
+                    },
+                    () -> {
+                        Map<Integer, LocalDate> loaded = new HashMap<>();
+                        for (ProductRepository.EarliestSaleDate row : productRepository.findEarliestSaleDates()) {
+                            loaded.put(row.getProductId(), row.getEarliestSaleDate());
+                        }
+                        return loaded;
+                    },
+                    loaded -> {
+                        installEarliestSaleDates(loaded);
+                        earliestSaleDatesLoaded = true;
+                        log.info("已加载 {} 个商品的最早销售日期", loaded.size());
+                    },
+                    this::installEarliestSaleDates);
+            if (!done) {
+                log.warn("最早销售日期缓存加载期间持续失效，先使用本次查询结果，下次读取时重新加载");
+            }
+        }
+    }
+
+    /**
+     * 用查询结果替换缓存并合并查询期间记录的销售，调用方必须持有 this 锁
+     */
+    private void installEarliestSaleDates(Map<Integer, LocalDate> loaded) {
+        Map<Integer, LocalDate> merged = new HashMap<>(loaded);
+        salesDuringLoad.forEach((productId, saleDate) -> merged.merge(productId, saleDate, ProductService::earlier));
+        salesDuringLoad.clear();
+        // 先覆盖再剔除，避免并发读取时看到空缓存
+        earliestSaleDates.putAll(merged);
+        earliestSaleDates.keySet().retainAll(merged.keySet());
+    }
+
+    private static LocalDate earlier(LocalDate a, LocalDate b) {
+        return b.isBefore(a) ? b : a;
     }
 
     @Transactional
@@ -307,6 +441,7 @@ public class   ProductService implements BaseRepository<Product, ProductQuery> {
             // 3.2 更新库存记录以关联到新批次
             existingInventory.setBatch(initialBatch); // 关联批次
             inventoryRepository.save(existingInventory); // 保存更新
+            inventoryService.reloadAfterCommit(productId); // 库存记录改为关联批次，缓存和批次索引按数据库重新加载
             log.info("商品ID: {}, 现有库存 {} 已关联到初始批次ID: {}", productId, currentQuantity, initialBatch.getId());
 
         } else {
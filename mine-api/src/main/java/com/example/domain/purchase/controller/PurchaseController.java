@@ -1,5 +1,10 @@
 package com.example.domain.purchase.controller;
 
+import com.example.domain.forecast.dto.ForecastCacheStats;
+import com.example.domain.forecast.dto.ForecastExecutorStats;
+import com.example.domain.forecast.dto.ProphetCircuitStats;
+import com.example.domain.forecast.service.ForecastService;
+import com.example.domain.forecast.service.ProphetCircuitBreaker;
 import com.example.domain.order.dto.PageResponse;
 import com.example.domain.product.service.ProductService;
 import com.example.domain.purchase.dto.ProductWithPurchaseInfoDto;
@@ -42,6 +47,12 @@ public class PurchaseController {
     @Autowired
     private PurchaseMapper purchaseMapper;
 
+    @Autowired
+    private ForecastService forecastService;
+
+    @Autowired
+    private ProphetCircuitBreaker prophetCircuitBreaker;
+
     /**
      * 创建采购订单并入库
      *
@@ -122,6 +133,39 @@ public class PurchaseController {
         return purchaseService.getOnSaleProductsWithPurchaseInfo();
     }
 
+    /**
+     * 获取预测结果缓存的命中统计
+     *
+     * @return 缓存统计信息
+     */
+    @GetMapping("/forecast-cache/stats")
+    @Operation(summary = "获取预测结果缓存统计")
+    public ForecastCacheStats getForecastCacheStats() {
+        return forecastService.getCacheStats();
+    }
+
+    /**
+     * 获取预测任务执行器统计信息
+     *
+     * @return 排队时间、执行时间及 Prophet 并发统计
+     */
+    @GetMapping("/forecast-executor/stats")
+    @Operation(summary = "获取预测任务执行器统计")
+    public ForecastExecutorStats getForecastExecutorStats() {
+        return forecastService.getExecutorStats();
+    }
+
+    /**
+     * 获取 Prophet 熔断器状态
+     *
+     * @return 熔断器状态及累计次数
+     */
+    @GetMapping("/forecast-circuit/stats")
+    @Operation(summary = "获取Prophet熔断器状态")
+    public ProphetCircuitStats getProphetCircuitStats() {
+        return prophetCircuitBreaker.stats();
+    }
+
     /**
      * 处理采购单入库
      *
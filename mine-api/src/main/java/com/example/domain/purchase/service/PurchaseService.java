@@ -3,6 +3,7 @@ package com.example.domain.purchase.service;
 import com.example.domain.batch.entity.Batch;
 import com.example.domain.batch.entity.QBatch;
 import com.example.domain.batch.service.BatchService;
+import com.example.domain.forecast.service.ForecastCache;
 import com.example.domain.forecast.service.ForecastService;
 import com.example.domain.inventory.dto.OperationType;
 import com.example.domain.inventory.entity.Inventory;
@@ -18,10 +19,11 @@ import com.example.domain.purchase.dto.PurchaseDto;
 import com.example.domain.purchase.entity.*;
 import com.example.domain.purchase.mapper.PurchaseMapper;
 import com.example.domain.purchase.repository.PurchaseRepository;
-import com.example.domain.statistics.dto.response.SalesStatisticsDTO;
+import com.example.domain.statistics.dto.SalesMatrix;
 import com.example.domain.statistics.service.StatisticsService;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.InventoryQuery;
 import com.example.query.ProductQuery;
 import com.example.query.PurchaseQuery;
@@ -40,7 +42,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 采购管理服务
@@ -77,6 +78,11 @@ public class PurchaseService implements BaseRepository<Purchase, PurchaseQuery>
     @Autowired
     private InventoryTransactionService inventoryTransactionService; // 注入库存交易服务
 
+    @Override
+    public EntityId<Purchase> entityId() {
+        return new EntityId<>(QPurchase.purchase.id, Purchase::getId);
+    }
+
     /**
      * 根据查询条件构建基本条件查询
      *
@@ -285,11 +291,7 @@ public class PurchaseService implements BaseRepository<Purchase, PurchaseQuery>
                                                             productWithPurchaseInfoDto.setCurrentStock(productDto.getProductStockDTO()
                                                                                                                  .getTotalInventory());
 
-                                                            map.entrySet()
-                                                               .stream()
-                                                               .filter(entry -> entry.getKey() == productDto.getId())
-                                                               .findFirst()
-                                                               .map(Map.Entry::getValue)
+                                                            Optional.ofNullable(map.get(productDto.getId()))
                                                                .ifPresentOrElse(
                                                                        v -> {
                                                                            productWithPurchaseInfoDto.setWarningQuantity(v.get("warningQuantity"));
@@ -325,68 +327,32 @@ public class PurchaseService implements BaseRepository<Purchase, PurchaseQuery>
                                      .minusDays(1);
         LocalDate startDate = endDate.minusDays(230); // 获取约1年多的数据
         log.info("开始计算采购数量，获取历史数据范围: {} 到 {}", startDate, endDate);
-        Map<LocalDate, SalesStatisticsDTO> historicalDataMap = statisticsService.calculateDailyStatistics(startDate, endDate);
-        log.info("获取到 {} 天的历史销售统计数据。", historicalDataMap.size());
+        // 预测缓存版本号在读取历史数据之前取得，期间提交的订单、退货不会让旧数据的预测结果被缓存到新版本下
+        ForecastCache.Versions versions = forecastService.snapshotVersions();
+        SalesMatrix salesMatrix = statisticsService.buildSalesMatrix(startDate, endDate);
+        log.info("获取到 {} 天、{} 个商品的历史销售矩阵。", salesMatrix.getDays(), salesMatrix.getProductCount());
+        // 所有商品的最早销售日期，整批预测只取一次
+        Map<Integer, LocalDate> earliestSaleDates = productService.getEarliestSaleDates();
+
+        // 2. 一次批量预测所有商品（同一策略的商品合并为一次调用）
+        Map<Integer, double[]> forecasts = forecastService.forecastBatch(productIds, salesMatrix, earliestSaleDates, versions, forecastHorizonDays);
 
-        // 2. 使用自定义线程池的异步方式预测所有商品，提高效率并控制资源使用
-        List<CompletableFuture<Map.Entry<Integer, double[]>>> futures = new ArrayList<>();
-        
-        // 为每个商品创建一个异步任务，使用自定义线程池
-        for (int productId : productIds) {
-            CompletableFuture<double[]> forecastFuture = forecastService.forecastProductTotalWithCustomExecutor(
-                productId, 
-                historicalDataMap, 
-                forecastHorizonDays
-            );
-            
-            // 将结果和商品ID关联起来
-            CompletableFuture<Map.Entry<Integer, double[]>> resultFuture = forecastFuture.thenApply(
-                forecast -> new AbstractMap.SimpleEntry<>(productId, forecast)
-            );
-            
-            futures.add(resultFuture);
-            log.debug("已提交商品ID: {} 的异步预测任务", productId);
-        }
-        
-        // 等待所有异步任务完成并收集结果
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        
         // 处理每个预测结果
-        for (CompletableFuture<Map.Entry<Integer, double[]>> future : futures) {
-            try {
-                Map.Entry<Integer, double[]> entry = future.get();
-                int productId = entry.getKey();
-                double[] forecast = entry.getValue();
-                
-                // 计算预测总销量
-                double totalForecastQuantity = Arrays.stream(forecast).sum();
-                log.info("商品ID: {} 预测未来 {} 天总销量: {}", productId, forecastHorizonDays, totalForecastQuantity);
-                
-                // 计算预警库存（第一天的预测销量）
-                double warningStock = Arrays.stream(forecast).limit(warningStockDays).sum();
-                log.info("商品ID: {} 预警库存: {}", productId, warningStock);
-                
-                // 存储结果 (确保为整数)
-                productIdQuantityMap.put(productId, Map.of(
-                        "forecastQuantity", (int) Math.round(totalForecastQuantity),
-                        "warningQuantity", (int) Math.round(warningStock)
-                ));
-            } catch (Exception e) {
-                // 处理异常情况
-                int productId = -1;
-                try {
-                    // 尝试获取商品ID（如果可能的话）
-                    productId = future.get().getKey();
-                } catch (Exception ex) {
-                    log.error("无法获取预测失败商品的ID: {}", ex.getMessage());
-                }
-                
-                if (productId != -1) {
-                    log.error("商品ID: {} 预测过程中发生错误: {}", productId, e.getMessage());
-                    productIdQuantityMap.put(productId, null);
-                }
-            }
-        }
+        forecasts.forEach((productId, forecast) -> {
+            // 计算预测总销量
+            double totalForecastQuantity = Arrays.stream(forecast).sum();
+            log.info("商品ID: {} 预测未来 {} 天总销量: {}", productId, forecastHorizonDays, totalForecastQuantity);
+
+            // 计算预警库存（前几天的预测销量）
+            double warningStock = Arrays.stream(forecast).limit(warningStockDays).sum();
+            log.info("商品ID: {} 预警库存: {}", productId, warningStock);
+
+            // 存储结果 (确保为整数)
+            productIdQuantityMap.put(productId, Map.of(
+                    "forecastQuantity", (int) Math.round(totalForecastQuantity),
+                    "warningQuantity", (int) Math.round(warningStock)
+            ));
+        });
 
         log.info("采购数量计算完成，成功预测 {} 个商品。", productIdQuantityMap.values()
                                                                             .stream()
@@ -507,27 +473,14 @@ public class PurchaseService implements BaseRepository<Purchase, PurchaseQuery>
         // 计算历史销售数据的时间范围
         LocalDate endDate = LocalDate.now().minusDays(1);
         LocalDate startDate = endDate.minusDays(230);
-        // 获取历史销售数据，供预测模型使用
-        Map<LocalDate, SalesStatisticsDTO> historicalDataMap = statisticsService.calculateDailyStatistics(startDate, endDate);
-
-        // 使用自定义线程池进行并发预测，提高效率并控制资源使用
-        Map<Integer, CompletableFuture<double[]>> forecastFutures = new HashMap<>();
-        // 为每个商品创建异步预测任务
-        for (ProductBudgetInfo info : productInfoList) {
-            // 使用自定义线程池而不是@Async注解
-            forecastFutures.put(
-                info.getProductId(),
-                forecastService.forecastProductTotalWithCustomExecutor(
-                    info.getProductId(),
-                    historicalDataMap,
-                    forecastDays
-                )
-            );
-            log.debug("已提交商品[{}]的预测任务", info.getProductName());
-        }
-        
-        // 等待所有预测完成
-        CompletableFuture.allOf(forecastFutures.values().toArray(new CompletableFuture[0])).join();
+        // 获取历史销售数据，供预测模型使用（预测缓存版本号在读取之前取得）
+        ForecastCache.Versions versions = forecastService.snapshotVersions();
+        SalesMatrix salesMatrix = statisticsService.buildSalesMatrix(startDate, endDate);
+        Map<Integer, LocalDate> earliestSaleDates = productService.getEarliestSaleDates();
+
+        // 一次批量预测所有商品
+        int[] productIds = productInfoList.stream().mapToInt(ProductBudgetInfo::getProductId).toArray();
+        Map<Integer, double[]> forecasts = forecastService.forecastBatch(productIds, salesMatrix, earliestSaleDates, versions, forecastDays);
         log.info("所有预测任务已完成，开始处理结果");
         
         // 存储每个商品的缺口销量
@@ -539,7 +492,7 @@ public class PurchaseService implements BaseRepository<Purchase, PurchaseQuery>
         for (ProductBudgetInfo info : productInfoList) {
             try {
                 // 获取预测结果
-                double[] forecast = forecastFutures.get(info.getProductId()).get();
+                double[] forecast = forecasts.get(info.getProductId());
                 // 计算预测期内的总销量
                 double forecastSum = Arrays.stream(forecast).sum();
                 // 计算缺口销量 = max(预测销量 - 当前库存, 0)，避免负值
@@ -5,6 +5,7 @@ import com.example.domain.inventory.dto.OperationType; // 添加 OperationType 
 import com.example.domain.inventory.service.InventoryService;
 import com.example.domain.inventory.service.InventoryTransactionService; // 添加 InventoryTransactionService 导入
 import com.example.domain.batch.service.BatchService;
+import com.example.domain.forecast.service.ForecastCache;
 import com.example.query.BatchQuery;
 import com.example.domain.batch.entity.Batch;
 import com.example.domain.product.entity.Product;
@@ -21,8 +22,10 @@ import com.example.domain.returnOrder.repository.ReturnOrderRepository;
 import com.example.domain.shop.entity.QShop;
 import com.example.domain.shop.entity.Shop;
 import com.example.domain.shop.service.ShopService;
+import com.example.domain.statistics.service.SalesRollupService;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.ProductQuery;
 import com.example.query.ReturnOrderQuery;
 import com.example.query.ShopQuery;
@@ -37,6 +40,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -72,6 +76,15 @@ public class ReturnOrderService implements BaseRepository<ReturnOrder, ReturnOrd
     private InventoryTransactionService inventoryTransactionService; // 注入库存交易服务
     @Autowired
     private BatchService batchService; // 注入批次服务
+    @Autowired
+    private SalesRollupService salesRollupService; // 销售汇总维护服务
+    @Autowired
+    private ForecastCache forecastCache; // 预测结果缓存
+
+    @Override
+    public EntityId<ReturnOrder> entityId() {
+        return new EntityId<>(QReturnOrder.returnOrder.id, ReturnOrder::getId);
+    }
 
     /**
      * 构建基本条件查询
@@ -161,6 +174,7 @@ public class ReturnOrderService implements BaseRepository<ReturnOrder, ReturnOrd
         
         // 3. 计算退货总金额
         BigDecimal totalAmount = BigDecimal.ZERO;
+        List<ReturnOrderDetail> savedDetails = new ArrayList<>();
         
         // 4. 保存退货订单
         ReturnOrder savedReturnOrder = returnOrderRepository.save(returnOrder);
@@ -188,6 +202,7 @@ public class ReturnOrderService implements BaseRepository<ReturnOrder, ReturnOrd
             detail.setType(detailRequest.getType());
             detail.setQuantity(detailRequest.getQuantity());
             returnOrderDetailRepository.save(detail);
+            savedDetails.add(detail);
             
             // 累计退货金额
             totalAmount = totalAmount.add(detailRequest.getAmount());
@@ -216,6 +231,13 @@ public class ReturnOrderService implements BaseRepository<ReturnOrder, ReturnOrd
         // 6. 更新退货订单总金额
         savedReturnOrder.setAmount(totalAmount);
         returnOrderRepository.save(savedReturnOrder);
+
+        // 7. 同一事务内累加每日退货汇总
+        salesRollupService.recordReturn(savedReturnOrder, savedDetails);
+        forecastCache.invalidateAfterCommit(savedDetails.stream()
+                                                        .filter(detail -> detail.getProduct() != null)
+                                                        .map(detail -> detail.getProduct().getId())
+                                                        .toList());
     }
 
     /**
@@ -258,6 +280,13 @@ public class ReturnOrderService implements BaseRepository<ReturnOrder, ReturnOrd
             }
         }
         
+        // 回退每日退货汇总
+        salesRollupService.revertReturn(returnOrder, details);
+        forecastCache.invalidateAfterCommit(details.stream()
+                                                   .filter(detail -> detail.getProduct() != null)
+                                                   .map(detail -> detail.getProduct().getId())
+                                                   .toList());
+
         // 明确删除所有关联的退货订单详情
         for (ReturnOrderDetail detail : details) {
             returnOrderDetailRepository.delete(detail);
@@ -174,5 +174,11 @@ public class ShopController {
         return shops.stream().map(shopMapper::toShopDto).collect(Collectors.toList());
     }
 
+    @Operation(summary = "重建商家订单统计", description = "从订单表重新计算各商家的最近下单时间和订单数，用于首次上线回填或数据修正")
+    @PostMapping("/order-stats/rebuild")
+    public int rebuildOrderStats() {
+        return shopService.rebuildOrderStats();
+    }
+
 
 }
@@ -7,6 +7,7 @@ import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @AllArgsConstructor
@@ -56,6 +57,14 @@ public class Shop {
     @Column(name = "slow", nullable = false)
     private boolean slow;
 
+    // 最近一次下单时间和订单数，由 ShopRepository 的 UPDATE 语句随订单创建、取消维护，实体保存时不写入
+    @Column(name = "last_order_time", insertable = false, updatable = false)
+    private LocalDateTime lastOrderTime;
+
+    @ColumnDefault("0")
+    @Column(name = "order_count", nullable = false, insertable = false, updatable = false)
+    private int orderCount;
+
 
 
 }
\ No newline at end of file
@@ -3,8 +3,47 @@ package com.example.domain.shop.repository;
 
 import com.example.domain.shop.entity.Shop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 
 public interface ShopRepository extends JpaRepository<Shop, Integer>  {
 
+    /**
+     * 新订单：订单数加一，最近下单时间取较晚者
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE shop
+        SET order_count = order_count + 1,
+            last_order_time = CASE WHEN last_order_time IS NULL OR last_order_time < :orderTime THEN :orderTime ELSE last_order_time END
+        WHERE id = :shopId
+        """, nativeQuery = true)
+    int recordOrder(@Param("shopId") Integer shopId, @Param("orderTime") LocalDateTime orderTime);
+
+    /**
+     * 取消订单：订单数减一，最近下单时间按 (shop_id, create_time, id) 索引取其余订单的最大值
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE shop
+        SET order_count = GREATEST(order_count - 1, 0),
+            last_order_time = (SELECT MAX(o.create_time) FROM `order` o WHERE o.shop_id = :shopId AND o.id <> :orderId)
+        WHERE id = :shopId
+        """, nativeQuery = true)
+    int revertOrder(@Param("shopId") Integer shopId, @Param("orderId") Integer orderId);
 
+    /**
+     * 从订单表重新计算全部商家的最近下单时间和订单数（回填或修正）
+     * 用相关子查询而不是 MySQL 特有的 UPDATE ... JOIN，按 (shop_id, create_time, id) 索引逐个商家统计
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE shop
+        SET order_count = (SELECT COUNT(*) FROM `order` o WHERE o.shop_id = shop.id),
+            last_order_time = (SELECT MAX(o.create_time) FROM `order` o WHERE o.shop_id = shop.id)
+        """, nativeQuery = true)
+    int rebuildOrderStats();
 }
@@ -1,7 +1,6 @@
 package com.example.domain.shop.service;
 
 
-import com.example.domain.order.entity.QOrder;
 import com.example.domain.product.entity.QProduct;
 import com.example.domain.shop.dto.ShopArrearsDto;
 import com.example.domain.shop.dto.ShopDto;
@@ -12,16 +11,18 @@ import com.example.domain.shop.mapper.ShopMapper;
 import com.example.domain.shop.repository.ShopRepository;
 import com.example.exception.MyException;
 import com.example.interfaces.BaseRepository;
+import com.example.interfaces.EntityId;
 import com.example.query.ShopQuery;
 import com.example.utils.ChinesePinyinFirstLetter;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -92,6 +93,11 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
     }
 
 
+    @Override
+    public EntityId<Shop> entityId() {
+        return new EntityId<>(QShop.shop.id, Shop::getId);
+    }
+
     @Override
     public JPAQuery<Shop> buildConditionQuery(ShopQuery query) {
         JPAQuery<Shop> jpaQuery = queryFactory
@@ -173,7 +179,6 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
      * @return 活跃商家实体列表 (List<Shop>)
      */
     public List<Shop> findActiveShopsQueryDSL(int daysThreshold) {
-        QOrder order = QOrder.order; // 获取订单实体的 Q 类实例
         // 计算截止日期时间点（例如：90天前的 00:00:00）
         LocalDateTime cutoffDateTime = LocalDate.now()
                                                 .minusDays(daysThreshold)
@@ -181,22 +186,12 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
 
         log.debug("使用 QueryDSL 查询近 {} 天活跃商家...", daysThreshold);
 
-
+        // 按冗余的最近下单时间做范围查询，走 (is_del, last_order_time) 索引
         List<Shop> activeShops = queryFactory
                 .selectFrom(shop) // SELECT * FROM shop s
                 .where(
                         shop.del.isFalse() // WHERE s.is_del = false
-                                .and( // AND
-                                        // 使用 EXISTS 子查询判断是否存在符合条件的订单
-                                        JPAExpressions
-                                                .selectOne() // SELECT 1
-                                                .from(order) // FROM `order` o
-                                                .where(
-                                                        order.shop.id.eq(shop.id) // WHERE o.shop_id = s.id
-                                                                     .and(order.createTime.goe(cutoffDateTime)) // AND o.create_time >= cutoffDateTime
-                                                )
-                                                .exists() // EXISTS (...)
-                                )
+                                .and(shop.lastOrderTime.goe(cutoffDateTime)) // AND s.last_order_time >= cutoffDateTime
                 )
                 // 与默认查询保持一致的排序
                 .orderBy(shop.pinyin.asc(), shop.createTime.desc())
@@ -216,7 +211,6 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
      */
 
     public List<Shop> findInactiveShopsQueryDSL(int daysThreshold) {
-        QOrder order = QOrder.order;
         LocalDateTime cutoffDateTime = LocalDate.now()
                                                 .minusDays(daysThreshold)
                                                 .atStartOfDay();
@@ -227,16 +221,9 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
                 .selectFrom(shop) // SELECT * FROM shop s
                 .where(
                         shop.del.isFalse() // WHERE s.is_del = false
-                                .and( // AND
-                                        // 使用 NOT EXISTS 子查询判断是否不存在符合条件的订单
-                                        JPAExpressions
-                                                .selectOne() // SELECT 1
-                                                .from(order) // FROM `order` o
-                                                .where(
-                                                        order.shop.id.eq(shop.id) // WHERE o.shop_id = s.id
-                                                                     .and(order.createTime.goe(cutoffDateTime)) // AND o.create_time >= cutoffDateTime
-                                                )
-                                                .notExists() // NOT EXISTS (...)
+                                .and( // AND 从未下单或最近下单早于截止时间
+                                        shop.lastOrderTime.isNull()
+                                                          .or(shop.lastOrderTime.lt(cutoffDateTime))
                                 )
                 )
                 // 与默认查询保持一致的排序
@@ -248,4 +235,40 @@ public class ShopService implements BaseRepository<Shop, ShopQuery> {
 
     }
 
+    /**
+     * 新订单后更新商家的最近下单时间和订单数，与订单在同一事务内
+     *
+     * @param shopId    商家ID
+     * @param orderTime 下单时间
+     */
+    @Transactional
+    public void recordOrder(Integer shopId, LocalDateTime orderTime) {
+        shopRepository.recordOrder(shopId, orderTime);
+    }
+
+    /**
+     * 取消订单后更新商家的最近下单时间和订单数，与订单在同一事务内
+     *
+     * @param shopId  商家ID
+     * @param orderId 被取消的订单ID
+     */
+    @Transactional
+    public void revertOrder(Integer shopId, Integer orderId) {
+        shopRepository.revertOrder(shopId, orderId);
+    }
+
+    /**
+     * 从订单表重新计算全部商家的最近下单时间和订单数
+     * 首次上线回填，之后每日凌晨执行一次，修正直接改库等绕过业务代码造成的偏差
+     *
+     * @return 更新的商家数
+     */
+    @Scheduled(cron = "${shop.order-stats.rebuild-cron:0 40 3 * * ?}")
+    @Transactional
+    public int rebuildOrderStats() {
+        int updated = shopRepository.rebuildOrderStats();
+        log.info("商家订单统计已重建，更新 {} 个商家", updated);
+        return updated;
+    }
+
 }
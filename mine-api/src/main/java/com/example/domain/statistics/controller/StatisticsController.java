@@ -89,5 +89,18 @@ public class StatisticsController {
         );
     }
 
+    @Operation(summary = "重建每日销售汇总数据")
+    @PostMapping("/rollup/rebuild")
+    public void rebuildSalesRollup(
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate
+    ) {
+        statisticsService.rebuildSalesRollup(startDate, endDate);
+    }
 
+    @Operation(summary = "结账已过完的月份，生成月度销售汇总")
+    @PostMapping("/rollup/close-months")
+    public int closeSalesMonths() {
+        return statisticsService.closeSalesMonths();
+    }
 }
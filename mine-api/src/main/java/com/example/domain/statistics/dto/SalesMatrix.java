@@ -0,0 +1,179 @@
+package com.example.domain.statistics.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * 商品日销售矩阵（列式存储）
+ * <p>
+ * 以 (商品下标 × 日期偏移) 组织的稠密矩阵，数量、销售额、利润分别存放在连续的基本类型数组中，
+ * 同一商品的数据按日期连续排列，取单个商品的时间序列只需一次 O(天数) 的数组拷贝，不产生装箱对象。
+ * 商品ID按升序存放，通过二分查找定位商品下标。
+ */
+public class SalesMatrix {
+
+    /**
+     * 矩阵中可提取的指标
+     */
+    public enum Metric {
+        QUANTITY, // 销售数量
+        SALES,    // 销售额
+        PROFIT    // 利润
+    }
+
+    /**
+     * 第一天（偏移 0 对应的日期）
+     */
+    @Getter
+    private final LocalDate startDate;
+
+    /**
+     * 天数（列数）
+     */
+    @Getter
+    private final int days;
+
+    /**
+     * 升序排列的商品ID（行）
+     */
+    private final int[] productIds;
+
+    private final int[] quantity;
+    private final double[] sales;
+    private final double[] profit;
+
+    /**
+     * 创建一个全零矩阵
+     *
+     * @param startDate  开始日期（包含）
+     * @param endDate    结束日期（包含）
+     * @param productIds 商品ID，可以无序、可以重复
+     */
+    public SalesMatrix(LocalDate startDate, LocalDate endDate, int[] productIds) {
+        this.startDate = startDate;
+        this.days = Math.max((int) ChronoUnit.DAYS.between(startDate, endDate) + 1, 0);
+        this.productIds = Arrays.stream(productIds).distinct().sorted().toArray();
+        int cells = this.productIds.length * days;
+        this.quantity = new int[cells];
+        this.sales = new double[cells];
+        this.profit = new double[cells];
+    }
+
+    /**
+     * 结束日期（包含）
+     */
+    public LocalDate getEndDate() {
+        return startDate.plusDays(days - 1L);
+    }
+
+    /**
+     * 商品数量（行数）
+     */
+    public int getProductCount() {
+        return productIds.length;
+    }
+
+    /**
+     * 获取矩阵包含的商品ID（升序，返回副本）
+     */
+    public int[] getProductIds() {
+        return productIds.clone();
+    }
+
+    /**
+     * 商品ID对应的行下标
+     *
+     * @return 行下标，不存在时返回负数
+     */
+    public int indexOf(int productId) {
+        return Arrays.binarySearch(productIds, productId);
+    }
+
+    /**
+     * 日期对应的列偏移
+     *
+     * @return 列偏移，可能越界（调用方自行判断）
+     */
+    public int offsetOf(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(startDate, date);
+    }
+
+    /**
+     * 列偏移对应的日期
+     */
+    public LocalDate dateAt(int offset) {
+        return startDate.plusDays(offset);
+    }
+
+    /**
+     * 累加一个单元格，用于构建矩阵；商品或日期不在矩阵范围内时忽略
+     */
+    public void add(int productId, LocalDate date, int quantity, double sales, double profit) {
+        int row = indexOf(productId);
+        int offset = offsetOf(date);
+        if (row < 0 || offset < 0 || offset >= days) {
+            return;
+        }
+        int cell = row * days + offset;
+        this.quantity[cell] += quantity;
+        this.sales[cell] += sales;
+        this.profit[cell] += profit;
+    }
+
+    /**
+     * 取单个商品的完整时间序列
+     */
+    public double[] series(int productId, Metric metric) {
+        return series(productId, metric, 0);
+    }
+
+    /**
+     * 取单个商品从指定列偏移开始到最后一天的时间序列
+     *
+     * @param productId  商品ID
+     * @param metric     指标
+     * @param fromOffset 起始列偏移（小于 0 按 0 处理）
+     * @return 按日期排列的数组；商品不在矩阵中时返回同长度的全零数组
+     */
+    public double[] series(int productId, Metric metric, int fromOffset) {
+        int from = Math.min(Math.max(fromOffset, 0), days);
+        double[] result = new double[days - from];
+        int row = indexOf(productId);
+        if (row < 0) {
+            return result;
+        }
+        int base = row * days + from;
+        switch (metric) {
+            case QUANTITY -> {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = quantity[base + i];
+                }
+            }
+            case SALES -> System.arraycopy(sales, base, result, 0, result.length);
+            case PROFIT -> System.arraycopy(profit, base, result, 0, result.length);
+        }
+        return result;
+    }
+
+    /**
+     * 商品在矩阵范围内第一次有销量的列偏移
+     *
+     * @return 列偏移，无销量或商品不存在时返回 -1
+     */
+    public int firstSaleOffset(int productId) {
+        int row = indexOf(productId);
+        if (row < 0) {
+            return -1;
+        }
+        int base = row * days;
+        for (int i = 0; i < days; i++) {
+            if (quantity[base + i] > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
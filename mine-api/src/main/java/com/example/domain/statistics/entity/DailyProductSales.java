@@ -0,0 +1,76 @@
+package com.example.domain.statistics.entity;
+
+import com.example.domain.product.entity.Product;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 每日商品销售汇总实体类
+ * 按 (日期, 商品) 预聚合的销量、销售额和利润，由订单创建/取消及退货时增量维护
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "daily_product_sales", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"sale_date", "product_id"})
+       })
+public class DailyProductSales {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 销售日期
+     */
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    /**
+     * 商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    private Product product;
+
+    /**
+     * 销售数量
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    /**
+     * 销售总金额
+     */
+    @Column(name = "total_sales", precision = 12, scale = 2, nullable = false)
+    private BigDecimal totalSales = BigDecimal.ZERO;
+
+    /**
+     * 利润总额
+     */
+    @Column(name = "total_profit", precision = 12, scale = 2, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+
+    /**
+     * 退货数量（仅退货退款类型），不计入销量
+     */
+    @Column(name = "return_quantity", nullable = false)
+    private Integer returnQuantity = 0;
+
+    /**
+     * 退款金额，不计入销售额
+     */
+    @Column(name = "return_amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal returnAmount = BigDecimal.ZERO;
+}
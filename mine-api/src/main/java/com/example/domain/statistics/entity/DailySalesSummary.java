@@ -0,0 +1,45 @@
+package com.example.domain.statistics.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 每日销售汇总实体类
+ * 按天预聚合的订单数、销售额和利润，由订单创建/取消时增量维护
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "daily_sales_summary", schema = "mine")
+public class DailySalesSummary {
+    /**
+     * 销售日期（主键）
+     */
+    @Id
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    /**
+     * 订单数
+     */
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    /**
+     * 销售总金额
+     */
+    @Column(name = "total_sales", precision = 12, scale = 2, nullable = false)
+    private BigDecimal totalSales = BigDecimal.ZERO;
+
+    /**
+     * 利润总额
+     */
+    @Column(name = "total_profit", precision = 12, scale = 2, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+}
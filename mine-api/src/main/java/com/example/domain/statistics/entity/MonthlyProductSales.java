@@ -0,0 +1,64 @@
+package com.example.domain.statistics.entity;
+
+import com.example.domain.product.entity.Product;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 月度商品销售汇总实体类
+ * 按 (月份, 商品) 汇总的销量、销售额和利润，随 {@link MonthlySalesSummary} 一起结账
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "monthly_product_sales", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"month_start", "product_id"})
+       })
+public class MonthlyProductSales {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 月份第一天
+     */
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /**
+     * 商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    private Product product;
+
+    /**
+     * 销售数量
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    /**
+     * 销售总金额
+     */
+    @Column(name = "total_sales", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalSales = BigDecimal.ZERO;
+
+    /**
+     * 利润总额
+     */
+    @Column(name = "total_profit", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+}
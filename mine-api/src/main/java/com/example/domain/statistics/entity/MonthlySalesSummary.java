@@ -0,0 +1,59 @@
+package com.example.domain.statistics.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 月度销售汇总实体类
+ * 由每日汇总表按月累加得到；月份结账（closed）后不再随每日数据重算，
+ * 仅在该月有订单被取消或按日期重建时同步修正
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "monthly_sales_summary", schema = "mine")
+public class MonthlySalesSummary {
+    /**
+     * 月份第一天（主键）
+     */
+    @Id
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /**
+     * 订单数
+     */
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    /**
+     * 销售总金额
+     */
+    @Column(name = "total_sales", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalSales = BigDecimal.ZERO;
+
+    /**
+     * 利润总额
+     */
+    @Column(name = "total_profit", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+
+    /**
+     * 是否已结账
+     */
+    @Column(name = "closed", nullable = false)
+    private Boolean closed = false;
+
+    /**
+     * 结账时间
+     */
+    @Column(name = "close_time")
+    private LocalDateTime closeTime;
+}
@@ -0,0 +1,86 @@
+package com.example.domain.statistics.entity;
+
+import com.example.domain.product.entity.Product;
+import com.example.domain.shop.entity.Shop;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 商家商品月度销售汇总实体类
+ * 按 (商家, 商品, 月份) 预聚合的销量、销售额、利润和退货，由订单创建/取消及退货时增量维护，
+ * 商家统计直接由该表汇总
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "shop_product_monthly_sales", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"shop_id", "product_id", "month_start"})
+       })
+public class ShopProductMonthlySales {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 商家
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shop_id", nullable = false)
+    @ToString.Exclude
+    private Shop shop;
+
+    /**
+     * 商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    private Product product;
+
+    /**
+     * 月份第一天
+     */
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /**
+     * 销售数量
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    /**
+     * 销售总金额
+     */
+    @Column(name = "total_sales", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalSales = BigDecimal.ZERO;
+
+    /**
+     * 利润总额
+     */
+    @Column(name = "total_profit", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+
+    /**
+     * 退货数量（仅退货退款类型），不计入销量
+     */
+    @Column(name = "return_quantity", nullable = false)
+    private Integer returnQuantity = 0;
+
+    /**
+     * 退款金额，不计入销售额
+     */
+    @Column(name = "return_amount", precision = 14, scale = 2, nullable = false)
+    private BigDecimal returnAmount = BigDecimal.ZERO;
+}
@@ -0,0 +1,62 @@
+package com.example.domain.statistics.repository;
+
+import com.example.domain.statistics.entity.DailySalesSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日销售汇总 数据访问仓库
+ */
+public interface DailySalesSummaryRepository extends JpaRepository<DailySalesSummary, LocalDate> {
+
+    /**
+     * 按日期累加订单数、销售额和利润，不存在则插入
+     * 传入负数即可回退（取消订单）
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_sales_summary (sale_date, order_count, total_sales, total_profit)
+        VALUES (:saleDate, :orderCount, :totalSales, :totalProfit)
+        ON DUPLICATE KEY UPDATE
+            order_count = order_count + VALUES(order_count),
+            total_sales = total_sales + VALUES(total_sales),
+            total_profit = total_profit + VALUES(total_profit)
+        """, nativeQuery = true)
+    void upsert(@Param("saleDate") LocalDate saleDate,
+                @Param("orderCount") int orderCount,
+                @Param("totalSales") BigDecimal totalSales,
+                @Param("totalProfit") BigDecimal totalProfit);
+
+    /**
+     * 删除日期范围内的汇总数据（重建前调用）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_summary WHERE sale_date BETWEEN :startDate AND :endDate", nativeQuery = true)
+    int deleteByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * 从订单表重新汇总日期范围内的数据
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_sales_summary (sale_date, order_count, total_sales, total_profit)
+        SELECT DATE(o.create_time), COUNT(*), COALESCE(SUM(o.total_sales_amount), 0), COALESCE(SUM(o.total_profit), 0)
+        FROM `order` o
+        WHERE o.create_time >= :startTime AND o.create_time < :endTime
+        GROUP BY DATE(o.create_time)
+        """, nativeQuery = true)
+    int rebuildFromOrders(@Param("startTime") LocalDateTime startTime,
+                          @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 最早有汇总数据的日期
+     */
+    @Query("select min(d.saleDate) from DailySalesSummary d")
+    LocalDate findEarliestSaleDate();
+}
@@ -0,0 +1,57 @@
+package com.example.domain.statistics.repository;
+
+import com.example.domain.statistics.entity.MonthlyProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 月度商品销售汇总 数据访问仓库
+ */
+public interface MonthlyProductSalesRepository extends JpaRepository<MonthlyProductSales, Integer> {
+
+    /**
+     * 删除一个月的商品汇总（重新结账前调用）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM monthly_product_sales WHERE month_start = :monthStart", nativeQuery = true)
+    int deleteByMonth(@Param("monthStart") LocalDate monthStart);
+
+    /**
+     * 从每日商品汇总表重新计算一个月的商品汇总
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO monthly_product_sales (month_start, product_id, quantity, total_sales, total_profit)
+        SELECT :monthStart, d.product_id, SUM(d.quantity), COALESCE(SUM(d.total_sales), 0), COALESCE(SUM(d.total_profit), 0)
+        FROM daily_product_sales d
+        WHERE d.sale_date BETWEEN :monthStart AND :monthEnd
+        GROUP BY d.product_id
+        """, nativeQuery = true)
+    int rebuildFromDaily(@Param("monthStart") LocalDate monthStart,
+                         @Param("monthEnd") LocalDate monthEnd);
+
+    /**
+     * 对已结账月份累加商品增量，未结账月份不写入
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO monthly_product_sales (month_start, product_id, quantity, total_sales, total_profit)
+        SELECT m.month_start, :productId, :quantity, :totalSales, :totalProfit
+        FROM monthly_sales_summary m
+        WHERE m.month_start = :monthStart AND m.closed = TRUE
+        ON DUPLICATE KEY UPDATE
+            quantity = quantity + VALUES(quantity),
+            total_sales = total_sales + VALUES(total_sales),
+            total_profit = total_profit + VALUES(total_profit)
+        """, nativeQuery = true)
+    int addIfClosed(@Param("monthStart") LocalDate monthStart,
+                    @Param("productId") Integer productId,
+                    @Param("quantity") int quantity,
+                    @Param("totalSales") BigDecimal totalSales,
+                    @Param("totalProfit") BigDecimal totalProfit);
+}
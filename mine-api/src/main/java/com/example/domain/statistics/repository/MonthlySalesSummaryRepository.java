@@ -0,0 +1,64 @@
+package com.example.domain.statistics.repository;
+
+import com.example.domain.statistics.entity.MonthlySalesSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 月度销售汇总 数据访问仓库
+ */
+public interface MonthlySalesSummaryRepository extends JpaRepository<MonthlySalesSummary, LocalDate> {
+
+    /**
+     * 从每日汇总表重新计算一个月的汇总并标记为已结账
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO monthly_sales_summary (month_start, order_count, total_sales, total_profit, closed, close_time)
+        SELECT :monthStart, COALESCE(SUM(d.order_count), 0), COALESCE(SUM(d.total_sales), 0), COALESCE(SUM(d.total_profit), 0), TRUE, NOW()
+        FROM daily_sales_summary d
+        WHERE d.sale_date BETWEEN :monthStart AND :monthEnd
+        ON DUPLICATE KEY UPDATE
+            order_count = VALUES(order_count),
+            total_sales = VALUES(total_sales),
+            total_profit = VALUES(total_profit),
+            closed = TRUE,
+            close_time = VALUES(close_time)
+        """, nativeQuery = true)
+    int closeFromDaily(@Param("monthStart") LocalDate monthStart,
+                       @Param("monthEnd") LocalDate monthEnd);
+
+    /**
+     * 对已结账月份累加增量（订单取消等修改历史数据时调用），未结账月份不受影响
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE monthly_sales_summary
+        SET order_count = order_count + :orderCount,
+            total_sales = total_sales + :totalSales,
+            total_profit = total_profit + :totalProfit
+        WHERE month_start = :monthStart AND closed = TRUE
+        """, nativeQuery = true)
+    int addIfClosed(@Param("monthStart") LocalDate monthStart,
+                    @Param("orderCount") int orderCount,
+                    @Param("totalSales") BigDecimal totalSales,
+                    @Param("totalProfit") BigDecimal totalProfit);
+
+    /**
+     * 范围内已结账的月份
+     */
+    @Query("select m.monthStart from MonthlySalesSummary m where m.closed = true and m.monthStart between :startMonth and :endMonth")
+    List<LocalDate> findClosedMonths(@Param("startMonth") LocalDate startMonth, @Param("endMonth") LocalDate endMonth);
+
+    /**
+     * 最近一个已结账月份
+     */
+    @Query("select max(m.monthStart) from MonthlySalesSummary m where m.closed = true")
+    LocalDate findLatestClosedMonth();
+}
@@ -0,0 +1,99 @@
+package com.example.domain.statistics.repository;
+
+import com.example.domain.statistics.entity.ShopProductMonthlySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 商家商品月度销售汇总 数据访问仓库
+ */
+public interface ShopProductMonthlySalesRepository extends JpaRepository<ShopProductMonthlySales, Integer> {
+
+    /**
+     * 按 (商家, 商品, 月份) 累加销量、销售额和利润，不存在则插入
+     * 传入负数即可回退（取消订单）
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_monthly_sales (shop_id, product_id, month_start, quantity, total_sales, total_profit, return_quantity, return_amount)
+        VALUES (:shopId, :productId, :monthStart, :quantity, :totalSales, :totalProfit, 0, 0)
+        ON DUPLICATE KEY UPDATE
+            quantity = quantity + VALUES(quantity),
+            total_sales = total_sales + VALUES(total_sales),
+            total_profit = total_profit + VALUES(total_profit)
+        """, nativeQuery = true)
+    void upsertSales(@Param("shopId") Integer shopId,
+                     @Param("productId") Integer productId,
+                     @Param("monthStart") LocalDate monthStart,
+                     @Param("quantity") int quantity,
+                     @Param("totalSales") BigDecimal totalSales,
+                     @Param("totalProfit") BigDecimal totalProfit);
+
+    /**
+     * 按 (商家, 商品, 月份) 累加退货数量和退款金额，不存在则插入
+     * 传入负数即可回退（删除退货单）
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_monthly_sales (shop_id, product_id, month_start, quantity, total_sales, total_profit, return_quantity, return_amount)
+        VALUES (:shopId, :productId, :monthStart, 0, 0, 0, :returnQuantity, :returnAmount)
+        ON DUPLICATE KEY UPDATE
+            return_quantity = return_quantity + VALUES(return_quantity),
+            return_amount = return_amount + VALUES(return_amount)
+        """, nativeQuery = true)
+    void upsertReturn(@Param("shopId") Integer shopId,
+                      @Param("productId") Integer productId,
+                      @Param("monthStart") LocalDate monthStart,
+                      @Param("returnQuantity") int returnQuantity,
+                      @Param("returnAmount") BigDecimal returnAmount);
+
+    /**
+     * 删除月份范围内的汇总数据（重建前调用）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM shop_product_monthly_sales WHERE month_start BETWEEN :startMonth AND :endMonth", nativeQuery = true)
+    int deleteByMonthRange(@Param("startMonth") LocalDate startMonth, @Param("endMonth") LocalDate endMonth);
+
+    /**
+     * 从订单明细重新汇总时间范围内的销售数据（时间范围应为整月）
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_monthly_sales (shop_id, product_id, month_start, quantity, total_sales, total_profit, return_quantity, return_amount)
+        SELECT o.shop_id, od.product_id, DATE_SUB(DATE(o.create_time), INTERVAL DAYOFMONTH(o.create_time) - 1 DAY),
+               SUM(od.quantity), COALESCE(SUM(od.total_sales_amount), 0), COALESCE(SUM(od.total_profit), 0), 0, 0
+        FROM order_detail od
+        JOIN `order` o ON od.order_id = o.id
+        WHERE o.create_time >= :startTime AND o.create_time < :endTime
+        GROUP BY o.shop_id, od.product_id, DATE_SUB(DATE(o.create_time), INTERVAL DAYOFMONTH(o.create_time) - 1 DAY)
+        """, nativeQuery = true)
+    int rebuildSalesFromOrders(@Param("startTime") LocalDateTime startTime,
+                               @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 从退货明细重新汇总时间范围内的退货数据（时间范围应为整月）
+     * 退货时间按 UTC 存储，与 ReturnOrderQuery 的时间换算保持一致
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_monthly_sales (shop_id, product_id, month_start, quantity, total_sales, total_profit, return_quantity, return_amount)
+        SELECT r.shop_id, rd.product_id, DATE_SUB(DATE(r.create_time), INTERVAL DAYOFMONTH(r.create_time) - 1 DAY), 0, 0, 0,
+               COALESCE(SUM(CASE WHEN rd.type = '退货退款' THEN rd.quantity ELSE 0 END), 0),
+               COALESCE(SUM(rd.amount), 0)
+        FROM return_order_detail rd
+        JOIN return_order r ON rd.return_order_id = r.id
+        WHERE r.create_time >= :startTime AND r.create_time < :endTime AND rd.product_id IS NOT NULL AND r.shop_id IS NOT NULL
+        GROUP BY r.shop_id, rd.product_id, DATE_SUB(DATE(r.create_time), INTERVAL DAYOFMONTH(r.create_time) - 1 DAY)
+        ON DUPLICATE KEY UPDATE
+            return_quantity = VALUES(return_quantity),
+            return_amount = VALUES(return_amount)
+        """, nativeQuery = true)
+    int rebuildReturnsFromReturnOrders(@Param("startTime") LocalDateTime startTime,
+                                       @Param("endTime") LocalDateTime endTime);
+}
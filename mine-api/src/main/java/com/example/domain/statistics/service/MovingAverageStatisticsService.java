@@ -4,13 +4,11 @@ import com.example.domain.order.entity.Order;
 import com.example.domain.order.service.OrderService;
 import com.example.domain.product.entity.Product;
 import com.example.domain.product.service.ProductService;
+import com.example.domain.statistics.dto.SalesMatrix;
 import com.example.domain.statistics.dto.request.MovingAverageLineRequest;
 import com.example.domain.statistics.dto.response.MovingAverageLineDTO;
-import com.example.domain.statistics.dto.response.ProductSalesInfoDTO;
-import com.example.domain.statistics.dto.response.SalesStatisticsDTO;
 import com.example.query.OrderQuery;
 import com.example.query.ProductQuery;
-import com.example.utils.DataExtractor;
 import com.example.utils.MovingAverageCalculator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -152,13 +150,13 @@ public class MovingAverageStatisticsService {
      * 计算多个产品的移动平均值
      *
      * @param productIds    产品ID数组
-     * @param dataExtractor 数据提取器 (根据类型提取利润、销售额或数量)
+     * @param metric        矩阵指标 (利润、销售额或数量)
      * @param period        移动平均周期
      * @param startDate     开始日期
      * @param endDate       结束日期
      * @return 包含各产品移动平均数据的DTO对象
      */
-    public MovingAverageLineDTO getMovingAverageForProducts(int[] productIds, DataExtractor dataExtractor, int period, LocalDate startDate, LocalDate endDate) {
+    public MovingAverageLineDTO getMovingAverageForProducts(int[] productIds, SalesMatrix.Metric metric, int period, LocalDate startDate, LocalDate endDate) {
         log.info("计算产品移动平均线，产品数: {}, 周期: {}, 日期范围: {} - {}", productIds.length, period, startDate, endDate);
 
         if (productIds == null || productIds.length == 0) {
@@ -174,17 +172,19 @@ public class MovingAverageStatisticsService {
                                                              .stream()
                                                              .collect(Collectors.toMap(Product::getId, Product::getName));
 
-        // 获取日期范围内的每日销售统计
+        // 获取日期范围内的商品日销售矩阵
         // 注意：这里依赖 TemporalStatisticsService
-        Map<LocalDate, SalesStatisticsDTO> dailyStatistics = temporalStatisticsService.calculateDailyStatistics(startDate, endDate);
+        SalesMatrix salesMatrix = temporalStatisticsService.buildSalesMatrix(startDate, endDate);
 
-        if (dailyStatistics.isEmpty()) {
+        if (salesMatrix.getDays() == 0) {
              log.warn("在日期范围 {} 到 {} 内没有找到日统计数据，无法计算产品移动平均。", startDate, endDate);
              MovingAverageLineDTO emptyDto = new MovingAverageLineDTO(); emptyDto.setDates(new ArrayList<>()); emptyDto.setMovingAverageInfoDTOS(new ArrayList<>()); return emptyDto; // 返回空DTO
         }
 
         // 获取排序后的日期列表
-        List<LocalDate> localDates = dailyStatistics.keySet().stream().sorted().toList();
+        List<LocalDate> localDates = Stream.iterate(startDate, date -> date.plusDays(1))
+                                           .limit(salesMatrix.getDays())
+                                           .toList();
 
         // 创建移动平均线DTO
         MovingAverageLineDTO movingAverageLineDTO = new MovingAverageLineDTO();
@@ -200,7 +200,7 @@ public class MovingAverageStatisticsService {
             }
 
             // 获取该产品每日销售数据
-            double[] dailySalesForProduct = getDailySalesForProduct(dailyStatistics, localDates, productId, dataExtractor);
+            double[] dailySalesForProduct = getDailySalesForProduct(salesMatrix, productId, metric);
 
              // 验证数据量是否足够计算移动平均
             if (dailySalesForProduct.length < period) {
@@ -226,57 +226,31 @@ public class MovingAverageStatisticsService {
 
 
     /**
-     * 从每日统计数据中提取指定商品 ID 的每日指定指标数据（利润、销售额或数量）
+     * 从商品日销售矩阵中提取指定商品 ID 的每日指定指标数据（利润、销售额或数量）
      *
-     * @param dailyStatistics 每日统计数据 Map<LocalDate, SalesStatisticsDTO>
-     * @param sortedDates     已排序的日期列表
-     * @param productId       目标商品 ID
-     * @param dataExtractor   数据提取器
+     * @param salesMatrix 商品日销售矩阵
+     * @param productId   目标商品 ID
+     * @param metric      矩阵指标
      * @return 每日指标数据的 double 数组，按日期排序
      */
-    private double[] getDailySalesForProduct(Map<LocalDate, SalesStatisticsDTO> dailyStatistics, List<LocalDate> sortedDates, int productId, DataExtractor dataExtractor) {
-        // 初始化结果数组，大小与日期数量一致
-        double[] dailySales = new double[sortedDates.size()];
-        int index = 0;
-
-        // 按排序后的日期遍历
-        for (LocalDate date : sortedDates) {
-            SalesStatisticsDTO dailyData = dailyStatistics.get(date);
-            double sales = 0.0; // 默认为0
-
-            if (dailyData != null && dailyData.getProductSalesInfoDTOS() != null) {
-                // 获取当天的商品销量列表
-                List<ProductSalesInfoDTO> productSales = dailyData.getProductSalesInfoDTOS();
-
-                // 查找目标商品的销量
-                for (ProductSalesInfoDTO product : productSales) {
-                    if (product.getProductId() == productId) { // 移除 != null 检查，因为 getProductId() 通常返回 int 或 Integer
-                        // 使用 dataExtractor 提取数据
-                        BigDecimal extractedValue = dataExtractor.extract(product);
-                        sales = (extractedValue != null) ? extractedValue.doubleValue() : 0.0;
-                        break; // 找到后即可跳出内层循环
-                    }
-                }
-            }
-            // 将销量存入结果数组
-            dailySales[index++] = sales;
-        }
-        return dailySales;
+    private double[] getDailySalesForProduct(SalesMatrix salesMatrix, int productId, SalesMatrix.Metric metric) {
+        // 矩阵中同一商品的数据按日期连续存放，直接切片即可，商品无销量时返回全零数组
+        return salesMatrix.series(productId, metric);
     }
 
-    // TaskType 到 DataExtractor 的映射可以在调用 getMovingAverageForProducts 之前处理好，
-    // 或者在这里提供一个辅助方法根据 TaskType 获取 DataExtractor
-    public DataExtractor getDataExtractorByType(MovingAverageLineRequest.TaskType taskType) {
+    // TaskType 到矩阵指标的映射可以在调用 getMovingAverageForProducts 之前处理好，
+    // 或者在这里提供一个辅助方法根据 TaskType 获取指标
+    public SalesMatrix.Metric getMetricByType(MovingAverageLineRequest.TaskType taskType) {
         switch (taskType) {
             case Profit:
-                return ProductSalesInfoDTO::getTotalProfit;
+                return SalesMatrix.Metric.PROFIT;
             case SalesAmount:
-                return ProductSalesInfoDTO::getTotalSales;
+                return SalesMatrix.Metric.SALES;
             case Quantity:
-                return productSalesInfoDTO -> BigDecimal.valueOf(productSalesInfoDTO.getQuantity());
+                return SalesMatrix.Metric.QUANTITY;
             default:
                 throw new IllegalArgumentException("不支持的任务类型: " + taskType);
         }
     }
 
-}
\ No newline at end of file
+}
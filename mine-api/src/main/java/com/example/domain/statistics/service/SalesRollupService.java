@@ -0,0 +1,379 @@
+package com.example.domain.statistics.service;
+
+import com.example.domain.order.entity.Order;
+import com.example.domain.order.entity.OrderDetail;
+import com.example.domain.returnOrder.entity.ReturnOrder;
+import com.example.domain.returnOrder.entity.ReturnOrderDetail;
+import com.example.domain.returnOrder.entity.ReturnType;
+import com.example.domain.statistics.repository.DailyProductSalesRepository;
+import com.example.domain.statistics.repository.DailySalesSummaryRepository;
+import com.example.domain.statistics.repository.MonthlyProductSalesRepository;
+import com.example.domain.statistics.repository.MonthlySalesSummaryRepository;
+import com.example.domain.statistics.repository.ShopProductMonthlySalesRepository;
+import com.example.exception.MyException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 销售汇总维护服务
+ * 负责维护 daily_sales_summary / daily_product_sales 预聚合表：
+ * 订单创建、取消及退货单创建、删除时在同一事务内增量更新，
+ * 并提供按日期范围从明细表重建的能力。
+ * 月度汇总 monthly_sales_summary / monthly_product_sales 在月份结账时由每日汇总生成，
+ * 之后只在该月订单被取消或按日期重建时同步修正。
+ * 商家统计使用的 shop_product_monthly_sales 与每日汇总一样随订单和退货增量维护，重建时按整月重新生成
+ * <p>
+ * daily_sales_summary 每天只有一行，当天所有订单的创建和取消都要更新这一行，行锁会一直持有到事务提交。
+ * 如果在订单事务中途更新，后续的库存扣减、提交前的库存流水批量写入和计数累加都会在持锁期间执行，
+ * 当天的下单和取消因此完全串行。所以每日总计的增量先在事务内合并，
+ * 在提交前最后一步（排在库存流水写入之后）才写入，持锁时间只剩这条 UPSERT 和提交本身。
+ * 订单数无法从 daily_product_sales 推算（一个订单包含多个商品），因此仍保留这张表。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    private final DailySalesSummaryRepository dailySalesSummaryRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+    private final MonthlySalesSummaryRepository monthlySalesSummaryRepository;
+    private final MonthlyProductSalesRepository monthlyProductSalesRepository;
+    private final ShopProductMonthlySalesRepository shopProductMonthlySalesRepository;
+
+    /**
+     * 定时重建最近几天的汇总数据（天数），用于修正直接改库等绕过业务代码造成的偏差
+     */
+    @Value("${statistics.rollup.rebuild-days:3}")
+    private int scheduledRebuildDays;
+
+    /**
+     * 订单创建后累加汇总
+     *
+     * @param order 已计算好总价的订单
+     */
+    @Transactional
+    public void recordOrder(Order order) {
+        applyOrder(order, 1);
+    }
+
+    /**
+     * 订单取消时回退汇总
+     *
+     * @param order 待删除的订单
+     */
+    @Transactional
+    public void revertOrder(Order order) {
+        applyOrder(order, -1);
+    }
+
+    /**
+     * 退货单创建后累加退货汇总
+     *
+     * @param returnOrder 退货单
+     * @param details     退货明细
+     */
+    @Transactional
+    public void recordReturn(ReturnOrder returnOrder, List<ReturnOrderDetail> details) {
+        applyReturn(returnOrder, details, 1);
+    }
+
+    /**
+     * 退货单删除时回退退货汇总
+     *
+     * @param returnOrder 退货单
+     * @param details     退货明细
+     */
+    @Transactional
+    public void revertReturn(ReturnOrder returnOrder, List<ReturnOrderDetail> details) {
+        applyReturn(returnOrder, details, -1);
+    }
+
+    /**
+     * 按日期范围重建汇总数据（先删后插）
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     */
+    @Transactional
+    public void rebuild(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new MyException("重建汇总的日期范围不合法");
+        }
+        int deletedSummaries = dailySalesSummaryRepository.deleteByDateRange(startDate, endDate);
+        int deletedProducts = dailyProductSalesRepository.deleteByDateRange(startDate, endDate);
+
+        int summaries = dailySalesSummaryRepository.rebuildFromOrders(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        int products = dailyProductSalesRepository.rebuildSalesFromOrders(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        dailyProductSalesRepository.rebuildReturnsFromReturnOrders(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+
+        log.info("销售汇总已重建: {} ~ {}, 删除 {}/{} 行, 写入 {}/{} 行",
+                startDate, endDate, deletedSummaries, deletedProducts, summaries, products);
+
+        // 商家商品月度汇总按整月重建
+        LocalDate startMonth = startDate.withDayOfMonth(1);
+        LocalDate endMonth = endDate.withDayOfMonth(1);
+        shopProductMonthlySalesRepository.deleteByMonthRange(startMonth, endMonth);
+        int shopProducts = shopProductMonthlySalesRepository.rebuildSalesFromOrders(
+                startMonth.atStartOfDay(), endMonth.plusMonths(1).atStartOfDay());
+        shopProductMonthlySalesRepository.rebuildReturnsFromReturnOrders(
+                startMonth.atStartOfDay(), endMonth.plusMonths(1).atStartOfDay());
+        log.info("商家商品月度汇总已重建: {} ~ {}, 写入 {} 行", YearMonth.from(startMonth), YearMonth.from(endMonth), shopProducts);
+
+        // 已结账月份跟随每日汇总重新结账
+        List<LocalDate> closedMonths = monthlySalesSummaryRepository.findClosedMonths(
+                startDate.withDayOfMonth(1), endDate.withDayOfMonth(1));
+        closedMonths.forEach(monthStart -> closeMonth(YearMonth.from(monthStart)));
+    }
+
+    /**
+     * 结账一个月：从每日汇总重新计算该月汇总并标记为已结账
+     *
+     * @param month 月份
+     */
+    @Transactional
+    public void closeMonth(YearMonth month) {
+        LocalDate monthStart = month.atDay(1);
+        LocalDate monthEnd = month.atEndOfMonth();
+        monthlyProductSalesRepository.deleteByMonth(monthStart);
+        int products = monthlyProductSalesRepository.rebuildFromDaily(monthStart, monthEnd);
+        monthlySalesSummaryRepository.closeFromDaily(monthStart, monthEnd);
+        log.info("月度销售汇总已结账: {}, 商品 {} 行", month, products);
+    }
+
+    /**
+     * 结账所有可结账且尚未结账的月份
+     * 月末早于每日重建窗口（statistics.rollup.rebuild-days）的月份不会再被定时重建修改，可以结账
+     *
+     * @return 本次结账的月份数
+     */
+    @Transactional
+    public int closeMonths() {
+        YearMonth lastClosable = YearMonth.from(LocalDate.now().minusDays(scheduledRebuildDays)).minusMonths(1);
+        LocalDate latestClosed = monthlySalesSummaryRepository.findLatestClosedMonth();
+        YearMonth month;
+        if (latestClosed != null) {
+            month = YearMonth.from(latestClosed).plusMonths(1);
+        } else {
+            LocalDate earliest = dailySalesSummaryRepository.findEarliestSaleDate();
+            if (earliest == null) {
+                return 0;
+            }
+            month = YearMonth.from(earliest);
+        }
+        int count = 0;
+        for (; !month.isAfter(lastClosable); month = month.plusMonths(1)) {
+            closeMonth(month);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 每日凌晨重建最近几天的汇总数据
+     */
+    @Scheduled(cron = "${statistics.rollup.rebuild-cron:0 30 3 * * ?}")
+    @Transactional
+    public void scheduledRebuild() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(scheduledRebuildDays), today);
+    }
+
+    /**
+     * 每日凌晨结账已经过完的月份
+     */
+    @Scheduled(cron = "${statistics.rollup.close-cron:0 0 4 * * ?}")
+    @Transactional
+    public void scheduledCloseMonths() {
+        int closed = closeMonths();
+        if (closed > 0) {
+            log.info("定时结账完成，共 {} 个月", closed);
+        }
+    }
+
+    private void applyOrder(Order order, int sign) {
+        LocalDate saleDate = order.getCreateTime().toLocalDate();
+        BigDecimal factor = BigDecimal.valueOf(sign);
+
+        addSummary(saleDate,
+                   sign,
+                   nullToZero(order.getTotalSalesAmount()).multiply(factor),
+                   nullToZero(order.getTotalProfit()).multiply(factor));
+
+        // 同一订单中同一商品可能出现多行，先合并再写入
+        Map<Integer, ProductDelta> deltas = new LinkedHashMap<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            ProductDelta delta = deltas.computeIfAbsent(detail.getProduct().getId(), id -> new ProductDelta());
+            delta.quantity += detail.getQuantity();
+            delta.amount = delta.amount.add(nullToZero(detail.getTotalSalesAmount()));
+            delta.profit = delta.profit.add(nullToZero(detail.getTotalProfit()));
+        }
+        deltas.forEach((productId, delta) -> dailyProductSalesRepository.upsertSales(
+                saleDate,
+                productId,
+                delta.quantity * sign,
+                delta.amount.multiply(factor),
+                delta.profit.multiply(factor)));
+
+        if (order.getShop() != null) {
+            LocalDate monthStart = saleDate.withDayOfMonth(1);
+            Integer shopId = order.getShop().getId();
+            deltas.forEach((productId, delta) -> shopProductMonthlySalesRepository.upsertSales(
+                    shopId,
+                    productId,
+                    monthStart,
+                    delta.quantity * sign,
+                    delta.amount.multiply(factor),
+                    delta.profit.multiply(factor)));
+        }
+
+        // 修改以前月份的数据（如取消上月订单）时，已结账的月度汇总同步修正；当月订单无需处理
+        if (YearMonth.from(saleDate).isBefore(YearMonth.now())) {
+            LocalDate monthStart = saleDate.withDayOfMonth(1);
+            monthlySalesSummaryRepository.addIfClosed(
+                    monthStart,
+                    sign,
+                    nullToZero(order.getTotalSalesAmount()).multiply(factor),
+                    nullToZero(order.getTotalProfit()).multiply(factor));
+            deltas.forEach((productId, delta) -> monthlyProductSalesRepository.addIfClosed(
+                    monthStart,
+                    productId,
+                    delta.quantity * sign,
+                    delta.amount.multiply(factor),
+                    delta.profit.multiply(factor)));
+        }
+    }
+
+    private void applyReturn(ReturnOrder returnOrder, List<ReturnOrderDetail> details, int sign) {
+        Instant createTime = returnOrder.getCreateTime() != null ? returnOrder.getCreateTime() : Instant.now();
+        // 退货时间以 UTC 存储，与 ReturnOrderQuery 的日期换算保持一致
+        LocalDate returnDate = LocalDate.ofInstant(createTime, ZoneOffset.UTC);
+        BigDecimal factor = BigDecimal.valueOf(sign);
+
+        Map<Integer, ProductDelta> deltas = new LinkedHashMap<>();
+        for (ReturnOrderDetail detail : details) {
+            if (detail.getProduct() == null) {
+                continue;
+            }
+            ProductDelta delta = deltas.computeIfAbsent(detail.getProduct().getId(), id -> new ProductDelta());
+            if (detail.getType() == ReturnType.退货退款 && detail.getQuantity() != null) {
+                delta.quantity += detail.getQuantity();
+            }
+            delta.amount = delta.amount.add(nullToZero(detail.getAmount()));
+        }
+        deltas.forEach((productId, delta) -> dailyProductSalesRepository.upsertReturn(
+                returnDate,
+                productId,
+                delta.quantity * sign,
+                delta.amount.multiply(factor)));
+
+        if (returnOrder.getShop() != null) {
+            LocalDate monthStart = returnDate.withDayOfMonth(1);
+            Integer shopId = returnOrder.getShop().getId();
+            deltas.forEach((productId, delta) -> shopProductMonthlySalesRepository.upsertReturn(
+                    shopId,
+                    productId,
+                    monthStart,
+                    delta.quantity * sign,
+                    delta.amount.multiply(factor)));
+        }
+    }
+
+    /**
+     * 累加每日总计：有活动事务时合并到事务内的待写入增量，提交前统一写入；否则立即写入
+     */
+    private void addSummary(LocalDate saleDate, int orderCount, BigDecimal totalSales, BigDecimal totalProfit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dailySalesSummaryRepository.upsert(saleDate, orderCount, totalSales, totalProfit);
+            return;
+        }
+        SummaryDelta delta = pendingSummaries().computeIfAbsent(saleDate, date -> new SummaryDelta());
+        delta.orderCount += orderCount;
+        delta.sales = delta.sales.add(totalSales);
+        delta.profit = delta.profit.add(totalProfit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<LocalDate, SummaryDelta> pendingSummaries() {
+        Map<LocalDate, SummaryDelta> pending = (Map<LocalDate, SummaryDelta>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        // 按日期顺序写入，同一事务跨多天时并发事务以相同顺序加锁
+        Map<LocalDate, SummaryDelta> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // 排在库存流水写入之后，缩短每日汇总行锁的持有时间
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(SalesRollupService.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(SalesRollupService.this, created);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                created.forEach((saleDate, delta) -> {
+                    if (delta.orderCount != 0 || delta.sales.signum() != 0 || delta.profit.signum() != 0) {
+                        dailySalesSummaryRepository.upsert(saleDate, delta.orderCount, delta.sales, delta.profit);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SalesRollupService.this);
+            }
+        });
+        return created;
+    }
+
+    private static BigDecimal nullToZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * 单个商品的增量累加器
+     */
+    private static class ProductDelta {
+        private int quantity;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+    }
+
+    /**
+     * 单日总计的待写入增量
+     */
+    private static class SummaryDelta {
+        private int orderCount;
+        private BigDecimal sales = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+    }
+}
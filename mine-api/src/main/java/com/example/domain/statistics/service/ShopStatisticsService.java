@@ -1,12 +1,11 @@
 package com.example.domain.statistics.service;
 
-import com.example.domain.order.entity.QOrder;
-import com.example.domain.order.entity.QOrderDetail;
 import com.example.domain.product.entity.QProduct;
 import com.example.domain.shop.entity.Shop;
 import com.example.domain.shop.service.ShopService;
 import com.example.domain.statistics.dto.response.ProductSalesInfoDTO;
 import com.example.domain.statistics.dto.response.ShopStatisticsDTO;
+import com.example.domain.statistics.entity.QShopProductMonthlySales;
 import com.querydsl.core.Tuple;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +32,8 @@ public class ShopStatisticsService {
 
     /**
      * 计算所有商家的统计数据
+     * 一次查询从商家商品月度汇总表按 (商家, 商品) 合计，商家总额在内存中由商品合计累加，
+     * 代价与商家数 × 商品数成正比，与订单明细总量无关
      *
      * @return List<ShopStatisticsDTO> 包含所有商家统计结果的列表
      */
@@ -46,144 +47,77 @@ public class ShopStatisticsService {
             return Collections.emptyList();
         }
 
-        Map<Integer, ShopStatisticsDTO> shopStats = getShopAggregateStatistics(shopMap);
-        Map<Integer, List<ProductSalesInfoDTO>> productStats = getShopProductMonthlyStatistics(shopMap);
-
-        // 填充没有销售数据的商家
-        for (Integer shopId : shopMap.keySet()) {
-            shopStats.computeIfAbsent(shopId, id -> {
-                Shop shop = shopMap.get(id);
-                ShopStatisticsDTO dto = new ShopStatisticsDTO();
-                dto.setShopId(id);
-                dto.setShopName(shop.getName());
-                dto.setLocation(shop.getLocation());
-                dto.setArrears(shop.getArrears());
-                dto.setTotalSales(BigDecimal.ZERO);
-                dto.setTotalProfit(BigDecimal.ZERO);
-                dto.setAverageMonthlyProfit(BigDecimal.ZERO);
-                return dto;
-            });
-        }
-
-
-        for (Map.Entry<Integer, ShopStatisticsDTO> entry : shopStats.entrySet()) {
-            int shopId = entry.getKey();
-            ShopStatisticsDTO dto = entry.getValue();
-            dto.setProductMonthlySalesList(productStats.getOrDefault(shopId, Collections.emptyList()));
-        }
-        return new ArrayList<>(shopStats.values());
-    }
-
-    /**
-     * 查询每个商家的总销售额、总利润，并计算平均月利润
-     */
-    private Map<Integer, ShopStatisticsDTO> getShopAggregateStatistics(Map<Integer, Shop> shopMap) {
-        QOrder qOrder = QOrder.order;
-
-        List<Tuple> results = queryFactory
-            .select(
-                qOrder.shop.id,
-                qOrder.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                qOrder.totalProfit.sum().coalesce(BigDecimal.ZERO)
-            )
-            .from(qOrder)
-            .where(qOrder.shop.id.in(shopMap.keySet())) // 仅查询存在的商家
-            .groupBy(qOrder.shop.id)
-            .fetch();
-
-        Map<Integer, ShopStatisticsDTO> map = new HashMap<>();
-        for (Tuple t : results) {
-            Integer shopId = t.get(0, Integer.class);
-            // shopMap.containsKey(shopId) 在 where 条件中已保证
-            Shop shop = shopMap.get(shopId);
-
-            BigDecimal totalSales = t.get(1, BigDecimal.class);
-            BigDecimal totalProfit = t.get(2, BigDecimal.class);
-
-            long days = ChronoUnit.DAYS.between(shop.getCreateTime(), LocalDate.now());
-            // 避免除零或负数，至少算一个月
-            BigDecimal months = days > 0 ? BigDecimal.valueOf(days).divide(BigDecimal.valueOf(30), 4, RoundingMode.HALF_UP) : BigDecimal.ONE;
-
+        Map<Integer, ShopStatisticsDTO> shopStats = new HashMap<>();
+        for (Shop shop : shops) {
             ShopStatisticsDTO dto = new ShopStatisticsDTO();
-            dto.setShopId(shopId);
+            dto.setShopId(shop.getId());
             dto.setShopName(shop.getName());
             dto.setLocation(shop.getLocation());
             dto.setArrears(shop.getArrears());
-            dto.setTotalSales(totalSales);
-            dto.setTotalProfit(totalProfit);
-            dto.setAverageMonthlyProfit(
-                months.compareTo(BigDecimal.ZERO) > 0 ?
-                totalProfit.divide(months, 2, RoundingMode.HALF_UP) :
-                BigDecimal.ZERO
-            );
-            map.put(shopId, dto);
+            dto.setTotalSales(BigDecimal.ZERO);
+            dto.setTotalProfit(BigDecimal.ZERO);
+            dto.setAverageMonthlyProfit(BigDecimal.ZERO);
+            dto.setProductMonthlySalesList(new ArrayList<>());
+            shopStats.put(shop.getId(), dto);
         }
-        return map;
-    }
 
-    /**
-     * 查询每个商家下每个商品的总销量、销售额、利润，并按上线天数计算平均月数据
-     */
-    private Map<Integer, List<ProductSalesInfoDTO>> getShopProductMonthlyStatistics(Map<Integer, Shop> shopMap) {
-        QOrder qOrder = QOrder.order;
-        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        QShopProductMonthlySales qSales = QShopProductMonthlySales.shopProductMonthlySales;
         QProduct qProduct = QProduct.product;
 
         List<Tuple> results = queryFactory
             .select(
-                qOrder.shop.id,
-                qOrderDetail.product.id,
+                qSales.shop.id,
+                qSales.product.id,
                 qProduct.name,
-                qOrderDetail.quantity.sum().coalesce(0),
-                qOrderDetail.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                qOrderDetail.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                qSales.quantity.sum().coalesce(0),
+                qSales.totalSales.sum().coalesce(BigDecimal.ZERO),
+                qSales.totalProfit.sum().coalesce(BigDecimal.ZERO)
             )
-            .from(qOrderDetail)
-            .join(qOrderDetail.order, qOrder)
-            .join(qOrderDetail.product, qProduct)
-            .where(qOrder.shop.id.in(shopMap.keySet())) // 仅查询存在的商家
-            .groupBy(qOrder.shop.id, qOrderDetail.product.id, qProduct.name)
+            .from(qSales)
+            .join(qSales.product, qProduct)
+            .where(qSales.shop.id.in(shopMap.keySet())) // 仅查询存在的商家
+            .groupBy(qSales.shop.id, qSales.product.id, qProduct.name)
             .fetch();
 
-        Map<Integer, List<ProductSalesInfoDTO>> resultMap = new HashMap<>();
         for (Tuple t : results) {
             Integer shopId = t.get(0, Integer.class);
-            // shopMap.containsKey(shopId) 在 where 条件中已保证
-            Shop shop = shopMap.get(shopId);
-
-            Integer productId = t.get(1, Integer.class);
-            String productName = t.get(2, String.class);
             Integer totalQuantity = t.get(3, Integer.class);
             BigDecimal totalSales = t.get(4, BigDecimal.class);
             BigDecimal totalProfit = t.get(5, BigDecimal.class);
+            if (totalQuantity == 0 && totalSales.signum() == 0 && totalProfit.signum() == 0) {
+                continue; // 订单已全部取消，只剩零值汇总
+            }
+
+            ShopStatisticsDTO shopDto = shopStats.get(shopId);
+            shopDto.setTotalSales(shopDto.getTotalSales().add(totalSales));
+            shopDto.setTotalProfit(shopDto.getTotalProfit().add(totalProfit));
 
-            long days = ChronoUnit.DAYS.between(shop.getCreateTime(), LocalDate.now());
-            BigDecimal months = days > 0 ? BigDecimal.valueOf(days).divide(BigDecimal.valueOf(30), 4, RoundingMode.HALF_UP) : BigDecimal.ONE;
+            BigDecimal months = monthsSinceCreated(shopMap.get(shopId));
 
             ProductSalesInfoDTO dto = new ProductSalesInfoDTO();
-            dto.setProductId(productId);
-            dto.setProductName(productName);
+            dto.setProductId(t.get(1, Integer.class));
+            dto.setProductName(t.get(2, String.class));
             // 计算月均销量
-            dto.setQuantity(
-                months.compareTo(BigDecimal.ZERO) > 0 ?
-                BigDecimal.valueOf(totalQuantity).divide(months, 0, RoundingMode.HALF_UP).intValue() :
-                0
-            );
-             // 计算月均销售额
-            dto.setTotalSales(
-                months.compareTo(BigDecimal.ZERO) > 0 ?
-                totalSales.divide(months, 2, RoundingMode.HALF_UP) :
-                BigDecimal.ZERO
-            );
+            dto.setQuantity(BigDecimal.valueOf(totalQuantity).divide(months, 0, RoundingMode.HALF_UP).intValue());
+            // 计算月均销售额
+            dto.setTotalSales(totalSales.divide(months, 2, RoundingMode.HALF_UP));
             // 计算月均利润
-            dto.setTotalProfit(
-                months.compareTo(BigDecimal.ZERO) > 0 ?
-                totalProfit.divide(months, 2, RoundingMode.HALF_UP) :
-                BigDecimal.ZERO
-            );
+            dto.setTotalProfit(totalProfit.divide(months, 2, RoundingMode.HALF_UP));
+            shopDto.getProductMonthlySalesList().add(dto);
+        }
 
-            resultMap.computeIfAbsent(shopId, k -> new ArrayList<>()).add(dto);
+        for (ShopStatisticsDTO dto : shopStats.values()) {
+            BigDecimal months = monthsSinceCreated(shopMap.get(dto.getShopId()));
+            dto.setAverageMonthlyProfit(dto.getTotalProfit().divide(months, 2, RoundingMode.HALF_UP));
         }
-        return resultMap;
+        return new ArrayList<>(shopStats.values());
+    }
+
+    /**
+     * 商家开业至今的月数（按30天一个月），避免除零或负数，不足时按一个月计算
+     */
+    private static BigDecimal monthsSinceCreated(Shop shop) {
+        long days = ChronoUnit.DAYS.between(shop.getCreateTime(), LocalDate.now());
+        return days > 0 ? BigDecimal.valueOf(days).divide(BigDecimal.valueOf(30), 4, RoundingMode.HALF_UP) : BigDecimal.ONE;
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,19 @@
 package com.example.domain.statistics.service;
 
+import com.example.domain.statistics.dto.SalesMatrix;
 import com.example.domain.statistics.dto.request.MovingAverageLineRequest;
 import com.example.domain.statistics.dto.response.MovingAverageLineDTO;
 import com.example.domain.statistics.dto.response.SalesStatisticsDTO;
 import com.example.domain.statistics.dto.response.ShopStatisticsDTO;
-import com.example.utils.DataExtractor; // Keep if still needed for getMovingAverage facade method
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function; // Keep if still needed for getMovingAverage facade method
-import java.util.HashMap; // Keep if still needed for getMovingAverage facade method
-import com.example.domain.statistics.dto.response.ProductSalesInfoDTO; // Keep if still needed for getMovingAverage facade method
 
 
 /**
@@ -31,6 +28,7 @@ public class StatisticsService {
     private final ShopStatisticsService shopStatisticsService;
     private final TemporalStatisticsService temporalStatisticsService;
     private final MovingAverageStatisticsService movingAverageStatisticsService;
+    private final SalesRollupService salesRollupService;
 
     // 移除 OrderService, ShopService, ProductService, JPAQueryFactory 的注入，
     // 它们现在由具体的子服务管理
@@ -82,6 +80,18 @@ public class StatisticsService {
     }
 
 
+    /**
+     * 构建指定日期范围内的商品日销售矩阵 (委托给 TemporalStatisticsService)
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return SalesMatrix 商品 × 日期的列式销售数据
+     */
+    public SalesMatrix buildSalesMatrix(LocalDate startDate, LocalDate endDate) {
+        log.info("Building sales matrix from {} to {}", startDate, endDate);
+        return temporalStatisticsService.buildSalesMatrix(startDate, endDate);
+    }
+
     /**
      * 计算总体销售额和利润的移动平均趋势 (委托给 MovingAverageStatisticsService)
      *
@@ -95,37 +105,57 @@ public class StatisticsService {
         return movingAverageStatisticsService.calculateOverallTrend(period, startDate, endDate);
     }
 
+    /**
+     * 按日期范围重建每日销售汇总 (委托给 SalesRollupService)
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     */
+    public void rebuildSalesRollup(LocalDate startDate, LocalDate endDate) {
+        log.info("Rebuilding sales rollup from {} to {}", startDate, endDate);
+        salesRollupService.rebuild(startDate, endDate);
+    }
+
+    /**
+     * 结账所有已经过完且尚未结账的月份 (委托给 SalesRollupService)
+     *
+     * @return 本次结账的月份数
+     */
+    public int closeSalesMonths() {
+        log.info("Closing sales months");
+        return salesRollupService.closeMonths();
+    }
+
 
      // --- 处理产品移动平均的静态映射和facade方法 ---
 
      // 保留这个静态映射，因为它定义了业务逻辑转换
-    private static final Map<MovingAverageLineRequest.TaskType, Function<ProductSalesInfoDTO, BigDecimal>> taskMap = new HashMap<>();
+    private static final Map<MovingAverageLineRequest.TaskType, SalesMatrix.Metric> taskMap = new EnumMap<>(MovingAverageLineRequest.TaskType.class);
 
     static {
         // 任务映射
-        taskMap.put(MovingAverageLineRequest.TaskType.Profit, ProductSalesInfoDTO::getTotalProfit);
-        taskMap.put(MovingAverageLineRequest.TaskType.SalesAmount, ProductSalesInfoDTO::getTotalSales);
-        taskMap.put(MovingAverageLineRequest.TaskType.Quantity, productSalesInfoDTO -> BigDecimal.valueOf(productSalesInfoDTO.getQuantity()));
+        taskMap.put(MovingAverageLineRequest.TaskType.Profit, SalesMatrix.Metric.PROFIT);
+        taskMap.put(MovingAverageLineRequest.TaskType.SalesAmount, SalesMatrix.Metric.SALES);
+        taskMap.put(MovingAverageLineRequest.TaskType.Quantity, SalesMatrix.Metric.QUANTITY);
     }
 
     /**
-     * 获取指定类型的数据提取器
+     * 获取指定类型对应的矩阵指标
      * @param taskType 任务类型
-     * @return DataExtractor
+     * @return SalesMatrix.Metric
      */
-     private DataExtractor getDataExtractorByType(MovingAverageLineRequest.TaskType taskType) {
-         Function<ProductSalesInfoDTO, BigDecimal> function = taskMap.get(taskType);
-         if (function == null) {
+     private SalesMatrix.Metric getMetricByType(MovingAverageLineRequest.TaskType taskType) {
+         SalesMatrix.Metric metric = taskMap.get(taskType);
+         if (metric == null) {
              throw new IllegalArgumentException("Unsupported task type: " + taskType);
          }
-         // 将 Function<ProductSalesInfoDTO, BigDecimal> 适配为 DataExtractor 接口
-         return function::apply;
+         return metric;
      }
 
 
     /**
      * 计算多个产品的移动平均值 (委托给 MovingAverageStatisticsService)
-     * 此方法作为 Facade，处理 TaskType 到 DataExtractor 的转换
+     * 此方法作为 Facade，处理 TaskType 到 SalesMatrix.Metric 的转换
      *
      * @param request   包含产品ID、任务类型、周期的请求对象
      * @param startDate 开始日期
@@ -136,13 +166,13 @@ public class StatisticsService {
         log.info("Calculating moving average for products: {}, type: {}, period: {}, dates: {} - {}",
                  request.getProductIds(), request.getTaskType(), request.getPeriod(), startDate, endDate);
 
-        // 1. 根据请求中的 TaskType 获取对应的 DataExtractor
-        DataExtractor dataExtractor = getDataExtractorByType(request.getTaskType());
+        // 1. 根据请求中的 TaskType 获取对应的矩阵指标
+        SalesMatrix.Metric metric = getMetricByType(request.getTaskType());
 
         // 2. 调用 MovingAverageStatisticsService 的方法
         return movingAverageStatisticsService.getMovingAverageForProducts(
                 request.getProductIds(),
-                dataExtractor,
+                metric,
                 request.getPeriod(),
                 startDate,
                 endDate
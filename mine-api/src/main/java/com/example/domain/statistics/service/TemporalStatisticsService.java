@@ -1,13 +1,17 @@
 package com.example.domain.statistics.service;
 
-import com.example.domain.order.entity.QOrder;
-import com.example.domain.order.entity.QOrderDetail;
 import com.example.domain.product.entity.QProduct;
+import com.example.domain.statistics.dto.SalesMatrix;
 import com.example.domain.statistics.dto.response.ProductSalesInfoDTO;
 import com.example.domain.statistics.dto.response.SalesStatisticsDTO;
+import com.example.domain.statistics.entity.DailySalesSummary;
+import com.example.domain.statistics.entity.MonthlySalesSummary;
+import com.example.domain.statistics.entity.QDailyProductSales;
+import com.example.domain.statistics.entity.QDailySalesSummary;
+import com.example.domain.statistics.entity.QMonthlyProductSales;
+import com.example.domain.statistics.entity.QMonthlySalesSummary;
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
-import com.querydsl.core.types.Projections;
-import com.querydsl.core.types.dsl.DateTemplate;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.core.types.dsl.NumberTemplate;
 import com.querydsl.jpa.impl.JPAQueryFactory;
@@ -16,16 +20,18 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 时间维度统计服务
  * 提供按日、月、时间范围等时间维度的统计计算服务
+ * 数据来源为 daily_sales_summary / daily_product_sales 及月度汇总预聚合表，由 {@link SalesRollupService} 维护
  */
 @Service
 @RequiredArgsConstructor
@@ -35,64 +41,185 @@ public class TemporalStatisticsService {
 
     /**
      * 计算指定日期范围内每个月的销售统计数据（优化版）
+     * 完整落在范围内且已结账的月份直接读取月度汇总表，其余部分（未结账的当月、范围首尾的不完整月份）
+     * 按每日汇总表按月累加，查询量与历史长度无关
      *
      * @param startDate 开始日期
      * @param endDate   结束日期
      * @return Map<YearMonth, SalesStatisticsDTO> 按年月分组的统计数据
      */
     public Map<YearMonth, SalesStatisticsDTO> calculateMonthlyStatisticsOptimized(LocalDate startDate, LocalDate endDate) {
-        QOrder qOrder = QOrder.order;
-        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        Map<YearMonth, SalesStatisticsDTO> monthlyStatsMap = new LinkedHashMap<>();
+
+        // 1. 已结账且完整覆盖的月份
+        Set<LocalDate> frozenMonths = loadClosedMonths(startDate, endDate, monthlyStatsMap);
+
+        // 2. 其余日期区间从每日汇总计算
+        List<LocalDate[]> openRanges = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            if (frozenMonths.contains(month.atDay(1))) {
+                continue;
+            }
+            LocalDate from = startDate.isAfter(month.atDay(1)) ? startDate : month.atDay(1);
+            LocalDate to = endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+            if (!openRanges.isEmpty() && openRanges.get(openRanges.size() - 1)[1].plusDays(1).equals(from)) {
+                openRanges.get(openRanges.size() - 1)[1] = to; // 合并相邻区间
+            } else {
+                openRanges.add(new LocalDate[]{from, to});
+            }
+        }
+        if (!openRanges.isEmpty()) {
+            aggregateDailyByMonth(openRanges, monthlyStatsMap);
+        }
+
+        Map<YearMonth, SalesStatisticsDTO> finalResultMap = new LinkedHashMap<>();
+        YearMonth currentMonth = YearMonth.from(startDate);
+        YearMonth endMonth = YearMonth.from(endDate);
+
+        while (!currentMonth.isAfter(endMonth)) {
+            finalResultMap.put(currentMonth, monthlyStatsMap.getOrDefault(currentMonth, createEmptySalesStatistics()));
+            currentMonth = currentMonth.plusMonths(1);
+        }
+
+        return finalResultMap;
+    }
+
+    /**
+     * 读取完整落在日期范围内的已结账月份
+     *
+     * @return 读取到的月份（月份第一天）
+     */
+    private Set<LocalDate> loadClosedMonths(LocalDate startDate, LocalDate endDate, Map<YearMonth, SalesStatisticsDTO> monthlyStatsMap) {
+        QMonthlySalesSummary qMonthly = QMonthlySalesSummary.monthlySalesSummary;
+        QMonthlyProductSales qMonthlyProduct = QMonthlyProductSales.monthlyProductSales;
         QProduct qProduct = QProduct.product;
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+        // 首月从 1 号开始、末月到月底才算完整覆盖
+        LocalDate firstMonth = startDate.getDayOfMonth() == 1 ? startDate : startDate.withDayOfMonth(1).plusMonths(1);
+        LocalDate lastMonth = endDate.equals(YearMonth.from(endDate).atEndOfMonth()) ? endDate.withDayOfMonth(1) : endDate.withDayOfMonth(1).minusMonths(1);
+        if (firstMonth.isAfter(lastMonth)) {
+            return Set.of();
+        }
+
+        List<MonthlySalesSummary> closed = queryFactory
+                .selectFrom(qMonthly)
+                .where(qMonthly.monthStart.between(firstMonth, lastMonth)
+                        .and(qMonthly.closed.isTrue()))
+                .fetch();
+        if (closed.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<LocalDate> frozenMonths = new HashSet<>();
+        for (MonthlySalesSummary summary : closed) {
+            frozenMonths.add(summary.getMonthStart());
+            if (summary.getOrderCount() <= 0) continue; // 订单全部取消的月份视为无销售
+
+            SalesStatisticsDTO statsDto = new SalesStatisticsDTO();
+            statsDto.setOrderCount(summary.getOrderCount());
+            statsDto.setTotalSales(summary.getTotalSales());
+            statsDto.setTotalProfit(summary.getTotalProfit());
+            statsDto.setTotalCost(statsDto.getTotalSales().subtract(statsDto.getTotalProfit()));
+            statsDto.setProductSalesInfoDTOS(new ArrayList<>());
+            monthlyStatsMap.put(YearMonth.from(summary.getMonthStart()), statsDto);
+        }
 
-        NumberTemplate<Integer> yearExpression = Expressions.numberTemplate(Integer.class, "YEAR({0})", qOrder.createTime);
-        NumberTemplate<Integer> monthExpression = Expressions.numberTemplate(Integer.class, "MONTH({0})", qOrder.createTime);
+        List<Tuple> productRows = queryFactory
+                .select(
+                        qMonthlyProduct.monthStart,
+                        qProduct.id,
+                        qProduct.name,
+                        qMonthlyProduct.quantity,
+                        qMonthlyProduct.totalSales,
+                        qMonthlyProduct.totalProfit
+                )
+                .from(qMonthlyProduct)
+                .join(qMonthlyProduct.product, qProduct)
+                .where(qMonthlyProduct.monthStart.in(frozenMonths)
+                        .and(qMonthlyProduct.quantity.gt(0)))
+                .orderBy(qMonthlyProduct.monthStart.asc(), qProduct.id.asc())
+                .fetch();
+
+        for (Tuple row : productRows) {
+            SalesStatisticsDTO statsDto = monthlyStatsMap.get(YearMonth.from(row.get(qMonthlyProduct.monthStart)));
+            if (statsDto == null) continue;
+
+            ProductSalesInfoDTO productInfo = new ProductSalesInfoDTO();
+            productInfo.setProductId(row.get(qProduct.id));
+            productInfo.setProductName(row.get(qProduct.name));
+            Integer quantity = row.get(qMonthlyProduct.quantity);
+            productInfo.setQuantity(quantity != null ? quantity : 0);
+            productInfo.setTotalSales(row.get(qMonthlyProduct.totalSales));
+            productInfo.setTotalProfit(row.get(qMonthlyProduct.totalProfit));
+
+            statsDto.getProductSalesInfoDTOS().add(productInfo);
+        }
+        return frozenMonths;
+    }
+
+    /**
+     * 基于每日汇总表按月累加指定日期区间的数据
+     */
+    private void aggregateDailyByMonth(List<LocalDate[]> ranges, Map<YearMonth, SalesStatisticsDTO> monthlyStatsMap) {
+        QDailySalesSummary qSummary = QDailySalesSummary.dailySalesSummary;
+        QDailyProductSales qProductSales = QDailyProductSales.dailyProductSales;
+        QProduct qProduct = QProduct.product;
+
+        BooleanBuilder summaryWhere = new BooleanBuilder();
+        BooleanBuilder productWhere = new BooleanBuilder();
+        for (LocalDate[] range : ranges) {
+            summaryWhere.or(qSummary.saleDate.between(range[0], range[1]));
+            productWhere.or(qProductSales.saleDate.between(range[0], range[1]));
+        }
+
+        NumberTemplate<Integer> summaryYear = Expressions.numberTemplate(Integer.class, "YEAR({0})", qSummary.saleDate);
+        NumberTemplate<Integer> summaryMonth = Expressions.numberTemplate(Integer.class, "MONTH({0})", qSummary.saleDate);
+        NumberTemplate<Integer> productYear = Expressions.numberTemplate(Integer.class, "YEAR({0})", qProductSales.saleDate);
+        NumberTemplate<Integer> productMonth = Expressions.numberTemplate(Integer.class, "MONTH({0})", qProductSales.saleDate);
 
         List<Tuple> monthlyTotals = queryFactory
                 .select(
-                        yearExpression,
-                        monthExpression,
-                        qOrder.id.countDistinct(),
-                        qOrder.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrder.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                        summaryYear,
+                        summaryMonth,
+                        qSummary.orderCount.sum().coalesce(0),
+                        qSummary.totalSales.sum().coalesce(BigDecimal.ZERO),
+                        qSummary.totalProfit.sum().coalesce(BigDecimal.ZERO)
                 )
-                .from(qOrder)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
-                .groupBy(yearExpression, monthExpression)
-                .orderBy(yearExpression.asc(), monthExpression.asc())
+                .from(qSummary)
+                .where(summaryWhere)
+                .groupBy(summaryYear, summaryMonth)
+                .orderBy(summaryYear.asc(), summaryMonth.asc())
                 .fetch();
 
         List<Tuple> monthlyProductDetails = queryFactory
                 .select(
-                        yearExpression,
-                        monthExpression,
+                        productYear,
+                        productMonth,
                         qProduct.id,
                         qProduct.name,
-                        qOrderDetail.quantity.sum().coalesce(0),
-                        qOrderDetail.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrderDetail.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                        qProductSales.quantity.sum().coalesce(0),
+                        qProductSales.totalSales.sum().coalesce(BigDecimal.ZERO),
+                        qProductSales.totalProfit.sum().coalesce(BigDecimal.ZERO)
                 )
-                .from(qOrderDetail)
-                .join(qOrderDetail.order, qOrder)
-                .join(qOrderDetail.product, qProduct)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
-                .groupBy(yearExpression, monthExpression, qProduct.id, qProduct.name)
-                .orderBy(yearExpression.asc(), monthExpression.asc(), qProduct.id.asc())
+                .from(qProductSales)
+                .join(qProductSales.product, qProduct)
+                .where(productWhere)
+                .groupBy(productYear, productMonth, qProduct.id, qProduct.name)
+                .having(qProductSales.quantity.sum().gt(0))
+                .orderBy(productYear.asc(), productMonth.asc(), qProduct.id.asc())
                 .fetch();
 
-        Map<YearMonth, SalesStatisticsDTO> monthlyStatsMap = new LinkedHashMap<>();
-
         for (Tuple row : monthlyTotals) {
-            Integer year = row.get(yearExpression);
-            Integer month = row.get(monthExpression);
+            Integer year = row.get(summaryYear);
+            Integer month = row.get(summaryMonth);
             if (year == null || month == null) continue;
 
+            int orderCount = row.get(2, Number.class).intValue();
+            if (orderCount <= 0) continue; // 订单全部取消的月份视为无销售
+
             YearMonth yearMonth = YearMonth.of(year, month);
             SalesStatisticsDTO statsDto = new SalesStatisticsDTO();
-            statsDto.setOrderCount(row.get(2, Long.class).intValue());
+            statsDto.setOrderCount(orderCount);
             statsDto.setTotalSales(row.get(3, BigDecimal.class));
             statsDto.setTotalProfit(row.get(4, BigDecimal.class));
             statsDto.setTotalCost(statsDto.getTotalSales().subtract(statsDto.getTotalProfit()));
@@ -101,8 +228,8 @@ public class TemporalStatisticsService {
         }
 
         for (Tuple row : monthlyProductDetails) {
-            Integer year = row.get(yearExpression);
-            Integer month = row.get(monthExpression);
+            Integer year = row.get(productYear);
+            Integer month = row.get(productMonth);
             if (year == null || month == null) continue;
 
             YearMonth yearMonth = YearMonth.of(year, month);
@@ -119,47 +246,34 @@ public class TemporalStatisticsService {
 
             statsDto.getProductSalesInfoDTOS().add(productInfo);
         }
-
-        Map<YearMonth, SalesStatisticsDTO> finalResultMap = new LinkedHashMap<>();
-        YearMonth currentMonth = YearMonth.from(startDate);
-        YearMonth endMonth = YearMonth.from(endDate);
-
-        while (!currentMonth.isAfter(endMonth)) {
-            finalResultMap.put(currentMonth, monthlyStatsMap.getOrDefault(currentMonth, createEmptySalesStatistics()));
-            currentMonth = currentMonth.plusMonths(1);
-        }
-
-        return finalResultMap;
     }
 
     /**
      * 计算指定日期范围内的总体销售统计数据
+     * 基于每日汇总表累加，不再扫描订单明细
      *
      * @param startDate 开始日期
      * @param endDate   结束日期
      * @return SalesStatisticsDTO 包含日期范围内总体统计和按商品分组的统计
      */
     public SalesStatisticsDTO calculateDateRangeStatistics(LocalDate startDate, LocalDate endDate) {
-        QOrder qOrder = QOrder.order;
-        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        QDailySalesSummary qSummary = QDailySalesSummary.dailySalesSummary;
+        QDailyProductSales qProductSales = QDailyProductSales.dailyProductSales;
         QProduct qProduct = QProduct.product;
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-
         Tuple overallStats = queryFactory
                 .select(
-                        qOrder.id.count(),
-                        qOrder.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrder.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                        qSummary.orderCount.sum().coalesce(0),
+                        qSummary.totalSales.sum().coalesce(BigDecimal.ZERO),
+                        qSummary.totalProfit.sum().coalesce(BigDecimal.ZERO)
                 )
-                .from(qOrder)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
+                .from(qSummary)
+                .where(qSummary.saleDate.between(startDate, endDate))
                 .fetchOne();
 
         SalesStatisticsDTO result = new SalesStatisticsDTO();
         if (overallStats != null) {
-            result.setOrderCount(overallStats.get(0, Long.class).intValue());
+            result.setOrderCount(overallStats.get(0, Number.class).intValue());
             result.setTotalSales(overallStats.get(1, BigDecimal.class));
             result.setTotalProfit(overallStats.get(2, BigDecimal.class));
             result.setTotalCost(result.getTotalSales().subtract(result.getTotalProfit()));
@@ -168,22 +282,33 @@ public class TemporalStatisticsService {
             return result;
         }
 
-        List<ProductSalesInfoDTO> productStats = queryFactory
-                .select(Projections.constructor(ProductSalesInfoDTO.class,
+        List<Tuple> productRows = queryFactory
+                .select(
                         qProduct.id,
                         qProduct.name,
-                        qOrderDetail.quantity.sum().coalesce(0),
-                        qOrderDetail.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrderDetail.totalProfit.sum().coalesce(BigDecimal.ZERO)
-                ))
-                .from(qOrderDetail)
-                .join(qOrderDetail.order, qOrder)
-                .join(qOrderDetail.product, qProduct)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
+                        qProductSales.quantity.sum().coalesce(0),
+                        qProductSales.totalSales.sum().coalesce(BigDecimal.ZERO),
+                        qProductSales.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                )
+                .from(qProductSales)
+                .join(qProductSales.product, qProduct)
+                .where(qProductSales.saleDate.between(startDate, endDate))
                 .groupBy(qProduct.id, qProduct.name)
+                .having(qProductSales.quantity.sum().gt(0))
                 .orderBy(qProduct.id.asc())
                 .fetch();
 
+        List<ProductSalesInfoDTO> productStats = new ArrayList<>(productRows.size());
+        for (Tuple row : productRows) {
+            productStats.add(new ProductSalesInfoDTO(
+                    row.get(qProduct.id),
+                    row.get(qProduct.name),
+                    row.get(2, Number.class).intValue(),
+                    row.get(3, BigDecimal.class),
+                    row.get(4, BigDecimal.class)
+            ));
+        }
+
         result.setProductSalesInfoDTOS(productStats);
 
         return result;
@@ -191,70 +316,55 @@ public class TemporalStatisticsService {
 
     /**
      * 计算指定日期范围内每日的销售统计数据
+     * 直接读取每日汇总表，返回行数与日期数、商品数成正比，与订单量无关
      *
      * @param startDate 开始日期
      * @param endDate   结束日期
      * @return Map<LocalDate, SalesStatisticsDTO> 按日期分组的统计数据
      */
     public Map<LocalDate, SalesStatisticsDTO> calculateDailyStatistics(LocalDate startDate, LocalDate endDate) {
-        QOrder qOrder = QOrder.order;
-        QOrderDetail qOrderDetail = QOrderDetail.orderDetail;
+        QDailySalesSummary qSummary = QDailySalesSummary.dailySalesSummary;
+        QDailyProductSales qProductSales = QDailyProductSales.dailyProductSales;
         QProduct qProduct = QProduct.product;
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-
-        DateTemplate<java.sql.Date> orderSqlDate = Expressions.dateTemplate(java.sql.Date.class, "DATE({0})", qOrder.createTime);
-
-        List<Tuple> dailyTotals = queryFactory
-                .select(
-                        orderSqlDate,
-                        qOrder.id.countDistinct(),
-                        qOrder.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrder.totalProfit.sum().coalesce(BigDecimal.ZERO)
-                )
-                .from(qOrder)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
-                .groupBy(orderSqlDate)
-                .orderBy(orderSqlDate.asc())
+        List<DailySalesSummary> dailyTotals = queryFactory
+                .selectFrom(qSummary)
+                .where(qSummary.saleDate.between(startDate, endDate))
+                .orderBy(qSummary.saleDate.asc())
                 .fetch();
 
         Map<LocalDate, SalesStatisticsDTO> dailyStatsMap = new LinkedHashMap<>();
-        for (Tuple row : dailyTotals) {
-            java.sql.Date sqlDate = row.get(orderSqlDate);
-            if (sqlDate == null) continue;
-            LocalDate date = sqlDate.toLocalDate();
+        for (DailySalesSummary summary : dailyTotals) {
+            if (summary.getOrderCount() <= 0) continue; // 订单全部取消的日期视为无销售
 
             SalesStatisticsDTO statsDto = new SalesStatisticsDTO();
-            statsDto.setOrderCount(row.get(1, Long.class).intValue());
-            statsDto.setTotalSales(row.get(2, BigDecimal.class));
-            statsDto.setTotalProfit(row.get(3, BigDecimal.class));
+            statsDto.setOrderCount(summary.getOrderCount());
+            statsDto.setTotalSales(summary.getTotalSales());
+            statsDto.setTotalProfit(summary.getTotalProfit());
             statsDto.setTotalCost(statsDto.getTotalSales().subtract(statsDto.getTotalProfit()));
             statsDto.setProductSalesInfoDTOS(new ArrayList<>());
-            dailyStatsMap.put(date, statsDto);
+            dailyStatsMap.put(summary.getSaleDate(), statsDto);
         }
 
         List<Tuple> dailyProductDetails = queryFactory
                 .select(
-                        orderSqlDate,
+                        qProductSales.saleDate,
                         qProduct.id,
                         qProduct.name,
-                        qOrderDetail.quantity.sum().coalesce(0),
-                        qOrderDetail.totalSalesAmount.sum().coalesce(BigDecimal.ZERO),
-                        qOrderDetail.totalProfit.sum().coalesce(BigDecimal.ZERO)
+                        qProductSales.quantity,
+                        qProductSales.totalSales,
+                        qProductSales.totalProfit
                 )
-                .from(qOrderDetail)
-                .join(qOrderDetail.order, qOrder)
-                .join(qOrderDetail.product, qProduct)
-                .where(qOrder.createTime.goe(startDateTime).and(qOrder.createTime.lt(endDateTime)))
-                .groupBy(orderSqlDate, qProduct.id, qProduct.name)
-                .orderBy(orderSqlDate.asc(), qProduct.id.asc())
+                .from(qProductSales)
+                .join(qProductSales.product, qProduct)
+                .where(qProductSales.saleDate.between(startDate, endDate)
+                        .and(qProductSales.quantity.gt(0)))
+                .orderBy(qProductSales.saleDate.asc(), qProduct.id.asc())
                 .fetch();
 
         for (Tuple row : dailyProductDetails) {
-            java.sql.Date sqlDate = row.get(orderSqlDate);
-            if (sqlDate == null) continue;
-            LocalDate date = sqlDate.toLocalDate();
+            LocalDate date = row.get(qProductSales.saleDate);
+            if (date == null) continue;
 
             SalesStatisticsDTO statsDto = dailyStatsMap.get(date);
             if (statsDto == null) continue;
@@ -262,10 +372,10 @@ public class TemporalStatisticsService {
             ProductSalesInfoDTO productInfo = new ProductSalesInfoDTO();
             productInfo.setProductId(row.get(qProduct.id));
             productInfo.setProductName(row.get(qProduct.name));
-            Number quantitySum = row.get(3, Number.class);
-            productInfo.setQuantity(quantitySum != null ? quantitySum.intValue() : 0);
-            productInfo.setTotalSales(row.get(4, BigDecimal.class));
-            productInfo.setTotalProfit(row.get(5, BigDecimal.class));
+            Integer quantity = row.get(qProductSales.quantity);
+            productInfo.setQuantity(quantity != null ? quantity : 0);
+            productInfo.setTotalSales(row.get(qProductSales.totalSales));
+            productInfo.setTotalProfit(row.get(qProductSales.totalProfit));
 
             statsDto.getProductSalesInfoDTOS().add(productInfo);
         }
@@ -280,6 +390,50 @@ public class TemporalStatisticsService {
         return finalResultMap;
     }
 
+    /**
+     * 构建指定日期范围内的商品日销售矩阵
+     * 一次查询读取汇总表，单次遍历填充矩阵，供预测和移动平均按商品切片使用
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 包含范围内所有有销量商品的 SalesMatrix
+     */
+    public SalesMatrix buildSalesMatrix(LocalDate startDate, LocalDate endDate) {
+        QDailyProductSales qProductSales = QDailyProductSales.dailyProductSales;
+
+        List<Tuple> rows = queryFactory
+                .select(
+                        qProductSales.saleDate,
+                        qProductSales.product.id,
+                        qProductSales.quantity,
+                        qProductSales.totalSales,
+                        qProductSales.totalProfit
+                )
+                .from(qProductSales)
+                .where(qProductSales.saleDate.between(startDate, endDate)
+                        .and(qProductSales.quantity.gt(0)))
+                .fetch();
+
+        int[] productIds = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            productIds[i] = rows.get(i).get(qProductSales.product.id);
+        }
+
+        SalesMatrix matrix = new SalesMatrix(startDate, endDate, productIds);
+        for (Tuple row : rows) {
+            BigDecimal totalSales = row.get(qProductSales.totalSales);
+            BigDecimal totalProfit = row.get(qProductSales.totalProfit);
+            matrix.add(
+                    row.get(qProductSales.product.id),
+                    row.get(qProductSales.saleDate),
+                    row.get(qProductSales.quantity),
+                    totalSales != null ? totalSales.doubleValue() : 0.0,
+                    totalProfit != null ? totalProfit.doubleValue() : 0.0
+            );
+        }
+        return matrix;
+    }
+
     // 创建一个空的 SalesStatisticsDTO 用于填充无销售的日期/月份
     private SalesStatisticsDTO createEmptySalesStatistics() {
         SalesStatisticsDTO emptyStats = new SalesStatisticsDTO();
@@ -6,10 +6,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * 基础Repository接口
@@ -46,63 +48,71 @@ public interface BaseRepository<T, Q extends BaseQuery> {
      * @return 分页结果
      */
     default Slice<T> findPage(Q query, Pageable pageable) {
-        try {
-            // 1. 构建基础查询并执行分页
-            JPAQuery<T> jpaQuery = buildConditionQuery(query);
-            List<T> content = jpaQuery
-                    .offset(pageable.getOffset())
-                    .limit(pageable.getPageSize() + 1)
-                    .fetch();
-
-            // 2. 处理分页
-            boolean hasNext = content.size() > pageable.getPageSize();
-            if (hasNext) {
-                content.removeLast();
-            }
-
-            // 3. 如果需要加载关联实体，重新查询完整数据
-            if (query.getIncludes() != null && !query.getIncludes().isEmpty()) {
-                // 提取实体ID列表
-                List<Integer> ids = content.stream()
-                        .map(entity -> {
-                            try {
-                                return (Integer) entity.getClass().getMethod("getId").invoke(entity);
-                            } catch (Exception e) {
-                                throw new RuntimeException("Failed to get entity ID", e);
-                            }
-                        })
-                        .collect(Collectors.toList());
-
-                // 使用现有查询对象的复制来创建新查询
-                // 只保留ID列表和includes设置
-                Q enrichQuery;
-                try {
-                    // 尝试获取查询类的Builder
-                    Object builder = query.getClass().getMethod("builder").invoke(null);
-
-                    // 设置IDs
-                    builder.getClass().getMethod("ids", Integer[].class)
-                            .invoke(builder, new Object[]{ids.toArray(new Integer[0])});
-
-                    // 设置includes
-                    builder.getClass().getMethod("includes", Set.class)
-                            .invoke(builder, query.getIncludes());
-
-                    // 构建查询对象
-                    enrichQuery = (Q) builder.getClass().getMethod("build").invoke(builder);
-                    System.out.println("enrichQuery: " + enrichQuery.toString());
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to create query object using Builder pattern", e);
-                }
-
-                // 重新查询完整数据
-                content = findList(enrichQuery);
-            }
-
-            return new SliceImpl<>(content, pageable, hasNext);
-        } catch (Exception e) {
-            throw new RuntimeException("Error in findPage: " + e.getMessage(), e);
+        return fetchPage(query, buildConditionQuery(query), pageable);
+    }
+
+    /**
+     * 按 OFFSET 分页执行已构建的条件查询，需要时再加载关联实体
+     *
+     * @param query    查询条件
+     * @param jpaQuery 已构建的条件查询（含排序）
+     * @param pageable 分页参数
+     * @return 分页结果
+     */
+    default Slice<T> fetchPage(Q query, JPAQuery<T> jpaQuery, Pageable pageable) {
+        // 1. 执行分页
+        List<T> content = jpaQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+
+        // 2. 处理分页
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.removeLast();
+        }
+
+        // 3. 如果需要加载关联实体，重新查询完整数据
+        content = loadIncludes(query, content);
+
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * 实体ID的查询路径和取值函数，两阶段分页按ID重新加载关联实体时使用
+     *
+     * @return 实体ID
+     */
+    EntityId<T> entityId();
+
+    /**
+     * 如果查询需要加载关联实体，按 ID 重新查询完整数据
+     * 重新查询在原查询条件上追加 ID IN 条件，结果按第一阶段的顺序排列，分页的排序不受 IN 查询影响
+     *
+     * @param query   查询条件
+     * @param content 只含基本字段的查询结果
+     * @return 加载了关联实体的结果
+     */
+    default List<T> loadIncludes(Q query, List<T> content) {
+        if (query.getIncludes() == null || query.getIncludes().isEmpty() || content.isEmpty()) {
+            return content;
+        }
+
+        // 提取实体ID列表，并记录每个ID在分页中的位置
+        EntityId<T> entityId = entityId();
+        List<Integer> ids = new ArrayList<>(content.size());
+        Map<Integer, Integer> positions = new HashMap<>(content.size() * 2);
+        for (T entity : content) {
+            Integer id = entityId.getter().apply(entity);
+            positions.put(id, ids.size());
+            ids.add(id);
         }
+
+        // 在原查询上限定这些ID并加载关联实体，再恢复原分页顺序
+        JPAQuery<T> jpaQuery = buildBaseQuery(query);
+        List<T> enriched = new ArrayList<>(jpaQuery.where(entityId.path().in(ids)).fetch());
+        enriched.sort(Comparator.comparingInt(entity -> positions.getOrDefault(entityId.getter().apply(entity), Integer.MAX_VALUE)));
+        return enriched;
     }
 
     /**
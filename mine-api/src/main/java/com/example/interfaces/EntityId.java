@@ -0,0 +1,16 @@
+package com.example.interfaces;
+
+import com.querydsl.core.types.dsl.NumberPath;
+
+import java.util.function.Function;
+
+/**
+ * 实体ID的查询路径和取值函数
+ * 两阶段分页第一阶段取出实体ID，第二阶段在原查询上追加 ID IN 条件并加载关联实体
+ *
+ * @param path   ID的QueryDSL路径
+ * @param getter 从实体取ID
+ * @param <T>    实体类型
+ */
+public record EntityId<T>(NumberPath<Integer> path, Function<T, Integer> getter) {
+}
@@ -0,0 +1,50 @@
+package com.example.interfaces;
+
+import com.example.exception.MyException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页位置
+ * 记录上一页最后一条数据的排序键（时间 + ID，或仅 ID），编码为不透明字符串返回给客户端
+ *
+ * @param time 排序时间，仅按 ID 排序时为 null
+ * @param id   实体ID
+ */
+public record KeysetCursor(LocalDateTime time, int id) {
+
+    /**
+     * 仅按 ID 排序的游标
+     */
+    public static KeysetCursor of(int id) {
+        return new KeysetCursor(null, id);
+    }
+
+    /**
+     * 编码为 URL 安全的字符串
+     */
+    public String encode() {
+        String raw = (time != null ? time.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传回的游标
+     *
+     * @param cursor 编码后的游标
+     * @return 游标位置
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            String time = raw.substring(0, separator);
+            int id = Integer.parseInt(raw.substring(separator + 1));
+            return new KeysetCursor(time.isEmpty() ? null : LocalDateTime.parse(time), id);
+        } catch (RuntimeException e) {
+            throw new MyException("无效的分页游标");
+        }
+    }
+}
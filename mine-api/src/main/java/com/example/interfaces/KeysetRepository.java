@@ -0,0 +1,77 @@
+package com.example.interfaces;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * 支持游标（keyset）分页的Repository接口
+ * 以上一页最后一条数据的排序键作为起点，用 WHERE 条件定位而不是 OFFSET 跳过，
+ * 任意深度的翻页代价都与第一页相同。OFFSET 分页也使用相同的排序，两种方式的结果顺序一致
+ *
+ * @param <T> 实体类型
+ * @param <Q> 查询条件类型
+ */
+public interface KeysetRepository<T, Q extends BaseQuery> extends BaseRepository<T, Q> {
+
+    /**
+     * 分页查询，按 {@link #keysetOrder()} 排序
+     * @param query 查询条件
+     * @param pageable 分页参数
+     * @return 分页结果
+     */
+    @Override
+    default Slice<T> findPage(Q query, Pageable pageable) {
+        return fetchPage(query, buildConditionQuery(query).orderBy(keysetOrder()), pageable);
+    }
+
+    /**
+     * 游标分页查询
+     *
+     * @param query  查询条件
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @param size   每页大小
+     * @return 带下一页游标的分页结果
+     */
+    default KeysetSlice<T> findPageAfter(Q query, String cursor, int size) {
+        JPAQuery<T> jpaQuery = buildConditionQuery(query);
+        if (cursor != null && !cursor.isBlank()) {
+            jpaQuery.where(keysetPredicate(KeysetCursor.decode(cursor)));
+        }
+        List<T> content = jpaQuery
+                .orderBy(keysetOrder())
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.removeLast();
+        }
+        String nextCursor = hasNext ? cursorOf(content.getLast()).encode() : null;
+
+        return new KeysetSlice<>(loadIncludes(query, content), size, hasNext, nextCursor);
+    }
+
+    /**
+     * 游标分页的排序，必须以唯一键（ID）结尾
+     */
+    OrderSpecifier<?>[] keysetOrder();
+
+    /**
+     * 游标分页的起点条件：排在游标之后的数据
+     *
+     * @param after 上一页最后一条数据的位置
+     */
+    Predicate keysetPredicate(KeysetCursor after);
+
+    /**
+     * 取实体在游标分页中的位置
+     *
+     * @param entity 实体
+     */
+    KeysetCursor cursorOf(T entity);
+}
@@ -0,0 +1,33 @@
+package com.example.interfaces;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 在 Slice 的基础上携带下一页的游标
+ *
+ * @param <T> 内容类型
+ */
+@Getter
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    /**
+     * 下一页游标，没有下一页时为 null
+     */
+    private final String nextCursor;
+
+    public KeysetSlice(List<T> content, int size, boolean hasNext, String nextCursor) {
+        super(content, PageRequest.of(0, size), hasNext);
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        return new KeysetSlice<>(getConvertedContent(converter), getSize(), hasNext(), nextCursor);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.monitoring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 商家商品最近一次批次销售实体
+ * 每个 (商家, 商品) 保存其最近一张包含该批次商品的订单中的批次销售明细，随订单创建、取消维护，
+ * 临期监控按 alert_date 范围查询，不再扫描全部订单历史
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "shop_product_latest_batch", schema = "mine",
+       uniqueConstraints = {
+           @UniqueConstraint(columnNames = {"sale_batch_detail_id"})
+       })
+public class ShopProductLatestBatch {
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /**
+     * 商家ID
+     */
+    @Column(name = "shop_id", nullable = false)
+    private Integer shopId;
+
+    /**
+     * 商品ID
+     */
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    /**
+     * 订单ID
+     */
+    @Column(name = "order_id", nullable = false)
+    private Integer orderId;
+
+    /**
+     * 订单明细ID
+     */
+    @Column(name = "order_detail_id", nullable = false)
+    private Integer orderDetailId;
+
+    /**
+     * 批次销售明细ID
+     */
+    @Column(name = "sale_batch_detail_id", nullable = false)
+    private Integer saleBatchDetailId;
+
+    /**
+     * 批次ID
+     */
+    @Column(name = "batch_id", nullable = false)
+    private Integer batchId;
+
+    /**
+     * 下单时间
+     */
+    @Column(name = "order_time", nullable = false)
+    private LocalDateTime orderTime;
+
+    /**
+     * 批次生产日期
+     */
+    @Column(name = "production_date")
+    private LocalDate productionDate;
+
+    /**
+     * 临期日期（生产日期 + 商品临期监控阈值），生产日期或阈值为空时为空
+     */
+    @Column(name = "alert_date")
+    private LocalDate alertDate;
+}
@@ -3,6 +3,7 @@ package com.example.monitoring.interfaces; // Updated package
 import com.example.monitoring.dto.NearExpiryBatchInfo; // Updated DTO import
 import com.example.monitoring.service.ExpiryAlertProcessedLogService; // 新增 Service 依赖
 import com.example.monitoring.service.ExpiryMonitoringService; // Updated Service import
+import com.example.monitoring.service.ShopProductLatestBatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -30,6 +31,7 @@ public class ExpiryMonitoringController {
 
     private final ExpiryMonitoringService expiryMonitoringService;
     private final ExpiryAlertProcessedLogService expiryAlertProcessedLogService; // 注入新的 Service
+    private final ShopProductLatestBatchService shopProductLatestBatchService; // 商家商品最近一次批次销售
 
     @GetMapping("/expiry/batches") // 修改路径以反映是批次信息
     @Operation(summary = "获取临期批次列表", description = "对于每个商家，查找其最后一次包含批次管理商品的销售订单，并检查该订单中每个批次的生产日期是否超过对应商品的临期阈值。")
@@ -62,4 +64,10 @@ public class ExpiryMonitoringController {
         expiryAlertProcessedLogService.unmarkAsProcessed(saleBatchDetailId);
         // 方法为 void，Spring MVC 默认返回 HTTP 200 OK
     }
-}
\ No newline at end of file
+
+    @PostMapping("/expiry/latest-batches/rebuild")
+    @Operation(summary = "重建商家商品最近批次销售", description = "从订单历史重新生成每个商家、商品最近一次批次销售记录，用于首次上线回填或数据修正。")
+    public int rebuildLatestBatches() {
+        return shopProductLatestBatchService.rebuild();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.monitoring.repository;
+
+import com.example.monitoring.dto.NearExpiryBatchInfo;
+import com.example.monitoring.entity.ShopProductLatestBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 商家商品最近一次批次销售 数据访问仓库
+ */
+public interface ShopProductLatestBatchRepository extends JpaRepository<ShopProductLatestBatch, Integer> {
+
+    /**
+     * 新订单：删除该商家这些商品中早于该订单的记录
+     * 用单表 DELETE 而不是 MySQL 特有的多表 DELETE，内存数据库（MySQL 兼容模式）也能执行
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM shop_product_latest_batch
+        WHERE shop_id = :shopId
+          AND product_id IN (:productIds)
+          AND order_time < :orderTime
+        """, nativeQuery = true)
+    int deleteOlderThanOrder(@Param("shopId") Integer shopId,
+                             @Param("productIds") Collection<Integer> productIds,
+                             @Param("orderTime") LocalDateTime orderTime);
+
+    /**
+     * 新订单：写入该订单的批次销售明细（已有更晚订单的 (商家, 商品) 除外）
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_latest_batch (shop_id, product_id, order_id, order_detail_id, sale_batch_detail_id, batch_id, order_time, production_date, alert_date)
+        SELECT o.shop_id, od.product_id, o.id, od.id, sbd.id, b.id, o.create_time, b.production_date,
+               TIMESTAMPADD(DAY, p.expiry_monitoring_threshold_days, b.production_date)
+        FROM `order` o
+        JOIN order_detail od ON od.order_id = o.id
+        JOIN sale_batch_detail sbd ON sbd.order_detail_id = od.id
+        JOIN batch b ON b.id = sbd.batch_id
+        JOIN product p ON p.id = od.product_id
+        WHERE o.id = :orderId
+          AND NOT EXISTS (SELECT 1 FROM shop_product_latest_batch l
+                          WHERE l.shop_id = o.shop_id AND l.product_id = od.product_id AND l.order_time > o.create_time)
+        """, nativeQuery = true)
+    int insertFromOrder(@Param("orderId") Integer orderId);
+
+    /**
+     * 取消订单：删除该订单的记录
+     */
+    @Modifying
+    @Query(value = "DELETE FROM shop_product_latest_batch WHERE order_id = :orderId", nativeQuery = true)
+    int deleteByOrder(@Param("orderId") Integer orderId);
+
+    /**
+     * 取消订单：(商家, 商品) 已没有记录时，从其余订单中取最近一张补回
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_latest_batch (shop_id, product_id, order_id, order_detail_id, sale_batch_detail_id, batch_id, order_time, production_date, alert_date)
+        SELECT o.shop_id, od.product_id, o.id, od.id, sbd.id, b.id, o.create_time, b.production_date,
+               TIMESTAMPADD(DAY, p.expiry_monitoring_threshold_days, b.production_date)
+        FROM `order` o
+        JOIN order_detail od ON od.order_id = o.id
+        JOIN sale_batch_detail sbd ON sbd.order_detail_id = od.id
+        JOIN batch b ON b.id = sbd.batch_id
+        JOIN product p ON p.id = od.product_id
+        WHERE o.shop_id = :shopId
+          AND od.product_id = :productId
+          AND o.id <> :excludedOrderId
+          AND o.create_time = (SELECT MAX(o2.create_time)
+                               FROM `order` o2
+                               JOIN order_detail od2 ON od2.order_id = o2.id
+                               JOIN sale_batch_detail sbd2 ON sbd2.order_detail_id = od2.id
+                               WHERE o2.shop_id = :shopId AND od2.product_id = :productId AND o2.id <> :excludedOrderId)
+          AND NOT EXISTS (SELECT 1 FROM shop_product_latest_batch l WHERE l.shop_id = :shopId AND l.product_id = :productId)
+        """, nativeQuery = true)
+    int refill(@Param("shopId") Integer shopId,
+               @Param("productId") Integer productId,
+               @Param("excludedOrderId") Integer excludedOrderId);
+
+    /**
+     * 商品临期阈值修改后重新计算临期日期
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE shop_product_latest_batch
+        SET alert_date = TIMESTAMPADD(DAY, :thresholdDays, production_date)
+        WHERE product_id = :productId
+        """, nativeQuery = true)
+    int updateAlertDates(@Param("productId") Integer productId, @Param("thresholdDays") Integer thresholdDays);
+
+    /**
+     * 清空全部记录（重建前）
+     */
+    @Modifying
+    @Query(value = "DELETE FROM shop_product_latest_batch", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * 从订单历史重建：每个 (商家, 商品) 取最近一张包含批次销售明细的订单
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shop_product_latest_batch (shop_id, product_id, order_id, order_detail_id, sale_batch_detail_id, batch_id, order_time, production_date, alert_date)
+        SELECT o.shop_id, od.product_id, o.id, od.id, sbd.id, b.id, o.create_time, b.production_date,
+               TIMESTAMPADD(DAY, p.expiry_monitoring_threshold_days, b.production_date)
+        FROM `order` o
+        JOIN order_detail od ON od.order_id = o.id
+        JOIN sale_batch_detail sbd ON sbd.order_detail_id = od.id
+        JOIN batch b ON b.id = sbd.batch_id
+        JOIN product p ON p.id = od.product_id
+        JOIN (SELECT o2.shop_id, od2.product_id, MAX(o2.create_time) AS latest_time
+              FROM `order` o2
+              JOIN order_detail od2 ON od2.order_id = o2.id
+              JOIN sale_batch_detail sbd2 ON sbd2.order_detail_id = od2.id
+              GROUP BY o2.shop_id, od2.product_id) x
+          ON x.shop_id = o.shop_id AND x.product_id = od.product_id AND x.latest_time = o.create_time
+        """, nativeQuery = true)
+    int rebuildFromOrders();
+
+    /**
+     * 查找临期批次：临期日期不晚于今天（走 alert_date 索引），且未被标记为已处理
+     *
+     * @return 临期批次信息 DTO 列表
+     */
+    @Query(value = """
+        SELECT
+            s.id AS shopId,
+            s.name AS shopName,
+            l.order_id AS orderId,
+            l.order_detail_id AS orderDetailId,
+            l.sale_batch_detail_id AS saleBatchDetailId,
+            l.order_time AS latestOrderTime,
+            p.name AS productName,
+            od.quantity AS productQuantity,
+            l.production_date AS productionDate,
+            p.expiry_monitoring_threshold_days AS expiryMonitoringThresholdDays,
+            DATEDIFF(CURDATE(), l.production_date) AS daysSinceProduction,
+            p.id AS productId,
+            l.batch_id AS batchId
+        FROM shop_product_latest_batch l
+                 INNER JOIN shop s ON s.id = l.shop_id
+                 INNER JOIN product p ON p.id = l.product_id
+                 INNER JOIN order_detail od ON od.id = l.order_detail_id
+                 LEFT JOIN expiry_alert_processed_log eapl ON eapl.sale_batch_detail_id = l.sale_batch_detail_id
+        WHERE l.alert_date <= CURDATE()
+          AND s.is_del = 0
+          AND p.is_batch_managed = 1
+          AND eapl.id IS NULL
+        ORDER BY s.id, p.name, l.order_time DESC
+        """, nativeQuery = true)
+    List<NearExpiryBatchInfo> findNearExpiryBatches();
+}
@@ -1,8 +1,8 @@
 package com.example.monitoring.service; // Updated package
 
-import com.example.domain.order.repository.OrderRepository; // 保持 OrderRepository 依赖用于执行 Native Query
 import com.example.monitoring.dto.ProcessedItemDetailDto; // 导入新的 DTO
 import com.example.monitoring.repository.ExpiryAlertProcessedLogRepository; // 导入新的 Repository
+import com.example.monitoring.repository.ShopProductLatestBatchRepository;
 import org.springframework.data.domain.Page; // 导入 Page
 import org.springframework.data.domain.Pageable; // 导入 Pageable
 // 移除不再需要的实体类导入
@@ -30,33 +30,31 @@ import java.util.List;
 // import java.util.Optional; // 不再需要 Optional
 
 /**
- * 商品临期监控服务 (已重构为使用 Native SQL 查询)
+ * 商品临期监控服务
+ * 临期批次从 shop_product_latest_batch（每个商家、商品最近一次批次销售，随订单维护）按临期日期查询
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExpiryMonitoringService {
 
-    private final OrderRepository orderRepository; // 依赖 OrderRepository 执行 Native Query
+    private final ShopProductLatestBatchRepository latestBatchRepository; // 商家商品最近一次批次销售
     private final ExpiryAlertProcessedLogRepository expiryAlertProcessedLogRepository; // 注入新的 Repository
 
 
     /**
-     * 查找临期批次信息 (使用 Native SQL 查询)
-     * 监控逻辑：直接通过 SQL 查询数据库，找出所有满足以下条件的批次：
-     * 1. 属于未删除的商家。
-     * 2. 商品是批次管理的。
-     * 3. 批次有生产日期。
-     * 4. 批次生产日期距今天数已达到或超过商品的临期监控阈值。
-     * 5. 该批次关联的订单是对应商家、对应商品的最新一个满足临期条件的订单。
+     * 查找临期批次信息
+     * 监控逻辑：对每个未删除商家的每个批次管理商品，取其最近一次销售（最近一张包含该商品批次的订单），
+     * 该次销售中生产日期距今天数已达到或超过商品临期监控阈值、且未被标记为已处理的批次即为临期批次。
+     * 临期日期（生产日期 + 阈值）预先存储并建立索引，查询为 alert_date <= 今天 的范围扫描。
      *
      * @return 临期批次信息列表 (NearExpiryBatchInfo DTO 列表)
      */
     @Transactional(readOnly = true)
     public List<NearExpiryBatchInfo> findNearExpiryBatches() {
-        log.info("开始执行临期批次监控查询 (Native SQL)...");
+        log.info("开始执行临期批次监控查询...");
 
-        List<NearExpiryBatchInfo> nearExpiryBatches = orderRepository.findNearExpiryBatchInfoNative();
+        List<NearExpiryBatchInfo> nearExpiryBatches = latestBatchRepository.findNearExpiryBatches();
 
         return nearExpiryBatches;
     }
@@ -0,0 +1,89 @@
+package com.example.monitoring.service;
+
+import com.example.domain.order.entity.Order;
+import com.example.monitoring.repository.ShopProductLatestBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 商家商品最近一次批次销售维护服务
+ * 订单创建、取消时在同一事务内更新 shop_product_latest_batch，
+ * 每日凌晨从订单历史重建一次，修正绕过业务代码造成的偏差
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShopProductLatestBatchService {
+
+    private final ShopProductLatestBatchRepository latestBatchRepository;
+
+    /**
+     * 新订单：该订单成为其批次商品的最近一次销售；订单没有批次销售明细时不执行任何语句
+     * 订单及其批次销售明细必须已保存（原生语句执行前会刷新持久化上下文）
+     *
+     * @param order 已保存的订单
+     */
+    @Transactional
+    public void recordOrder(Order order) {
+        List<Integer> productIds = order.getOrderDetails()
+                                        .stream()
+                                        .filter(detail -> !detail.getBatchDetails().isEmpty())
+                                        .map(detail -> detail.getProduct().getId())
+                                        .distinct()
+                                        .toList();
+        if (productIds.isEmpty()) {
+            return;
+        }
+        latestBatchRepository.deleteOlderThanOrder(order.getShop().getId(), productIds, order.getCreateTime());
+        latestBatchRepository.insertFromOrder(order.getId());
+    }
+
+    /**
+     * 取消订单：删除该订单的记录，受影响的 (商家, 商品) 从其余订单中补回最近一次销售
+     * 必须在删除订单之前调用
+     *
+     * @param order      被取消的订单
+     * @param productIds 订单涉及的批次商品ID
+     */
+    @Transactional
+    public void revertOrder(Order order, Collection<Integer> productIds) {
+        if (latestBatchRepository.deleteByOrder(order.getId()) == 0) {
+            return; // 该订单不是任何 (商家, 商品) 的最近一次销售
+        }
+        Integer shopId = order.getShop().getId();
+        for (Integer productId : productIds) {
+            latestBatchRepository.refill(shopId, productId, order.getId());
+        }
+    }
+
+    /**
+     * 商品临期阈值修改后重新计算该商品的临期日期
+     *
+     * @param productId     商品ID
+     * @param thresholdDays 新的临期监控阈值（天），为空表示不再监控
+     */
+    @Transactional
+    public void updateThreshold(Integer productId, Integer thresholdDays) {
+        latestBatchRepository.updateAlertDates(productId, thresholdDays);
+    }
+
+    /**
+     * 从订单历史重建全部记录（首次上线回填或数据修正）
+     *
+     * @return 写入的记录数
+     */
+    @Scheduled(cron = "${monitoring.latest-batch.rebuild-cron:0 50 3 * * ?}")
+    @Transactional
+    public int rebuild() {
+        latestBatchRepository.deleteAllRows();
+        int rows = latestBatchRepository.rebuildFromOrders();
+        log.info("商家商品最近批次销售已重建，{} 行", rows);
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.utils;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 内存缓存的加载与并发写入协调
+ * <p>
+ * 缓存每次写入时在持有锁的情况下调用 {@link #bump()}；加载在锁外执行查询，
+ * 写入结果前在同一把锁内检查查询期间是否有写入，有则重新查询，最多 {@value #MAX_ATTEMPTS} 次。
+ * 查询期间的写入可能来自查询前已提交的事务（提交后回调尚未执行），无法判断是否已包含在结果中，
+ * 因此只有确定不受影响时（如取较小值这类可重复执行的写入）才能把它们合并到结果中，由调用方决定。
+ */
+public class VersionedLoader {
+
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final Object lock;
+
+    /**
+     * 写入次数，由 lock 保护
+     */
+    private long version;
+
+    /**
+     * @param lock 缓存写入和加载使用的锁
+     */
+    public VersionedLoader(Object lock) {
+        this.lock = lock;
+    }
+
+    /**
+     * 记录一次写入，调用方必须持有锁
+     */
+    public void bump() {
+        assert Thread.holdsLock(lock);
+        version++;
+    }
+
+    /**
+     * 加载并写入缓存，每次查询期间都有写入时放弃
+     *
+     * @param skip    在锁内判断是否无需加载（例如已加载完成）
+     * @param query   在锁外执行的查询
+     * @param install 查询期间没有写入时，在锁内写入结果
+     * @return 是否已写入或无需加载；返回 false 表示放弃
+     */
+    public <T> boolean load(BooleanSupplier skip, Supplier<T> query, Consumer<T> install) {
+        return load(skip, query, install, result -> {
+        });
+    }
+
+    /**
+     * 加载并写入缓存，每次查询期间都有写入时以最后一次的结果调用 exhausted
+     *
+     * @param skip      在锁内判断是否无需加载（例如已加载完成）
+     * @param query     在锁外执行的查询
+     * @param install   查询期间没有写入时，在锁内写入结果
+     * @param exhausted 放弃时在锁内以最后一次查询的结果调用
+     * @return 是否已写入或无需加载；返回 false 表示放弃
+     */
+    public <T> boolean load(BooleanSupplier skip, Supplier<T> query, Consumer<T> install, Consumer<T> exhausted) {
+        T result = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            long start;
+            synchronized (lock) {
+                if (skip.getAsBoolean()) {
+                    return true;
+                }
+                start = version;
+            }
+            result = query.get();
+            synchronized (lock) {
+                if (start == version) {
+                    install.accept(result);
+                    return true;
+                }
+            }
+        }
+        synchronized (lock) {
+            exhausted.accept(result);
+        }
+        return false;
+    }
+}
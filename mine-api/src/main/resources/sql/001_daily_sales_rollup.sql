@@ -0,0 +1,25 @@
+-- 每日销售汇总预聚合表（由 SalesRollupService 维护）
+
+CREATE TABLE IF NOT EXISTS daily_sales_summary
+(
+    sale_date    DATE           NOT NULL PRIMARY KEY,
+    order_count  INT            NOT NULL DEFAULT 0,
+    total_sales  DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    total_profit DECIMAL(12, 2) NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS daily_product_sales
+(
+    id              INT AUTO_INCREMENT PRIMARY KEY,
+    sale_date       DATE           NOT NULL,
+    product_id      INT            NOT NULL,
+    quantity        INT            NOT NULL DEFAULT 0,
+    total_sales     DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    total_profit    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    return_quantity INT            NOT NULL DEFAULT 0,
+    return_amount   DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_daily_product_sales_date_product (sale_date, product_id),
+    KEY idx_daily_product_sales_product_date (product_id, sale_date)
+);
+
+-- 首次上线后执行回填：POST /api/statistics/rollup/rebuild?startDate=2020-01-01&endDate=<今天>
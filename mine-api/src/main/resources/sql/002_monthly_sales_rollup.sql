@@ -0,0 +1,24 @@
+-- 月度销售汇总表（由 SalesRollupService 从每日汇总结账生成）
+
+CREATE TABLE IF NOT EXISTS monthly_sales_summary
+(
+    month_start  DATE           NOT NULL PRIMARY KEY,
+    order_count  INT            NOT NULL DEFAULT 0,
+    total_sales  DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total_profit DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    closed       BOOLEAN        NOT NULL DEFAULT FALSE,
+    close_time   DATETIME       NULL
+);
+
+CREATE TABLE IF NOT EXISTS monthly_product_sales
+(
+    id           INT AUTO_INCREMENT PRIMARY KEY,
+    month_start  DATE           NOT NULL,
+    product_id   INT            NOT NULL,
+    quantity     INT            NOT NULL DEFAULT 0,
+    total_sales  DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total_profit DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_monthly_product_sales_month_product (month_start, product_id)
+);
+
+-- 上线后执行一次历史结账：POST /api/statistics/rollup/close-months
@@ -0,0 +1,4 @@
+-- 订单列表游标分页索引：按 (create_time, id) 倒序定位，店铺筛选时走 (shop_id, create_time, id)
+
+CREATE INDEX idx_order_create_time_id ON `order` (create_time, id);
+CREATE INDEX idx_order_shop_create_time_id ON `order` (shop_id, create_time, id);
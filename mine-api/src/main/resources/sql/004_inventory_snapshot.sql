@@ -0,0 +1,17 @@
+-- 库存日快照表（由 InventorySnapshotService 每日生成），非批次库存 batch_id 为 0
+
+CREATE TABLE IF NOT EXISTS inventory_snapshot
+(
+    id            INT AUTO_INCREMENT PRIMARY KEY,
+    snapshot_date DATE NOT NULL,
+    product_id    INT  NOT NULL,
+    batch_id      INT  NOT NULL DEFAULT 0,
+    quantity      INT  NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_inventory_snapshot_date_product_batch (snapshot_date, product_id, batch_id)
+);
+
+-- 快照之后的流水按 (商品, 时间) 范围读取；生成快照时按时间读取当日之后的流水
+CREATE INDEX idx_inventory_transactions_product_time ON inventory_transactions (product_id, transaction_time, id);
+CREATE INDEX idx_inventory_transactions_time ON inventory_transactions (transaction_time);
+
+-- 上线后补生成历史快照（可按需缩短范围）：POST /api/inventory/snapshot/backfill?startDate=2024-01-01&endDate=<昨天>
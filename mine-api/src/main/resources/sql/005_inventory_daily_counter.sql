@@ -0,0 +1,14 @@
+-- 库存流水每日计数表（写入库存流水时由 InventoryLedgerWriter 同步累加）
+
+CREATE TABLE IF NOT EXISTS inventory_daily_counter
+(
+    id                INT AUTO_INCREMENT PRIMARY KEY,
+    product_id        INT         NOT NULL,
+    stat_date         DATE        NOT NULL,
+    operation_type    VARCHAR(32) NOT NULL,
+    quantity          INT         NOT NULL DEFAULT 0,
+    transaction_count INT         NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_inventory_daily_counter_product_date_type (product_id, stat_date, operation_type)
+);
+
+-- 首次上线后执行回填：POST /api/inventory/transaction/counter/rebuild?startDate=2020-01-01&endDate=<今天>
@@ -0,0 +1,3 @@
+-- 库存流水游标分页索引：按商品浏览走 004 中的 (product_id, transaction_time, id)，按批次浏览走 (batch_id, transaction_time, id)
+
+CREATE INDEX idx_inventory_transactions_batch_time ON inventory_transactions (batch_id, transaction_time, id);
@@ -0,0 +1,18 @@
+-- 商家商品月度销售汇总表（由 SalesRollupService 随订单、退货增量维护，商家统计由此汇总）
+
+CREATE TABLE IF NOT EXISTS shop_product_monthly_sales
+(
+    id              INT AUTO_INCREMENT PRIMARY KEY,
+    shop_id         INT            NOT NULL,
+    product_id      INT            NOT NULL,
+    month_start     DATE           NOT NULL,
+    quantity        INT            NOT NULL DEFAULT 0,
+    total_sales     DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total_profit    DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    return_quantity INT            NOT NULL DEFAULT 0,
+    return_amount   DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_shop_product_monthly_sales (shop_id, product_id, month_start),
+    KEY idx_shop_product_monthly_sales_month (month_start)
+);
+
+-- 首次上线后执行回填（按整月重建）：POST /api/statistics/rollup/rebuild?startDate=2020-01-01&endDate=<今天>
@@ -0,0 +1,9 @@
+-- 商家最近下单时间和订单数（由 OrderService 随订单创建、取消维护，活跃/不活跃商家查询走 (is_del, last_order_time) 索引）
+
+ALTER TABLE shop
+    ADD COLUMN last_order_time DATETIME NULL,
+    ADD COLUMN order_count     INT      NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_shop_del_last_order_time ON shop (is_del, last_order_time);
+
+-- 首次上线后执行回填（之后每日凌晨自动修正一次）：POST /api/shop/order-stats/rebuild
@@ -0,0 +1,24 @@
+-- 商家商品最近一次批次销售表（由 OrderService 随订单创建、取消维护，临期监控按 alert_date 范围查询）
+
+CREATE TABLE IF NOT EXISTS shop_product_latest_batch
+(
+    id                   INT AUTO_INCREMENT PRIMARY KEY,
+    shop_id              INT      NOT NULL,
+    product_id           INT      NOT NULL,
+    order_id             INT      NOT NULL,
+    order_detail_id      INT      NOT NULL,
+    sale_batch_detail_id INT      NOT NULL,
+    batch_id             INT      NOT NULL,
+    order_time           DATETIME NOT NULL,
+    production_date      DATE     NULL,
+    alert_date           DATE     NULL, -- 生产日期 + 商品临期监控阈值
+    UNIQUE KEY uk_shop_product_latest_batch_sbd (sale_batch_detail_id),
+    KEY idx_shop_product_latest_batch_shop_product (shop_id, product_id, order_time),
+    KEY idx_shop_product_latest_batch_order (order_id),
+    KEY idx_shop_product_latest_batch_alert_date (alert_date)
+);
+
+-- 取消订单时补回最近一次销售需要按 (商家, 商品) 查找订单明细
+CREATE INDEX idx_order_detail_product_order ON order_detail (product_id, order_id);
+
+-- 首次上线后执行回填（之后每日凌晨自动重建一次）：POST /api/api/monitor/expiry/latest-batches/rebuild（控制器自带 /api 前缀）
@@ -0,0 +1,342 @@
+package com.example.junlebao;
+
+import com.example.domain.batch.entity.Batch;
+import com.example.domain.inventory.entity.Inventory;
+import com.example.domain.inventory.repository.InventoryRepository;
+import com.example.domain.inventory.service.InventoryService;
+import com.example.domain.order.dto.OrderCreateRequest;
+import com.example.domain.order.entity.Order;
+import com.example.domain.order.repository.OrderRepository;
+import com.example.domain.order.service.OrderService;
+import com.example.domain.product.entity.Category;
+import com.example.domain.product.entity.Product;
+import com.example.domain.returnOrder.dto.ReturnOrderRequest;
+import com.example.domain.returnOrder.entity.ReturnType;
+import com.example.domain.returnOrder.service.ReturnOrderService;
+import com.example.domain.shop.entity.Shop;
+import com.example.exception.MyException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 订单并发压测
+ * 在内存数据库上对两个热点商品并发下单、取消订单和退货：一个非批次商品，一个有两个批次的批次商品
+ * （已加载到FIFO批次索引，下单按FIFO从索引分配）。每张订单同时包含这两个商品。
+ * 校验非批次商品最终库存 = 初始库存 - 成功售出 + 成功取消 + 成功退货，
+ * 每个批次的最终库存 = 初始库存 - 现存订单在该批次的销售明细 + 退回该批次的数量，
+ * 且压测期间持续采样的库存从未被扣成负数，并输出吞吐量和 p99 延迟。
+ * 只有库存不足是预期的失败，整体回滚、不计入库存变化；其他任何异常都使测试失败，三类操作都必须至少成功一次
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderConcurrencyStressTests {
+
+    private static final int THREADS = 32;
+    private static final int CREATE_COUNT = 3000;
+    private static final int CANCEL_COUNT = 300;
+    private static final int RETURN_COUNT = 300;
+    private static final int INITIAL_STOCK = 5000; // 小于下单总需求，部分订单会因库存不足失败
+    private static final int INITIAL_BATCH_STOCK = 2500; // 每个批次的初始库存，两个批次合计大于批次商品的下单总需求
+    private static final int MAX_SHORTAGES = CREATE_COUNT / 2; // 库存不足失败数的上限，超过说明扣减逻辑异常
+    private static final long SAMPLE_INTERVAL_MILLIS = 20; // 压测期间库存采样间隔
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReturnOrderService returnOrderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Shop shop;
+    private Product product;
+    private Product batchProduct;
+    private Batch olderBatch;
+    private Batch newerBatch;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category();
+            category.setName("压测分类");
+            entityManager.persist(category);
+
+            shop = new Shop();
+            shop.setName("压测店铺");
+            shop.setLocation("压测");
+            shop.setPinyin('Y');
+            entityManager.persist(shop);
+
+            product = new Product();
+            product.setName("压测热点商品");
+            product.setCostPrice(new BigDecimal("5.00"));
+            product.setDefaultSalePrice(new BigDecimal("8.00"));
+            product.setCategory(category);
+            entityManager.persist(product);
+
+            Inventory inventory = new Inventory();
+            inventory.setProduct(product);
+            inventory.setQuantity(INITIAL_STOCK);
+            entityManager.persist(inventory);
+
+            batchProduct = new Product();
+            batchProduct.setName("压测批次商品");
+            batchProduct.setCostPrice(new BigDecimal("5.00"));
+            batchProduct.setDefaultSalePrice(new BigDecimal("8.00"));
+            batchProduct.setCategory(category);
+            batchProduct.setBatchManaged(true);
+            entityManager.persist(batchProduct);
+
+            olderBatch = createBatch("YC-1", LocalDate.now().minusDays(20));
+            newerBatch = createBatch("YC-2", LocalDate.now().minusDays(10));
+        });
+        // 测试数据绕过了库存服务，重新加载批次商品，使下单从FIFO批次索引分配
+        inventoryService.reloadAfterCommit(batchProduct.getId());
+    }
+
+    private Batch createBatch(String batchNumber, LocalDate productionDate) {
+        Batch batch = new Batch();
+        batch.setProduct(batchProduct);
+        batch.setBatchNumber(batchNumber);
+        batch.setProductionDate(productionDate);
+        batch.setCostPrice(batchProduct.getCostPrice());
+        entityManager.persist(batch);
+
+        Inventory inventory = new Inventory();
+        inventory.setProduct(batchProduct);
+        inventory.setBatch(batch);
+        inventory.setQuantity(INITIAL_BATCH_STOCK);
+        entityManager.persist(inventory);
+        return batch;
+    }
+
+    @Test
+    void concurrentOrdersKeepInventoryConsistent() throws InterruptedException {
+        // 先顺序创建待取消的订单，作为压测的基准库存
+        List<Integer> cancelableOrderIds = new ArrayList<>();
+        for (int i = 0; i < CANCEL_COUNT; i++) {
+            orderService.createOrder(orderRequest(1, 1));
+        }
+        for (Order order : orderRepository.findAll()) {
+            cancelableOrderIds.add(order.getId());
+        }
+        int baseline = currentStock();
+
+        // 打乱下单、取消、退货三类操作并发执行
+        Random random = new Random(42);
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicLong sold = new AtomicLong();
+        AtomicLong cancelled = new AtomicLong();
+        AtomicLong returned = new AtomicLong();
+        AtomicLong batchReturned = new AtomicLong();
+        AtomicInteger batchSales = new AtomicInteger();
+        AtomicInteger shortages = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < CREATE_COUNT; i++) {
+            int quantity = 1 + random.nextInt(3);
+            int batchQuantity = 1 + random.nextInt(2);
+            tasks.add(() -> {
+                orderService.createOrder(orderRequest(quantity, batchQuantity));
+                sold.addAndGet(quantity);
+                batchSales.incrementAndGet();
+            });
+        }
+        for (Integer orderId : cancelableOrderIds) {
+            tasks.add(() -> {
+                orderService.cancelOrder(orderId);
+                cancelled.addAndGet(1);
+            });
+        }
+        for (int i = 0; i < RETURN_COUNT; i++) {
+            int quantity = 1 + random.nextInt(2);
+            tasks.add(() -> {
+                returnOrderService.createReturnOrder(returnRequest(quantity));
+                returned.addAndGet(quantity);
+                batchReturned.addAndGet(1);
+            });
+        }
+        Collections.shuffle(tasks, random);
+
+        long[] latencies = new long[tasks.size()];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger minStock = new AtomicInteger(Integer.MAX_VALUE);
+        Thread sampler = new Thread(() -> {
+            // 压测期间持续采样已提交的库存，记录最小值
+            while (!executor.isTerminated()) {
+                int stock = Math.min(currentStock(), Math.min(batchStock(olderBatch), batchStock(newerBatch)));
+                minStock.accumulateAndGet(stock, Math::min);
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        });
+        long start = System.nanoTime();
+        for (Runnable task : tasks) {
+            executor.execute(() -> {
+                long begin = System.nanoTime();
+                try {
+                    task.run();
+                } catch (MyException e) {
+                    if (!isShortage(e)) {
+                        unexpected.add(e); // 找不到库存记录、订单不存在等业务异常不是预期的失败
+                    } else {
+                        shortages.incrementAndGet(); // 库存不足，订单整体回滚
+                    }
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                } finally {
+                    latencies[next.getAndIncrement()] = System.nanoTime() - begin;
+                }
+            });
+        }
+        sampler.start();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES), "压测未在10分钟内完成");
+        long elapsed = System.nanoTime() - start;
+        sampler.join();
+
+        Arrays.sort(latencies);
+        double seconds = elapsed / 1e9;
+        log.info("并发压测: 操作 {} 个, 库存不足 {} 个, 其他异常 {} 个, 耗时 {}s, 吞吐量 {} ops/s, p50 {}ms, p99 {}ms, 最大 {}ms",
+                tasks.size(), shortages.get(), unexpected.size(), String.format("%.2f", seconds), String.format("%.1f", tasks.size() / seconds),
+                millis(latencies[latencies.length / 2]), millis(latencies[(int) (latencies.length * 0.99)]),
+                millis(latencies[latencies.length - 1]));
+        log.info("库存变化: 基准 {}, 售出 {}, 取消返还 {}, 退货入库 {}", baseline, sold.get(), cancelled.get(), returned.get());
+
+        if (!unexpected.isEmpty()) {
+            fail("压测中出现非库存不足的异常 " + unexpected.size() + " 个", unexpected.peek());
+        }
+        assertTrue(sold.get() > 0 && batchSales.get() > 0, "没有成功的下单");
+        assertTrue(cancelled.get() > 0, "没有成功的取消");
+        assertTrue(returned.get() > 0, "没有成功的退货");
+        assertTrue(shortages.get() < MAX_SHORTAGES, "库存不足失败过多: " + shortages.get());
+
+        int finalStock = currentStock();
+        int olderStock = batchStock(olderBatch);
+        int newerStock = batchStock(newerBatch);
+        minStock.accumulateAndGet(Math.min(finalStock, Math.min(olderStock, newerStock)), Math::min);
+        assertTrue(minStock.get() >= 0, "库存被扣成负数: " + minStock.get());
+        assertEquals(baseline - sold.get() + cancelled.get() + returned.get(), finalStock);
+
+        // 批次库存：现存订单的批次销售明细即全部已售出的批次数量，退货全部退回较早的批次
+        long olderSold = soldFromBatch(olderBatch);
+        long newerSold = soldFromBatch(newerBatch);
+        log.info("批次库存: 较早批次 {}（售出 {}）, 较新批次 {}（售出 {}）, 退回较早批次 {}",
+                olderStock, olderSold, newerStock, newerSold, batchReturned.get());
+        assertTrue(olderSold > 0, "没有从较早的批次分配");
+        assertEquals(INITIAL_BATCH_STOCK - olderSold + batchReturned.get(), olderStock);
+        assertEquals(INITIAL_BATCH_STOCK - newerSold, newerStock);
+    }
+
+    /**
+     * 库存不足是唯一预期的失败（订单分配、批量扣减或指定批次出库时）
+     */
+    private static boolean isShortage(MyException e) {
+        return e.getMessage() != null && e.getMessage().contains("库存不足");
+    }
+
+    private OrderCreateRequest orderRequest(int quantity, int batchQuantity) {
+        OrderCreateRequest.OrderItemRequest item = new OrderCreateRequest.OrderItemRequest();
+        item.setProductId(product.getId());
+        item.setQuantity(quantity);
+        item.setPrice(product.getDefaultSalePrice());
+
+        // 不指定批次，按FIFO分配
+        OrderCreateRequest.OrderItemRequest batchItem = new OrderCreateRequest.OrderItemRequest();
+        batchItem.setProductId(batchProduct.getId());
+        batchItem.setQuantity(batchQuantity);
+        batchItem.setPrice(batchProduct.getDefaultSalePrice());
+
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setShopId(shop.getId());
+        request.setItems(List.of(item, batchItem));
+        return request;
+    }
+
+    private ReturnOrderRequest returnRequest(int quantity) {
+        ReturnOrderRequest.ReturnOrderDetailRequest detail = new ReturnOrderRequest.ReturnOrderDetailRequest();
+        detail.setProductId(product.getId());
+        detail.setType(ReturnType.退货退款);
+        detail.setQuantity(quantity);
+        detail.setAmount(product.getDefaultSalePrice().multiply(BigDecimal.valueOf(quantity)));
+
+        ReturnOrderRequest.ReturnOrderDetailRequest batchDetail = new ReturnOrderRequest.ReturnOrderDetailRequest();
+        batchDetail.setProductId(batchProduct.getId());
+        batchDetail.setType(ReturnType.退货退款);
+        batchDetail.setQuantity(1);
+        batchDetail.setBatchId(olderBatch.getId());
+        batchDetail.setAmount(batchProduct.getDefaultSalePrice());
+
+        ReturnOrderRequest request = new ReturnOrderRequest();
+        request.setShopId(shop.getId());
+        request.setDetails(List.of(detail, batchDetail));
+        return request;
+    }
+
+    private int batchStock(Batch batch) {
+        return inventoryRepository.findByProductIdAndBatchId(batchProduct.getId(), batch.getId())
+                                  .orElseThrow()
+                                  .getQuantity();
+    }
+
+    private long soldFromBatch(Batch batch) {
+        Long sold = entityManager.createQuery("select sum(d.quantity) from SaleBatchDetail d where d.batch.id = :batchId", Long.class)
+                                 .setParameter("batchId", batch.getId())
+                                 .getSingleResult();
+        return sold != null ? sold : 0;
+    }
+
+    private int currentStock() {
+        return inventoryRepository.findByProductIdAndBatchIdIsNull(product.getId())
+                                  .orElseThrow()
+                                  .getQuantity();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.junlebao;
+
+import com.example.domain.inventory.entity.Inventory;
+import com.example.domain.order.dto.OrderCreateRequest;
+import com.example.domain.order.service.OrderService;
+import com.example.domain.product.entity.Category;
+import com.example.domain.product.entity.Product;
+import com.example.domain.shop.entity.Shop;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 创建订单的SQL语句数基准
+ * 统计一张订单从加载商品、扣减库存到写入明细和流水共准备了多少条语句（JDBC 批量算一条）。
+ * 语句在数据源的连接上统计，Hibernate 和 JdbcTemplate（库存批量扣减、流水批量写入）发出的语句都计入，
+ * 比较1行和40行订单，得出每增加一个订单项的边际语句数。在内存数据库中运行，测试数据在事务结束后回滚
+ * <p>
+ * 逐行查询商品、库存并逐条更新时，每个非批次订单项约6条语句
+ * （商品查询、库存查询、库存更新、明细插入、流水插入、日销售汇总）；
+ * 预加载后只剩明细插入、流水插入和日销售汇总3条
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class OrderCreateStatementBenchmarkTests {
+
+    private static final int LARGE_ORDER_LINES = 40;
+    private static final int MAX_STATEMENTS_PER_LINE = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Category category;
+    private Shop shop;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("基准测试分类");
+        entityManager.persist(category);
+
+        shop = new Shop();
+        shop.setName("基准测试店铺");
+        shop.setLocation("基准测试");
+        shop.setPinyin('J');
+        entityManager.persist(shop);
+        entityManager.flush();
+    }
+
+    @Test
+    void statementsPerOrder() {
+        long single = measure(1);
+        long large = measure(LARGE_ORDER_LINES);
+        double perLine = (double) (large - single) / (LARGE_ORDER_LINES - 1);
+
+        log.info("创建订单语句数: 1行 {} 条, {}行 {} 条, 每个订单项 {} 条", single, LARGE_ORDER_LINES, large, String.format("%.2f", perLine));
+        assertTrue(perLine <= MAX_STATEMENTS_PER_LINE,
+                "每个订单项的语句数 " + perLine + " 超过 " + MAX_STATEMENTS_PER_LINE);
+    }
+
+    /**
+     * 创建一张指定行数的订单，返回期间准备的语句数
+     */
+    private long measure(int lines) {
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setShopId(shop.getId());
+        List<OrderCreateRequest.OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product product = createProduct(lines + "-" + i, 100);
+            OrderCreateRequest.OrderItemRequest item = new OrderCreateRequest.OrderItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(2);
+            item.setPrice(product.getDefaultSalePrice());
+            items.add(item);
+        }
+        request.setItems(items);
+        entityManager.flush();
+        entityManager.clear();
+
+        statementCounter.reset();
+        orderService.createOrder(request);
+        entityManager.flush();
+        return statementCounter.count();
+    }
+
+    private Product createProduct(String suffix, int stock) {
+        Product product = new Product();
+        product.setName("基准" + suffix);
+        product.setCostPrice(new BigDecimal("5.00"));
+        product.setDefaultSalePrice(new BigDecimal("8.00"));
+        product.setCategory(entityManager.getReference(Category.class, category.getId()));
+        entityManager.persist(product);
+
+        Inventory inventory = new Inventory();
+        inventory.setProduct(product);
+        inventory.setQuantity(stock);
+        entityManager.persist(inventory);
+        return product;
+    }
+
+    /**
+     * 统计数据源连接上准备的语句数
+     * 把数据源包装成代理，连接每次 prepareStatement / prepareCall / createStatement 计一条
+     */
+    static class StatementCounter {
+
+        private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+        private final AtomicLong count = new AtomicLong();
+
+        void reset() {
+            count.set(0);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        DataSource wrap(DataSource target) {
+            return proxy(DataSource.class, target, (method, result) -> {
+                if (result instanceof Connection connection) {
+                    return proxy(Connection.class, connection, this::countStatement);
+                }
+                return result;
+            });
+        }
+
+        private Object countStatement(Method method, Object result) {
+            if (STATEMENT_METHODS.contains(method.getName())) {
+                count.incrementAndGet();
+            }
+            return result;
+        }
+
+        private static <T> T proxy(Class<T> type, T target, BiFunction<Method, Object, Object> after) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                try {
+                    return after.apply(method, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCounterConfig {
+
+        @Bean
+        static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource(ObjectProvider<StatementCounter> counter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counter.getObject().wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.junlebao;
+
+import com.example.domain.batch.entity.Batch;
+import com.example.domain.inventory.entity.Inventory;
+import com.example.domain.inventory.service.InventoryService;
+import com.example.domain.product.dto.ProductStockDTO;
+import com.example.domain.product.entity.Category;
+import com.example.domain.product.entity.Product;
+import com.example.query.InventoryQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量组装商品库存信息的基准
+ * 在内存数据库中准备1万个商品（每5个商品中有1个为批次商品，带2个批次），
+ * 分别对1千和1万个商品调用 {@link InventoryService#getProductStocks}，校验只执行一条查询且结果正确，
+ * 并与逐个商品查询库存的旧方式对比（只测1千个商品）：结果一致，旧方式的语句数不少于商品数且耗时更长
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@Transactional
+class ProductStockAssemblyBenchmarkTests {
+
+    private static final int PRODUCT_COUNT = 10_000;
+    private static final int PLAIN_STOCK = 10;
+    private static final int BATCH_STOCK = 5;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private final List<Integer> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory()
+                                  .unwrap(SessionFactory.class)
+                                  .getStatistics();
+
+        Category category = new Category();
+        category.setName("基准测试分类");
+        entityManager.persist(category);
+
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Product product = new Product();
+            product.setName("基准" + i);
+            product.setCostPrice(new BigDecimal("5.00"));
+            product.setDefaultSalePrice(new BigDecimal("8.00"));
+            product.setCategory(category);
+            entityManager.persist(product);
+            productIds.add(product.getId());
+
+            persistInventory(product, null, PLAIN_STOCK);
+            if (isBatchProduct(i)) {
+                for (int b = 0; b < 2; b++) {
+                    Batch batch = new Batch();
+                    batch.setProduct(product);
+                    batch.setBatchNumber("B" + i + "-" + b);
+                    batch.setProductionDate(LocalDate.of(2025, 1, 1).plusDays(b));
+                    batch.setCostPrice(product.getCostPrice());
+                    entityManager.persist(batch);
+                    persistInventory(product, batch, BATCH_STOCK);
+                }
+            }
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                category = entityManager.getReference(Category.class, category.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void assembleProductStocks() {
+        long batchElapsed = 0;
+        for (int size : new int[]{1_000, PRODUCT_COUNT}) {
+            List<Integer> ids = productIds.subList(0, size);
+
+            statistics.clear();
+            long start = System.nanoTime();
+            List<ProductStockDTO> stocks = inventoryService.getProductStocks(ids);
+            long elapsed = System.nanoTime() - start;
+            long statements = statistics.getPrepareStatementCount();
+            entityManager.clear();
+
+            log.info("批量组装 {} 个商品库存: {} 条语句, 耗时 {}ms", size, statements, String.format("%.1f", elapsed / 1e6));
+            if (size == 1_000) {
+                batchElapsed = elapsed;
+            }
+            assertEquals(1, statements);
+            assertEquals(size, stocks.size());
+            for (int i = 0; i < size; i++) {
+                ProductStockDTO stock = stocks.get(i);
+                assertEquals(ids.get(i), stock.getProductId());
+                assertEquals(isBatchProduct(i) ? PLAIN_STOCK + 2 * BATCH_STOCK : PLAIN_STOCK, stock.getTotalInventory());
+                assertEquals(isBatchProduct(i) ? 2 : 0, stock.getBatchStocks().size());
+            }
+        }
+
+        // 旧方式：每个商品一次查询，结果与批量组装一致，但语句数与商品数相同且更慢
+        List<Integer> ids = productIds.subList(0, 1_000);
+        statistics.clear();
+        long start = System.nanoTime();
+        List<List<Inventory>> perProduct = new ArrayList<>(ids.size());
+        for (Integer productId : ids) {
+            perProduct.add(inventoryService.findList(InventoryQuery.builder()
+                                                                   .productId(productId)
+                                                                   .includes(Set.of(InventoryQuery.Include.BATCH))
+                                                                   .build()));
+        }
+        long elapsed = System.nanoTime() - start;
+        long statements = statistics.getPrepareStatementCount();
+        log.info("逐个查询 {} 个商品库存: {} 条语句, 耗时 {}ms", ids.size(), statements, String.format("%.1f", elapsed / 1e6));
+
+        assertTrue(statements >= ids.size(), "逐个查询的语句数 " + statements + " 少于商品数");
+        assertTrue(batchElapsed < elapsed, "批量组装（" + batchElapsed + "ns）不比逐个查询（" + elapsed + "ns）快");
+        for (int i = 0; i < ids.size(); i++) {
+            List<Inventory> inventories = perProduct.get(i);
+            assertEquals(isBatchProduct(i) ? PLAIN_STOCK + 2 * BATCH_STOCK : PLAIN_STOCK,
+                         inventories.stream().mapToInt(Inventory::getQuantity).sum());
+            assertEquals(isBatchProduct(i) ? 2 : 0, inventories.stream().filter(inventory -> inventory.getBatch() != null).count());
+        }
+    }
+
+    private void persistInventory(Product product, Batch batch, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setProduct(product);
+        inventory.setBatch(batch);
+        inventory.setQuantity(quantity);
+        entityManager.persist(inventory);
+    }
+
+    private static boolean isBatchProduct(int index) {
+        return index % 5 == 0;
+    }
+}